@@ -25,4 +25,42 @@ import java.lang.annotation.Target;
  */
 @Target(value = ElementType.TYPE)
 @Retention(RetentionPolicy.CLASS)
-public @interface BundlerClass {}
+public @interface BundlerClass {
+
+    /**
+     * If {@code true}, each field is stored in the Bundle under its field name rather than a
+     * key prefixed with the qualified class name. Shorter keys make Bundles smaller when they
+     * are parceled, and are cheaper to hash. Keys only need to be unique within the Bundle for
+     * one object, but Bundles from different classes should not be merged in this mode.
+     */
+    boolean compactKeys() default false;
+
+    /**
+     * If {@code true}, also generate a {@code FooParcel} class that wraps an instance and
+     * implements {@code android.os.Parcelable} by writing each field directly to the Parcel,
+     * in order and without keys. This is smaller and faster to marshal than a Bundle.
+     */
+    boolean parcelable() default false;
+
+    /**
+     * If {@code true}, also generate a {@code FooBundleView} class that wraps a Bundle and has
+     * a getter for each field. Each field is only read, and converted if necessary, the first
+     * time its getter is called, so restoring a few fields of a large object is cheaper than
+     * {@code fromBundle}.
+     */
+    boolean view() default false;
+
+    /**
+     * What to do with fields that can only be stored as {@code Serializable}. Each warning or
+     * error points at the field and suggests a faster way to store it. By default this is set
+     * for all classes with the {@code easybundler.serializable} processor option.
+     */
+    SerializablePolicy serializable() default SerializablePolicy.DEFAULT;
+
+    /**
+     * How enum fields, and arrays, lists and maps of enums, are stored. Enums are never stored
+     * as {@code Serializable}.
+     */
+    EnumEncoding enumEncoding() default EnumEncoding.NAME;
+
+}
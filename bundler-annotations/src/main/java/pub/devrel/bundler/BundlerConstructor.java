@@ -0,0 +1,36 @@
+
+/*
+ * Copyright 2017 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pub.devrel.bundler;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation for the constructor or static factory method that the generated {@code Bundler}
+ * should use to create instances of a class annotated with {@link BundlerClass}, instead of the
+ * default constructor.
+ * <p>
+ * Each parameter is matched by name to a field of the same type, so the class can keep its
+ * fields {@code final}. Fields that are not parameters are set after the instance is created,
+ * if they are writable.
+ */
+@Target(value = {ElementType.CONSTRUCTOR, ElementType.METHOD})
+@Retention(RetentionPolicy.CLASS)
+public @interface BundlerConstructor {
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2017 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pub.devrel.bundler;
+
+/**
+ * How the enum fields of a {@link BundlerClass} are stored in the Bundle.
+ */
+public enum EnumEncoding {
+
+    /**
+     * Store the {@code name()} of each value as a String. Values can be restored after the
+     * constants of the enum are reordered or new ones are added.
+     */
+    NAME,
+
+    /**
+     * Store the {@code ordinal()} of each value as an int. This is smaller and faster, but the
+     * order of the constants must not change while Bundles written by an older version of the
+     * app may still be restored.
+     */
+    ORDINAL
+
+}
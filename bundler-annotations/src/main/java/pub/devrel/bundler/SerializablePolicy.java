@@ -0,0 +1,46 @@
+/*
+ * Copyright 2017 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pub.devrel.bundler;
+
+/**
+ * What the annotation processor does when a field of a {@link BundlerClass} can only be stored
+ * with {@code putSerializable}, which uses Java serialization and is much slower than the
+ * other Bundle methods.
+ */
+public enum SerializablePolicy {
+
+    /**
+     * Use the policy set with the {@code easybundler.serializable} processor option, which is
+     * {@link #ALLOW} unless it is set.
+     */
+    DEFAULT,
+
+    /**
+     * Store the field with {@code putSerializable} without reporting it.
+     */
+    ALLOW,
+
+    /**
+     * Store the field with {@code putSerializable} and report a warning on the field.
+     */
+    WARN,
+
+    /**
+     * Report an error on the field, failing the build.
+     */
+    ERROR
+
+}
@@ -15,22 +15,49 @@
  */
 package pub.devrel.bundler;
 
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
 import com.google.testing.compile.JavaFileObjects;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
 import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
 
 import static com.google.common.truth.Truth.assertAbout;
 import static com.google.testing.compile.JavaSourceSubjectFactory.javaSource;
+import static com.google.testing.compile.JavaSourcesSubjectFactory.javaSources;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
 
 /**
  * Tests for the annotation processor for EasyBundler. Tests different cases where compilation
- * should fail. For tests in the case where compilation succeeds, see the class
- * {@code EasyBundlerTest} in the bundler-api module.
+ * should fail or warn, and the build statistics report. For tests in the case where compilation
+ * succeeds, see the class {@code EasyBundlerTest} in the bundler-api module.
  */
 public class ProcessorTest {
 
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     @Test
     public void testNoDefaultConstructor() {
         String[] source = new String[]{
@@ -81,4 +108,348 @@ public class ProcessorTest {
                 .withErrorContaining("unknown type");
     }
 
+    @Test
+    public void testParcelableWithInvalidType() {
+        String[] source = new String[]{
+                "package pub.devrel.bundler.objects;",
+                "",
+                "import java.util.Queue;",
+                "import pub.devrel.bundler.BundlerClass;",
+                "",
+                "@BundlerClass(parcelable = true)",
+                "public class ParcelableWithInvalidField {",
+                "",
+                "    public Queue<Object> queue;",
+                "",
+                "    public ParcelableWithInvalidField() {}",
+                "}"
+        };
+
+        JavaFileObject object = JavaFileObjects.forSourceLines(
+                "pub.devrel.bundler.objects.ParcelableWithInvalidField",
+                source);
+
+        // The field should be reported, rather than crash the processor
+        assertAbout(javaSource()).that(object)
+                .processedWith(new BundlerClassProcessor())
+                .failsToCompile()
+                .withErrorContaining("unknown type");
+    }
+
+    @Test
+    public void testTypeVariablesInSameRound() {
+        String[] boundedSource = new String[]{
+                "package pub.devrel.bundler.objects;",
+                "",
+                "import java.io.Serializable;",
+                "import pub.devrel.bundler.BundlerClass;",
+                "",
+                "@BundlerClass",
+                "public class HasBoundedTypeVariable<T extends Serializable> {",
+                "",
+                "    public T value;",
+                "",
+                "    public HasBoundedTypeVariable() {}",
+                "}"
+        };
+
+        String[] unboundedSource = new String[]{
+                "package pub.devrel.bundler.objects;",
+                "",
+                "import pub.devrel.bundler.BundlerClass;",
+                "",
+                "@BundlerClass",
+                "public class HasUnboundedTypeVariable<T> {",
+                "",
+                "    public T value;",
+                "",
+                "    public HasUnboundedTypeVariable() {}",
+                "}"
+        };
+
+        JavaFileObject bounded = JavaFileObjects.forSourceLines(
+                "pub.devrel.bundler.objects.HasBoundedTypeVariable",
+                boundedSource);
+        JavaFileObject unbounded = JavaFileObjects.forSourceLines(
+                "pub.devrel.bundler.objects.HasUnboundedTypeVariable",
+                unboundedSource);
+
+        // Both type variables are named T, but the unbounded one can not be stored
+        assertAbout(javaSources()).that(Arrays.asList(bounded, unbounded))
+                .processedWith(new BundlerClassProcessor())
+                .failsToCompile()
+                .withErrorContaining("in class pub.devrel.bundler.objects.HasUnboundedTypeVariable"
+                        + " cannot be included in bundle: unknown type T");
+    }
+
+    @Test
+    public void testConstructorParameterWithoutField() {
+        String[] source = new String[]{
+                "package pub.devrel.bundler.objects;",
+                "",
+                "import pub.devrel.bundler.BundlerClass;",
+                "import pub.devrel.bundler.BundlerConstructor;",
+                "",
+                "@BundlerClass",
+                "public class HasUnmatchedParameter {",
+                "",
+                "    public final String string;",
+                "",
+                "    @BundlerConstructor",
+                "    public HasUnmatchedParameter(String string, int number) {",
+                "        this.string = string;",
+                "    }",
+                "}"
+        };
+
+        JavaFileObject object = JavaFileObjects.forSourceLines(
+                "pub.devrel.bundler.objects.HasUnmatchedParameter",
+                source);
+
+        assertAbout(javaSource()).that(object)
+                .processedWith(new BundlerClassProcessor())
+                .failsToCompile()
+                .withErrorContaining("does not match a readable field");
+    }
+
+    @Test
+    public void testSerializablePolicyError() {
+        String[] source = new String[]{
+                "package pub.devrel.bundler.objects;",
+                "",
+                "import java.util.Date;",
+                "import pub.devrel.bundler.BundlerClass;",
+                "import pub.devrel.bundler.SerializablePolicy;",
+                "",
+                "@BundlerClass(serializable = SerializablePolicy.ERROR)",
+                "public class HasSerializableField {",
+                "",
+                "    public Date date;",
+                "",
+                "    public HasSerializableField() {}",
+                "}"
+        };
+
+        JavaFileObject object = JavaFileObjects.forSourceLines(
+                "pub.devrel.bundler.objects.HasSerializableField",
+                source);
+
+        assertAbout(javaSource()).that(object)
+                .processedWith(new BundlerClassProcessor())
+                .failsToCompile()
+                .withErrorContaining("store getTime() in a long field");
+    }
+
+    @Test
+    public void testSerializablePolicyWarn() throws IOException {
+        String[] source = new String[]{
+                "package pub.devrel.bundler.objects;",
+                "",
+                "import java.util.Date;",
+                "import pub.devrel.bundler.BundlerClass;",
+                "import pub.devrel.bundler.SerializablePolicy;",
+                "",
+                "@BundlerClass(serializable = SerializablePolicy.WARN)",
+                "public class WarnsSerializableField {",
+                "",
+                "    public Date date;",
+                "",
+                "    public WarnsSerializableField() {}",
+                "}"
+        };
+
+        JavaFileObject object = JavaFileObjects.forSourceLines(
+                "pub.devrel.bundler.objects.WarnsSerializableField",
+                source);
+
+        // The class is still generated, with a warning on the field
+        List<Diagnostic<? extends JavaFileObject>> diagnostics =
+                process(object, temporaryFolder.newFolder());
+        Diagnostic<? extends JavaFileObject> warning = null;
+        for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics) {
+            String message = diagnostic.getMessage(null);
+            assertFalse(message, diagnostic.getKind() == Diagnostic.Kind.ERROR
+                    && message.startsWith("[EasyBundler]"));
+            if (diagnostic.getKind() == Diagnostic.Kind.WARNING
+                    && message.contains("store getTime() in a long field")) {
+                warning = diagnostic;
+            }
+        }
+
+        assertNotNull(warning);
+        assertEquals(10, warning.getLineNumber());
+    }
+
+    @Test
+    public void testSerializablePolicyOption() {
+        String[] source = new String[]{
+                "package pub.devrel.bundler.objects;",
+                "",
+                "import java.util.Date;",
+                "import pub.devrel.bundler.BundlerClass;",
+                "",
+                "@BundlerClass",
+                "public class HasDefaultPolicy {",
+                "",
+                "    public Date date;",
+                "",
+                "    public HasDefaultPolicy() {}",
+                "}"
+        };
+
+        JavaFileObject object = JavaFileObjects.forSourceLines(
+                "pub.devrel.bundler.objects.HasDefaultPolicy",
+                source);
+
+        // Classes that do not set a policy use the one of the processor option
+        assertAbout(javaSource()).that(object)
+                .withCompilerOptions("-Aeasybundler.serializable=error")
+                .processedWith(new BundlerClassProcessor())
+                .failsToCompile()
+                .withErrorContaining("store getTime() in a long field");
+    }
+
+    @Test
+    public void testInvalidSerializablePolicyOption() {
+        String[] source = new String[]{
+                "package pub.devrel.bundler.objects;",
+                "",
+                "import pub.devrel.bundler.BundlerClass;",
+                "",
+                "@BundlerClass",
+                "public class HasString {",
+                "",
+                "    public String string;",
+                "",
+                "    public HasString() {}",
+                "}"
+        };
+
+        JavaFileObject object = JavaFileObjects.forSourceLines(
+                "pub.devrel.bundler.objects.HasString",
+                source);
+
+        assertAbout(javaSource()).that(object)
+                .withCompilerOptions("-Aeasybundler.serializable=sometimes")
+                .processedWith(new BundlerClassProcessor())
+                .failsToCompile()
+                .withErrorContaining("Invalid value for easybundler.serializable: sometimes");
+    }
+
+    @Test
+    public void testParcelableWithCustomBundleClass() {
+        String[] source = new String[]{
+                "package pub.devrel.bundler.objects;",
+                "",
+                "import pub.devrel.bundler.BundlerClass;",
+                "",
+                "@BundlerClass(parcelable = true)",
+                "public class ParcelableOffDevice {",
+                "",
+                "    public String string;",
+                "",
+                "    public ParcelableOffDevice() {}",
+                "}"
+        };
+
+        JavaFileObject object = JavaFileObjects.forSourceLines(
+                "pub.devrel.bundler.objects.ParcelableOffDevice",
+                source);
+
+        // The Parcelable wrapper needs Android, so it can not be generated for other Bundles
+        assertAbout(javaSource()).that(object)
+                .withCompilerOptions(
+                        "-Aeasybundler.bundleClass=pub.devrel.bundler.jvm.ArrayBundle")
+                .processedWith(new BundlerClassProcessor())
+                .failsToCompile()
+                .withErrorContaining("can not be parcelable");
+    }
+
+    @Test
+    public void testStatsReport() throws IOException {
+        String[] source = new String[]{
+                "package pub.devrel.bundler.objects;",
+                "",
+                "import java.util.Date;",
+                "import pub.devrel.bundler.BundlerClass;",
+                "",
+                "@BundlerClass",
+                "public class HasStats {",
+                "",
+                "    public String string;",
+                "",
+                "    public Date date;",
+                "",
+                "    private int skipped;",
+                "",
+                "    public HasStats() {}",
+                "}"
+        };
+
+        JavaFileObject object = JavaFileObjects.forSourceLines(
+                "pub.devrel.bundler.objects.HasStats",
+                source);
+
+        // The processor writes the report to the class output directory
+        File output = temporaryFolder.newFolder();
+        process(object, output, "-Aeasybundler.stats=true");
+
+        byte[] bytes = Files.readAllBytes(new File(output, "easybundler-stats.json").toPath());
+        JsonObject report = parseJson(new String(bytes, "UTF-8")).getAsJsonObject();
+
+        JsonObject totals = report.getAsJsonObject("totals");
+        assertEquals(1, totals.get("classes").getAsInt());
+        assertEquals(2, totals.get("bundledFields").getAsInt());
+        assertEquals(1, totals.get("skippedFields").getAsInt());
+        JsonArray serializableFields = totals.getAsJsonArray("serializableFields");
+        assertEquals(1, serializableFields.size());
+        assertEquals("pub.devrel.bundler.objects.HasStats.date",
+                serializableFields.get(0).getAsString());
+
+        JsonObject stats = report.getAsJsonArray("classes").get(0).getAsJsonObject();
+        assertEquals("pub.devrel.bundler.objects.HasStats", stats.get("name").getAsString());
+        JsonArray skippedFields = stats.getAsJsonArray("skippedFields");
+        assertEquals(1, skippedFields.size());
+        assertEquals("skipped", skippedFields.get(0).getAsString());
+
+        // Strings with quotes and control characters should be escaped
+        String string = "a\"b\\c\n\u0001";
+        assertEquals("\"a\\\"b\\\\c\\u000a\\u0001\"", BundlerStats.quote(string));
+        assertEquals(string, parseJson(BundlerStats.quote(string)).getAsString());
+    }
+
+    /**
+     * Parses JSON strictly, unlike {@link Gson#fromJson(String, Class)} which is lenient, to
+     * check that reports written by the processor are valid.
+     */
+    private static JsonElement parseJson(String json) throws IOException {
+        return new Gson().getAdapter(JsonElement.class).fromJson(json);
+    }
+
+    /**
+     * Runs only the processor on a source, writing generated files to a directory, and returns
+     * its diagnostics. The generated Bundler can not be compiled without Android, so this is
+     * used instead of compile-testing when compilation should succeed.
+     */
+    private static List<Diagnostic<? extends JavaFileObject>> process(
+            JavaFileObject source, File output, String... options) throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null);
+        fileManager.setLocation(StandardLocation.CLASS_OUTPUT, Collections.singleton(output));
+        fileManager.setLocation(StandardLocation.SOURCE_OUTPUT, Collections.singleton(output));
+
+        List<String> arguments = new ArrayList<>();
+        arguments.add("-proc:only");
+        arguments.addAll(Arrays.asList(options));
+
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics,
+                arguments, null, Collections.singleton(source));
+        task.setProcessors(Collections.singleton(new BundlerClassProcessor()));
+        task.call();
+        fileManager.close();
+
+        return diagnostics.getDiagnostics();
+    }
+
 }
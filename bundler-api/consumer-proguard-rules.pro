@@ -3,3 +3,8 @@
 -keep @pub.devrel.bundler.BundlerClass class *
 -keepnames @pub.devrel.bundler.BundlerClass class *
 -keepclassmembers @pub.devrel.bundler.BundlerClass class * { *; }
+
+-keep class pub.devrel.bundler.EasyBundlerRegistry { <init>(); }
+-keepclasseswithmembers class * {
+    public static final pub.devrel.bundler.Bundler INSTANCE;
+}
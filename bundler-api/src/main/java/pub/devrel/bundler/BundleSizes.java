@@ -0,0 +1,259 @@
+/*
+ * Copyright 2017 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pub.devrel.bundler;
+
+import android.os.Bundle;
+import android.os.Parcel;
+import android.os.Parcelable;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Estimates of how many bytes values take up when a {@link Bundle} is written to a
+ * {@link Parcel}, such as when it is passed to another process. A Parcel stores each value of
+ * a Bundle as its key, a type tag and the value itself, in 4-byte aligned blocks, with
+ * strings as UTF-16. The estimates follow that layout and are meant to catch oversized state
+ * before it causes a {@code TransactionTooLargeException}, not to be exact.
+ * Generated Bundlers use these to implement {@link Bundler#estimateSize(Object)}, measuring
+ * collections by their size and elements rather than converting them first.
+ */
+public final class BundleSizes {
+
+    /**
+     * Size of the header of a non-empty Bundle: its length, magic number and entry count.
+     */
+    public static final int BUNDLE_HEADER = 12;
+
+    /**
+     * Size of the type tag written before each value.
+     */
+    public static final int TYPE_TAG = 4;
+
+    /**
+     * Size of an int, float, boolean, char, short or byte value, including its type tag.
+     */
+    public static final int PRIMITIVE = TYPE_TAG + 4;
+
+    /**
+     * Size of a long or double value, including its type tag.
+     */
+    public static final int WIDE_PRIMITIVE = TYPE_TAG + 8;
+
+    private BundleSizes() {}
+
+    /**
+     * Returns the size of a Bundle key.
+     */
+    public static int ofKey(String key) {
+        return ofString(key);
+    }
+
+    /**
+     * Returns the size of a Bundle key that is an index, such as the keys of the columns of a
+     * list, without creating the String. Ex: 8 for "7".
+     */
+    public static int ofIndexKey(int index) {
+        int digits = 1;
+        for (int n = index; n >= 10; n /= 10) {
+            digits++;
+        }
+
+        return 4 + align((digits + 1) * 2);
+    }
+
+    /**
+     * Returns the size of an array of primitives, including its type tag, from its length and
+     * the size of each element: 1 for bytes, 8 for longs and doubles, and 4 for the others.
+     */
+    public static int ofArray(int length, int elementSize) {
+        return TYPE_TAG + 4 + align(length * elementSize);
+    }
+
+    /**
+     * Returns the size of a collection of boxed primitives as generated Bundlers store it: an
+     * array of primitives with elements of the given size, or a list of the boxed values if it
+     * has a null element. See {@link #ofArray(int, int)}.
+     */
+    public static int ofPrimitives(Collection<?> values, int elementSize) {
+        if (values == null) {
+            return TYPE_TAG;
+        }
+
+        for (Object value : values) {
+            if (value == null) {
+                return TYPE_TAG + ofItems(values);
+            }
+        }
+
+        return ofArray(values.size(), elementSize);
+    }
+
+    /**
+     * Returns the size of a Bundle and all of its values, or 0 if it is {@code null}, since
+     * null values in a Bundle are only written as their type tag.
+     */
+    public static int ofBundle(Bundle bundle) {
+        if (bundle == null) {
+            return 0;
+        }
+
+        int size = BUNDLE_HEADER;
+        for (String key : bundle.keySet()) {
+            size += ofKey(key) + ofValue(bundle.get(key));
+        }
+
+        return size;
+    }
+
+    /**
+     * Returns the size of any value stored in a Bundle, including its type tag. Parcelable
+     * values are written to a Parcel and Serializable values are serialized to be measured,
+     * so those are as slow to estimate as they are to parcel. Values of other types are
+     * counted as their type tag only.
+     */
+    public static int ofValue(Object value) {
+        if (value == null) {
+            return TYPE_TAG;
+        } else if (value instanceof String) {
+            return TYPE_TAG + ofString((String) value);
+        } else if (value instanceof Long || value instanceof Double) {
+            return WIDE_PRIMITIVE;
+        } else if (value instanceof Number || value instanceof Boolean
+                || value instanceof Character) {
+            return PRIMITIVE;
+        } else if (value instanceof Bundle) {
+            return TYPE_TAG + ofBundle((Bundle) value);
+        } else if (value instanceof CharSequence) {
+            // Written with a flag telling whether it is styled
+            return TYPE_TAG + 4 + ofString(value.toString());
+        } else if (value instanceof int[]) {
+            return TYPE_TAG + 4 + 4 * ((int[]) value).length;
+        } else if (value instanceof long[]) {
+            return TYPE_TAG + 4 + 8 * ((long[]) value).length;
+        } else if (value instanceof double[]) {
+            return TYPE_TAG + 4 + 8 * ((double[]) value).length;
+        } else if (value instanceof float[]) {
+            return TYPE_TAG + 4 + 4 * ((float[]) value).length;
+        } else if (value instanceof boolean[]) {
+            return TYPE_TAG + 4 + 4 * ((boolean[]) value).length;
+        } else if (value instanceof char[]) {
+            return TYPE_TAG + 4 + 4 * ((char[]) value).length;
+        } else if (value instanceof short[]) {
+            return TYPE_TAG + 4 + 4 * ((short[]) value).length;
+        } else if (value instanceof byte[]) {
+            return TYPE_TAG + 4 + align(((byte[]) value).length);
+        } else if (value instanceof String[]) {
+            // Strings in an array are written without a type tag
+            int size = TYPE_TAG + 4;
+            for (String item : (String[]) value) {
+                size += ofString(item);
+            }
+            return size;
+        } else if (value instanceof Object[]) {
+            int size = TYPE_TAG + 4;
+            for (Object item : (Object[]) value) {
+                size += ofValue(item);
+            }
+            return size;
+        } else if (value instanceof List) {
+            return TYPE_TAG + ofItems((List<?>) value);
+        } else if (value instanceof Parcelable) {
+            return TYPE_TAG + ofString(value.getClass().getName())
+                    + ofParcelable((Parcelable) value);
+        } else if (value instanceof Serializable) {
+            return TYPE_TAG + 4 + ofSerializable((Serializable) value);
+        }
+
+        return TYPE_TAG;
+    }
+
+    /**
+     * Returns the size of a String as written by {@link Parcel#writeString(String)}: its
+     * length and its UTF-16 characters with a terminator, aligned to 4 bytes. This is the
+     * size of an element of a String array, which has no type tag.
+     */
+    public static int ofString(String value) {
+        if (value == null) {
+            return 4;
+        }
+
+        return 4 + align((value.length() + 1) * 2);
+    }
+
+    /**
+     * Returns the size of the values of a list, each with its type tag, and of its length.
+     */
+    private static int ofItems(Collection<?> values) {
+        int size = 4;
+        for (Object item : values) {
+            size += ofValue(item);
+        }
+
+        return size;
+    }
+
+    private static int ofParcelable(Parcelable value) {
+        Parcel parcel = Parcel.obtain();
+        try {
+            value.writeToParcel(parcel, 0);
+            return parcel.dataSize();
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    private static int ofSerializable(Serializable value) {
+        CountingOutputStream counter = new CountingOutputStream();
+        try {
+            ObjectOutputStream out = new ObjectOutputStream(counter);
+            out.writeObject(value);
+            out.close();
+        } catch (IOException e) {
+            // Not serializable after all, which will also fail when the Bundle is parceled
+        }
+
+        return align(counter.count);
+    }
+
+    private static int align(int size) {
+        return (size + 3) & ~3;
+    }
+
+    /**
+     * Output stream that only counts the bytes written to it.
+     */
+    private static class CountingOutputStream extends OutputStream {
+
+        private int count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+
+    }
+
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2017 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pub.devrel.bundler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Thrown when the estimated size of a Bundle is over the limit passed to
+ * {@link EasyBundler#toBundle(Object, int)}, before the Bundle is created. Parceling a Bundle
+ * that large would risk a {@code TransactionTooLargeException}, which is only thrown later and
+ * without saying which state was too large.
+ */
+public class BundleTooLargeException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    // Number of fields named in the message
+    private static final int MAX_REPORTED_FIELDS = 3;
+
+    private final int estimatedSize;
+    private final int maxSize;
+    private final Map<String, Integer> fieldSizes;
+
+    public BundleTooLargeException(Class<?> clazz, int estimatedSize, int maxSize,
+                                   Map<String, Integer> fieldSizes) {
+        super("Bundle for " + clazz.getName() + " would be about " + estimatedSize
+                + " bytes, over the limit of " + maxSize + " bytes. Largest fields: "
+                + getLargestFields(fieldSizes));
+        this.estimatedSize = estimatedSize;
+        this.maxSize = maxSize;
+        this.fieldSizes = fieldSizes;
+    }
+
+    /**
+     * Returns the estimated size of the Bundle, in bytes.
+     */
+    public int getEstimatedSize() {
+        return estimatedSize;
+    }
+
+    /**
+     * Returns the limit that the Bundle was over, in bytes.
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Returns the estimated size of each field, including its key, by field name.
+     */
+    public Map<String, Integer> getFieldSizes() {
+        return fieldSizes;
+    }
+
+    /**
+     * Returns the largest fields and their sizes. Ex: "items=524300, title=48".
+     */
+    private static String getLargestFields(Map<String, Integer> fieldSizes) {
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>(fieldSizes.entrySet());
+        Collections.sort(entries, new Comparator<Map.Entry<String, Integer>>() {
+            @Override
+            public int compare(Map.Entry<String, Integer> a, Map.Entry<String, Integer> b) {
+                return b.getValue().compareTo(a.getValue());
+            }
+        });
+
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < entries.size() && i < MAX_REPORTED_FIELDS; i++) {
+            if (i > 0) {
+                result.append(", ");
+            }
+            result.append(entries.get(i).getKey()).append('=').append(entries.get(i).getValue());
+        }
+
+        return result.toString();
+    }
+
+}
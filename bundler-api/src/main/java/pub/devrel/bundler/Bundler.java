@@ -0,0 +1,88 @@
+
+/*
+ * Copyright 2017 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pub.devrel.bundler;
+
+import android.os.Bundle;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Typed converter between objects of a class annotated with {@link BundlerClass} and
+ * {@link Bundle}. An implementation is generated for each annotated class and exposed as the
+ * {@code INSTANCE} field of the generated {@code FooBundler} class.
+ *
+ * @param <T> the annotated class.
+ */
+public interface Bundler<T> {
+
+    /**
+     * Convert an object to a {@link Bundle}.
+     */
+    Bundle toBundle(T object);
+
+    /**
+     * Write an object into an existing {@link Bundle} produced by {@link #toBundle(Object)},
+     * only putting the values that changed, and return that Bundle. If the Bundle is
+     * {@code null} a new one is created.
+     */
+    Bundle updateBundle(T object, Bundle bundle);
+
+    /**
+     * Create a new object from a {@link Bundle} produced by {@link #toBundle(Object)}.
+     */
+    T fromBundle(Bundle bundle);
+
+    /**
+     * Copy the values from a {@link Bundle} produced by {@link #toBundle(Object)} into an
+     * existing object, and return that object. Fields that are only set by a
+     * {@link BundlerConstructor}, such as final fields, can not be set on an existing object
+     * and keep their current values.
+     */
+    T into(Bundle bundle, T target);
+
+    /**
+     * Like {@link #into(Bundle, Object)}, but if {@code skipMissing} is {@code true} the fields
+     * whose keys are missing from the {@link Bundle} keep their current values.
+     */
+    T into(Bundle bundle, T target, boolean skipMissing);
+
+    /**
+     * Convert a list of objects to a single {@link Bundle} holding one array per field, rather
+     * than one Bundle per object. The list may contain {@code null} elements.
+     */
+    Bundle toColumns(List<T> objects);
+
+    /**
+     * Create a new list of objects from a {@link Bundle} produced by {@link #toColumns(List)}.
+     */
+    ArrayList<T> fromColumns(Bundle bundle);
+
+    /**
+     * Estimate the size in bytes of the {@link Bundle} that {@link #toBundle(Object)} would
+     * create for an object, once parceled. See {@link BundleSizes}.
+     */
+    int estimateSize(T object);
+
+    /**
+     * Estimate the size in bytes of each field of an object once bundled and parceled,
+     * including its key, by field name in declaration order.
+     */
+    Map<String, Integer> estimateFieldSizes(T object);
+
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2017 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pub.devrel.bundler;
+
+/**
+ * Receives a callback after each conversion made through {@link EasyBundler}, to record how
+ * often each class is converted, how long it takes and how large the result is. Set with
+ * {@link EasyBundler#setListener(BundlerListener)}. When no listener is set, conversions are
+ * not timed at all.
+ *
+ * Callbacks are made on the thread that made the conversion, possibly from several threads
+ * at once, so implementations should be thread-safe and fast. See {@link BundlerMetrics} for
+ * an implementation that keeps statistics in memory.
+ */
+public interface BundlerListener {
+
+    /**
+     * The {@link EasyBundler} method that made a conversion.
+     */
+    enum Operation {
+        TO_BUNDLE,
+        UPDATE_BUNDLE,
+        FROM_BUNDLE,
+        INTO,
+        TO_BUNDLE_LIST,
+        FROM_BUNDLE_LIST
+    }
+
+    /**
+     * Called after an object, or a list of objects, of a class is converted.
+     * @param clazz the class annotated with {@link BundlerClass}.
+     * @param operation the kind of conversion.
+     * @param durationNanos how long the conversion took, in nanoseconds.
+     * @param keyCount the number of keys in the Bundle that was written or read, or 0 if it
+     *                 was {@code null}.
+     */
+    void onConversion(Class<?> clazz, Operation operation, long durationNanos, int keyCount);
+
+}
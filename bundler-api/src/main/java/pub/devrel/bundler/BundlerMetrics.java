@@ -0,0 +1,257 @@
+/*
+ * Copyright 2017 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pub.devrel.bundler;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * {@link BundlerListener} that keeps statistics in memory for each class and operation: the
+ * number of conversions, their total and maximum duration, a histogram of durations and the
+ * total number of keys. Recording is lock-free, so it can be left enabled in production and
+ * read from any thread, such as to upload a {@link #dump()} to a dashboard:
+ * <pre>
+ *     BundlerMetrics metrics = new BundlerMetrics();
+ *     EasyBundler.setListener(metrics);
+ *     // ...
+ *     Log.d(TAG, metrics.dump());
+ * </pre>
+ */
+public class BundlerMetrics implements BundlerListener {
+
+    /**
+     * Number of buckets in each latency histogram. Bucket {@code i} counts durations under
+     * {@code 1024 << i} nanoseconds (about 1us, 2us, 4us and so on), and the last bucket
+     * counts every longer duration.
+     */
+    public static final int HISTOGRAM_BUCKETS = 24;
+
+    // Shift from nanoseconds to the unit of the first bucket, about a microsecond
+    private static final int BUCKET_SHIFT = 10;
+
+    private static final Operation[] OPERATIONS = Operation.values();
+
+    // Statistics for each operation of each class, indexed by ordinal
+    private final ConcurrentMap<Class<?>, Stats[]> statsByClass = new ConcurrentHashMap<>();
+
+    @Override
+    public void onConversion(Class<?> clazz, Operation operation, long durationNanos,
+                             int keyCount) {
+        Stats[] stats = statsByClass.get(clazz);
+        if (stats == null) {
+            stats = new Stats[OPERATIONS.length];
+            for (int i = 0; i < stats.length; i++) {
+                stats[i] = new Stats();
+            }
+
+            // Another thread may have added the class first, in which case use its Stats
+            Stats[] existing = statsByClass.putIfAbsent(clazz, stats);
+            if (existing != null) {
+                stats = existing;
+            }
+        }
+
+        stats[operation.ordinal()].record(durationNanos, keyCount);
+    }
+
+    /**
+     * Returns the statistics of an operation on a class, or {@code null} if no conversion of
+     * that class was recorded.
+     */
+    public Stats getStats(Class<?> clazz, Operation operation) {
+        Stats[] stats = statsByClass.get(clazz);
+        return stats != null ? stats[operation.ordinal()] : null;
+    }
+
+    /**
+     * Forget all recorded statistics.
+     */
+    public void reset() {
+        statsByClass.clear();
+    }
+
+    /**
+     * Returns a report of every recorded class and operation, one per line, with the ones that
+     * took the most time in total first. Ex:
+     * <pre>
+     *     com.foo.MyState TO_BUNDLE count=120 total=3.2ms mean=26us p90=32us max=410us keys=14.0
+     * </pre>
+     */
+    public String dump() {
+        List<Map.Entry<String, Stats>> entries = new ArrayList<>();
+        for (Map.Entry<Class<?>, Stats[]> entry : statsByClass.entrySet()) {
+            for (Operation operation : OPERATIONS) {
+                Stats stats = entry.getValue()[operation.ordinal()];
+                if (stats.getCount() > 0) {
+                    String name = entry.getKey().getName() + " " + operation;
+                    entries.add(new AbstractMap.SimpleImmutableEntry<>(name, stats));
+                }
+            }
+        }
+
+        Collections.sort(entries, new Comparator<Map.Entry<String, Stats>>() {
+            @Override
+            public int compare(Map.Entry<String, Stats> a, Map.Entry<String, Stats> b) {
+                long aNanos = a.getValue().getTotalNanos();
+                long bNanos = b.getValue().getTotalNanos();
+                return aNanos < bNanos ? 1 : (aNanos == bNanos ? 0 : -1);
+            }
+        });
+
+        StringBuilder result = new StringBuilder();
+        for (Map.Entry<String, Stats> entry : entries) {
+            result.append(entry.getKey()).append(' ').append(entry.getValue()).append('\n');
+        }
+
+        return result.toString();
+    }
+
+    /**
+     * Returns a duration in the most readable unit. Ex: 1500 --> "1.5us".
+     */
+    private static String formatNanos(long nanos) {
+        if (nanos < 1000L) {
+            return nanos + "ns";
+        } else if (nanos < 1000000L) {
+            return String.format(Locale.US, "%.1fus", nanos / 1e3);
+        } else if (nanos < 1000000000L) {
+            return String.format(Locale.US, "%.1fms", nanos / 1e6);
+        }
+
+        return String.format(Locale.US, "%.1fs", nanos / 1e9);
+    }
+
+    /**
+     * Statistics of one operation on one class. Values are read one at a time while other
+     * threads may be recording, so they are not guaranteed to be consistent with each other.
+     */
+    public static class Stats {
+
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final AtomicLong totalKeys = new AtomicLong();
+        private final AtomicLongArray histogram = new AtomicLongArray(HISTOGRAM_BUCKETS);
+
+        private void record(long durationNanos, int keyCount) {
+            count.incrementAndGet();
+            totalNanos.addAndGet(durationNanos);
+            totalKeys.addAndGet(keyCount);
+            histogram.incrementAndGet(getBucket(durationNanos));
+
+            long max = maxNanos.get();
+            while (durationNanos > max && !maxNanos.compareAndSet(max, durationNanos)) {
+                max = maxNanos.get();
+            }
+        }
+
+        /**
+         * Returns the number of conversions.
+         */
+        public long getCount() {
+            return count.get();
+        }
+
+        /**
+         * Returns the total duration of all conversions, in nanoseconds.
+         */
+        public long getTotalNanos() {
+            return totalNanos.get();
+        }
+
+        /**
+         * Returns the longest duration of a conversion, in nanoseconds.
+         */
+        public long getMaxNanos() {
+            return maxNanos.get();
+        }
+
+        /**
+         * Returns the total number of keys of all converted Bundles.
+         */
+        public long getTotalKeys() {
+            return totalKeys.get();
+        }
+
+        /**
+         * Returns a copy of the latency histogram, see {@link #HISTOGRAM_BUCKETS}.
+         */
+        public long[] getHistogram() {
+            long[] result = new long[HISTOGRAM_BUCKETS];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = histogram.get(i);
+            }
+
+            return result;
+        }
+
+        /**
+         * Returns an upper bound of a percentile of the durations, in nanoseconds: the upper
+         * bound of the histogram bucket that contains it. Ex: 0.9 for the 90th percentile.
+         */
+        public long getPercentileNanos(double percentile) {
+            long[] buckets = getHistogram();
+            long total = 0;
+            for (long bucket : buckets) {
+                total += bucket;
+            }
+
+            if (total == 0) {
+                return 0;
+            }
+
+            long rank = (long) Math.ceil(percentile * total);
+            long seen = 0;
+            for (int i = 0; i < buckets.length - 1; i++) {
+                seen += buckets[i];
+                if (seen >= rank) {
+                    return 1024L << i;
+                }
+            }
+
+            // The last bucket has no upper bound
+            return getMaxNanos();
+        }
+
+        private static int getBucket(long nanos) {
+            int bucket = 64 - Long.numberOfLeadingZeros(nanos >> BUCKET_SHIFT);
+            return Math.min(bucket, HISTOGRAM_BUCKETS - 1);
+        }
+
+        @Override
+        public String toString() {
+            long count = getCount();
+            return "count=" + count +
+                    " total=" + formatNanos(getTotalNanos()) +
+                    " mean=" + formatNanos(count > 0 ? getTotalNanos() / count : 0) +
+                    " p90=" + formatNanos(getPercentileNanos(0.9)) +
+                    " max=" + formatNanos(getMaxNanos()) +
+                    " keys=" + String.format(Locale.US, "%.1f",
+                            count > 0 ? (double) getTotalKeys() / count : 0);
+        }
+
+    }
+
+}
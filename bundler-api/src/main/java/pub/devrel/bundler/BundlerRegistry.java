@@ -0,0 +1,33 @@
+
+/*
+ * Copyright 2017 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pub.devrel.bundler;
+
+/**
+ * Lookup table from classes annotated with {@link BundlerClass} to their generated
+ * {@link Bundler}. When enabled, the annotation processor generates an implementation named
+ * {@code pub.devrel.bundler.EasyBundlerRegistry} which {@link EasyBundler} consults before
+ * falling back to reflection.
+ */
+public interface BundlerRegistry {
+
+    /**
+     * Returns the {@link Bundler} for a class, or {@code null} if the class is not known to
+     * this registry.
+     */
+    <T> Bundler<T> getBundler(Class<T> clazz);
+
+}
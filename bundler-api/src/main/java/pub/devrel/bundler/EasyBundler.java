@@ -19,9 +19,11 @@ package pub.devrel.bundler;
 import android.content.Intent;
 import android.os.Bundle;
 
-import java.lang.reflect.Method;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Main entry point for automatically bundling (and un-bundling) classes annotated with
@@ -64,7 +66,22 @@ import java.util.Map;
  */
 public class EasyBundler {
 
-    private static final Map<Class<?>, Class<?>> BUNDLER_CACHE = new HashMap<>();
+    // Name of the class generated when the processor option "easybundler.registry" is enabled
+    private static final String REGISTRY_CLASS_NAME = "pub.devrel.bundler.EasyBundlerRegistry";
+
+    private static final BundlerRegistry REGISTRY = loadRegistry();
+    // Cached in place of a Bundler for classes that do not have one, so that misses are only
+    // looked up once
+    private static final Object NO_BUNDLER = new Object();
+
+    // Values are either a Bundler or NO_BUNDLER. Safe to read and write from any thread.
+    private static final ConcurrentMap<Class<?>, Object> BUNDLER_CACHE = new ConcurrentHashMap<>();
+
+    // Intent extra keys by class, see getClassKey
+    private static final ConcurrentMap<Class<?>, String> KEY_CACHE = new ConcurrentHashMap<>();
+
+    // Notified of each conversion, or null to skip timing them
+    private static volatile BundlerListener listener;
 
     /**
      * Determines if a class can be automatically bundled by EasyBundler.
@@ -72,7 +89,33 @@ public class EasyBundler {
      * @return {@code true} if the class has a generated Bundler class, {@code false} otherwise.
      */
     public static boolean hasBundler(Class<?> clazz) {
-        return (getBundlerClass(clazz) != null);
+        return (findBundler(clazz) != null);
+    }
+
+    /**
+     * Get the generated {@link Bundler} for a class. Callers that convert the same class
+     * repeatedly can hold on to the result to skip the lookup on each call.
+     * @param clazz the {@link Class} to bundle. Should be annotated with {@link BundlerClass}.
+     * @param <T> the type of the class.
+     * @return the {@link Bundler} for the class.
+     */
+    public static <T> Bundler<T> getBundler(Class<T> clazz) {
+        Bundler<T> bundler = findBundler(clazz);
+        if (bundler == null) {
+            throw new RuntimeException("Could not find Bundler class for " + clazz);
+        }
+
+        return bundler;
+    }
+
+    /**
+     * Set a listener notified after each conversion made through this class, such as
+     * {@link BundlerMetrics}, or {@code null} to remove it. Conversions made directly through
+     * a {@link Bundler} from {@link #getBundler(Class)} or a generated class are not reported.
+     * @param listener the {@link BundlerListener}, or {@code null}.
+     */
+    public static void setListener(BundlerListener listener) {
+        EasyBundler.listener = listener;
     }
 
     /**
@@ -81,18 +124,103 @@ public class EasyBundler {
      *               {@link BundlerClass}.
      * @return a {@link Bundle} containing all of the object's fields.
      */
+    @SuppressWarnings("unchecked")
     public static Bundle toBundle(Object target) {
-        Class<?> bundlerClass = getBundlerClass(target.getClass());
-        if (bundlerClass == null) {
-            throw new RuntimeException("Could not find Bundler class for " + target.getClass());
+        Bundler<Object> bundler = (Bundler<Object>) getBundler(target.getClass());
+        return toBundle(bundler, target);
+    }
+
+    /**
+     * Convert an object to a {@link Bundle}, unless the Bundle would be too large to pass
+     * safely to another process. The size is estimated before the Bundle is created, see
+     * {@link #estimateSize(Object)}. The binder transaction buffer is 1MB and shared by every
+     * transaction in progress in the process, so limits should be well below that.
+     * @param target object to bundle. Should be an instance of a class annotated with
+     *               {@link BundlerClass}.
+     * @param maxSize the largest allowed estimated size, in bytes.
+     * @return a {@link Bundle} containing all of the object's fields.
+     * @throws BundleTooLargeException if the estimated size is over {@code maxSize}. It names
+     *                                 the largest fields.
+     */
+    @SuppressWarnings("unchecked")
+    public static Bundle toBundle(Object target, int maxSize) {
+        Bundler<Object> bundler = (Bundler<Object>) getBundler(target.getClass());
+
+        int size = bundler.estimateSize(target);
+        if (size > maxSize) {
+            throw new BundleTooLargeException(target.getClass(), size, maxSize,
+                    bundler.estimateFieldSizes(target));
         }
 
-        try {
-            Method method = bundlerClass.getMethod("toBundle", target.getClass());
-            return (Bundle) method.invoke(null, target);
-        } catch (Exception e) {
-            throw new RuntimeException("Could not invoke toBundle on class " + bundlerClass, e);
+        return toBundle(bundler, target);
+    }
+
+    private static Bundle toBundle(Bundler<Object> bundler, Object target) {
+        BundlerListener listener = EasyBundler.listener;
+        if (listener == null) {
+            return bundler.toBundle(target);
+        }
+
+        long start = System.nanoTime();
+        Bundle result = bundler.toBundle(target);
+        report(listener, target.getClass(), BundlerListener.Operation.TO_BUNDLE, start, result);
+        return result;
+    }
+
+    /**
+     * Estimate the size in bytes of the {@link Bundle} for an object once it is parceled, such
+     * as when it is passed to another process in an Intent. This is much cheaper than creating
+     * and parceling the Bundle, since collections and maps are measured without being
+     * converted, except for Parcelable and Serializable fields which are parceled or
+     * serialized to be measured.
+     * @param target object to measure. Should be an instance of a class annotated with
+     *               {@link BundlerClass}.
+     * @return the estimated size, in bytes.
+     */
+    @SuppressWarnings("unchecked")
+    public static int estimateSize(Object target) {
+        Bundler<Object> bundler = (Bundler<Object>) getBundler(target.getClass());
+        return bundler.estimateSize(target);
+    }
+
+    /**
+     * Estimate the size in bytes of each field of an object once bundled and parceled, to find
+     * which state makes a Bundle large.
+     * @param target object to measure. Should be an instance of a class annotated with
+     *               {@link BundlerClass}.
+     * @return the estimated size of each field including its key, by field name in
+     *         declaration order.
+     */
+    @SuppressWarnings("unchecked")
+    public static Map<String, Integer> estimateFieldSizes(Object target) {
+        Bundler<Object> bundler = (Bundler<Object>) getBundler(target.getClass());
+        return bundler.estimateFieldSizes(target);
+    }
+
+    /**
+     * Write an object into an existing {@link Bundle}, only putting the fields whose values
+     * changed since the Bundle was written. This avoids allocating a new Bundle (and boxing
+     * unchanged primitives) when the same state is saved repeatedly.
+     * @param target object to bundle. Should be an instance of a class annotated with
+     *               {@link BundlerClass}.
+     * @param bundle a {@link Bundle} produced by {@link #toBundle(Object)} for the same class,
+     *               or {@code null} to create a new one.
+     * @return the updated {@link Bundle}.
+     */
+    @SuppressWarnings("unchecked")
+    public static Bundle updateBundle(Object target, Bundle bundle) {
+        Bundler<Object> bundler = (Bundler<Object>) getBundler(target.getClass());
+
+        BundlerListener listener = EasyBundler.listener;
+        if (listener == null) {
+            return bundler.updateBundle(target, bundle);
         }
+
+        long start = System.nanoTime();
+        Bundle result = bundler.updateBundle(target, bundle);
+        report(listener, target.getClass(), BundlerListener.Operation.UPDATE_BUNDLE, start,
+                result);
+        return result;
     }
 
     /**
@@ -102,19 +230,103 @@ public class EasyBundler {
      * @param <T> the type of the result object, should be same type as the Class parameter.
      * @return an object instance of type {@code T}.
      */
-    @SuppressWarnings("unchecked")
     public static <T> T fromBundle(Bundle bundle, Class<T> clazz) {
-        Class<?> bundlerClass = getBundlerClass(clazz);
-        if (bundlerClass == null) {
-            throw new RuntimeException("Could not find Bundler class for " + clazz);
+        Bundler<T> bundler = getBundler(clazz);
+
+        BundlerListener listener = EasyBundler.listener;
+        if (listener == null) {
+            return bundler.fromBundle(bundle);
         }
 
-        try {
-            Method method = bundlerClass.getMethod("fromBundle", Bundle.class);
-            return (T) method.invoke(null, bundle);
-        } catch (Exception e) {
-            throw new RuntimeException("Could not invoke fromBundle on class " + bundlerClass, e);
+        long start = System.nanoTime();
+        T result = bundler.fromBundle(bundle);
+        report(listener, clazz, BundlerListener.Operation.FROM_BUNDLE, start, bundle);
+        return result;
+    }
+
+    /**
+     * Copy the values from a {@link Bundle} into an existing object.
+     * @param bundle the {@link Bundle}, should be produced be {@link #toBundle(Object)}.
+     * @param target the object to populate. Should be an instance of a class annotated with
+     *               {@link BundlerClass}.
+     * @param <T> the type of the target object.
+     * @return the target object.
+     */
+    public static <T> T into(Bundle bundle, T target) {
+        return into(bundle, target, false);
+    }
+
+    /**
+     * Copy the values from a {@link Bundle} into an existing object, optionally leaving the
+     * fields that are missing from the Bundle untouched. No new object is allocated, so
+     * state objects can be reused across restores.
+     * @param bundle the {@link Bundle}, should be produced be {@link #toBundle(Object)}.
+     * @param target the object to populate. Should be an instance of a class annotated with
+     *               {@link BundlerClass}.
+     * @param skipMissing {@code true} to keep the current value of fields whose keys are not in
+     *                    the Bundle, {@code false} to reset them like
+     *                    {@link #into(Bundle, Object)}.
+     * @param <T> the type of the target object.
+     * @return the target object.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T into(Bundle bundle, T target, boolean skipMissing) {
+        Bundler<T> bundler = (Bundler<T>) getBundler(target.getClass());
+
+        BundlerListener listener = EasyBundler.listener;
+        if (listener == null) {
+            return bundler.into(bundle, target, skipMissing);
+        }
+
+        long start = System.nanoTime();
+        T result = bundler.into(bundle, target, skipMissing);
+        report(listener, target.getClass(), BundlerListener.Operation.INTO, start, bundle);
+        return result;
+    }
+
+    /**
+     * Convert a list of objects to a single {@link Bundle}. The values of each field are stored
+     * together in one array where possible, which is much smaller and faster than bundling
+     * each object separately.
+     * @param objects the objects to bundle, may contain {@code null} elements.
+     * @param clazz the {@link Class} of the objects. Should be annotated with
+     *              {@link BundlerClass}.
+     * @param <T> the type of the objects.
+     * @return a {@link Bundle} containing all of the objects.
+     */
+    public static <T> Bundle toBundleList(List<T> objects, Class<T> clazz) {
+        Bundler<T> bundler = getBundler(clazz);
+
+        BundlerListener listener = EasyBundler.listener;
+        if (listener == null) {
+            return bundler.toColumns(objects);
         }
+
+        long start = System.nanoTime();
+        Bundle result = bundler.toColumns(objects);
+        report(listener, clazz, BundlerListener.Operation.TO_BUNDLE_LIST, start, result);
+        return result;
+    }
+
+    /**
+     * Convert a {@link Bundle} produced by {@link #toBundleList(List, Class)} back to a list.
+     * @param bundle the {@link Bundle} to convert.
+     * @param clazz the {@link Class} of the objects in the list.
+     * @param <T> the type of the objects.
+     * @return a new list of objects.
+     */
+    public static <T> ArrayList<T> fromBundleList(Bundle bundle, Class<T> clazz) {
+        Bundler<T> bundler = getBundler(clazz);
+
+        BundlerListener listener = EasyBundler.listener;
+        if (listener == null) {
+            return bundler.fromColumns(bundle);
+        }
+
+        long start = System.nanoTime();
+        ArrayList<T> result = bundler.fromColumns(bundle);
+        report(listener, clazz, BundlerListener.Operation.FROM_BUNDLE_LIST, start, bundle);
+        return result;
     }
 
     /**
@@ -128,6 +340,20 @@ public class EasyBundler {
         return intent.putExtra(getClassKey(target.getClass()), bundle);
     }
 
+    /**
+     * Like {@link #putExtra(Intent, Object)}, but fails before modifying the Intent if the
+     * Bundle would be too large, see {@link #toBundle(Object, int)}.
+     * @param intent the {@link Intent} to pack the object into.
+     * @param target the object to pack into the intent.
+     * @param maxSize the largest allowed estimated size of the Bundle, in bytes.
+     * @return the modified {@link Intent}.
+     * @throws BundleTooLargeException if the estimated size is over {@code maxSize}.
+     */
+    public static Intent putExtra(Intent intent, Object target, int maxSize) {
+        Bundle bundle = toBundle(target, maxSize);
+        return intent.putExtra(getClassKey(target.getClass()), bundle);
+    }
+
     /**
      * Retrieve an object that was packed into an {@link Intent} via
      * {@link #putExtra(Intent, Object)}.
@@ -146,23 +372,72 @@ public class EasyBundler {
     }
 
     /**
-     * Find the Bundler class for a given {@link Class}, or {@code null} if none exists.
+     * Notify a listener of a conversion that started at {@code start}, as given by
+     * {@link System#nanoTime()}, and wrote or read {@code bundle}.
+     */
+    private static void report(BundlerListener listener, Class<?> clazz,
+                               BundlerListener.Operation operation, long start, Bundle bundle) {
+        long duration = System.nanoTime() - start;
+        listener.onConversion(clazz, operation, duration, bundle != null ? bundle.size() : 0);
+    }
+
+    /**
+     * Find the {@link Bundler} for a given {@link Class}, or {@code null} if none exists.
      */
-    private static Class<?> getBundlerClass(Class<?> clazz) {
-        // Check cache for hit
-        Class<?> fromMap = BUNDLER_CACHE.get(clazz);
+    @SuppressWarnings("unchecked")
+    private static <T> Bundler<T> findBundler(Class<T> clazz) {
+        // Check cache for hit (or cached miss)
+        Object fromMap = BUNDLER_CACHE.get(clazz);
         if (fromMap != null) {
-            return fromMap;
+            return fromMap == NO_BUNDLER ? null : (Bundler<T>) fromMap;
         }
 
+        // Prefer the generated registry, which does not need reflection
+        Bundler<T> bundler = null;
+        if (REGISTRY != null) {
+            bundler = REGISTRY.getBundler(clazz);
+        }
+
+        // Fall back to looking up the generated class by name, for classes that were
+        // compiled without the registry
+        if (bundler == null) {
+            bundler = findBundlerByName(clazz);
+        }
+
+        // Cache and return. Concurrent lookups for the same class resolve to the same
+        // instance, so it does not matter which thread's result is stored.
+        BUNDLER_CACHE.put(clazz, bundler != null ? bundler : NO_BUNDLER);
+        return bundler;
+    }
+
+    /**
+     * Reflectively load the {@code INSTANCE} field of the generated Bundler class for a given
+     * {@link Class}, or {@code null} if none exists.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> Bundler<T> findBundlerByName(Class<T> clazz) {
         String bundlerClassName = clazz.getName() + "Bundler";
         try {
-            // Cache and return
             Class<?> bundlerClass = Class.forName(bundlerClassName);
-            BUNDLER_CACHE.put(clazz, bundlerClass);
-            return bundlerClass;
+            return (Bundler<T>) bundlerClass.getField("INSTANCE").get(null);
+        } catch (ClassNotFoundException e) {
+            return null;
+        } catch (Exception e) {
+            throw new RuntimeException("Could not load INSTANCE from class " + bundlerClassName, e);
+        }
+    }
+
+    /**
+     * Load the generated {@link BundlerRegistry}, or {@code null} if it was not generated.
+     */
+    private static BundlerRegistry loadRegistry() {
+        try {
+            Class<?> registryClass = Class.forName(REGISTRY_CLASS_NAME);
+            return (BundlerRegistry) registryClass.newInstance();
         } catch (ClassNotFoundException e) {
             return null;
+        } catch (Exception e) {
+            throw new RuntimeException("Could not instantiate " + REGISTRY_CLASS_NAME, e);
         }
     }
 
@@ -170,7 +445,13 @@ public class EasyBundler {
      * Get a unique key for putting a class into a Bundle/Intent.
      */
     private static String getClassKey(Class<?> clazz) {
-        return "KEY_" + clazz.getCanonicalName() + "_bundle";
+        String key = KEY_CACHE.get(clazz);
+        if (key == null) {
+            key = "KEY_" + clazz.getCanonicalName() + "_bundle";
+            KEY_CACHE.put(clazz, key);
+        }
+
+        return key;
     }
 
 }
@@ -16,6 +16,12 @@
 package pub.devrel.bundler;
 
 import android.os.Bundle;
+import android.os.Parcel;
+import android.util.LongSparseArray;
+import android.util.SparseArray;
+import android.util.SparseBooleanArray;
+import android.util.SparseIntArray;
+import android.util.SparseLongArray;
 
 import junit.framework.AssertionFailedError;
 
@@ -25,13 +31,67 @@ import org.junit.runner.RunWith;
 import org.robolectric.RobolectricTestRunner;
 import org.unitils.reflectionassert.ReflectionAssert;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import pub.devrel.bundler.objects.AllPrivateFieldsObject;
 import pub.devrel.bundler.objects.AllPublicFieldsObject;
+import pub.devrel.bundler.objects.AllPublicFieldsObjectBundler;
+import pub.devrel.bundler.objects.Circle;
+import pub.devrel.bundler.objects.CompactKeysObject;
+import pub.devrel.bundler.objects.CompactKeysObjectBundler;
+import pub.devrel.bundler.objects.EnumObject;
+import pub.devrel.bundler.objects.EnumObjectBundler;
+import pub.devrel.bundler.objects.EnumObjectParcel;
+import pub.devrel.bundler.objects.FactoryObject;
+import pub.devrel.bundler.objects.GenericAccessorsObject;
+import pub.devrel.bundler.objects.GenericAccessorsObjectBundler;
+import pub.devrel.bundler.objects.ImmutableObject;
+import pub.devrel.bundler.objects.ImmutableObjectParcel;
+import pub.devrel.bundler.objects.ListObject;
+import pub.devrel.bundler.objects.MapObject;
+import pub.devrel.bundler.objects.MapObjectBundler;
+import pub.devrel.bundler.objects.MapObjectParcel;
+import pub.devrel.bundler.objects.NestedObject;
+import pub.devrel.bundler.objects.NestedObjectBundleView;
+import pub.devrel.bundler.objects.NestedObjectBundler;
+import pub.devrel.bundler.objects.OrdinalEnumObject;
+import pub.devrel.bundler.objects.OrdinalEnumObjectBundler;
+import pub.devrel.bundler.objects.ParcelableObject;
+import pub.devrel.bundler.objects.ParcelableObjectBundler;
+import pub.devrel.bundler.objects.ParcelableObjectParcel;
+import pub.devrel.bundler.objects.PrimitiveCollectionsObject;
+import pub.devrel.bundler.objects.PrimitiveCollectionsObjectBundler;
+import pub.devrel.bundler.objects.PrimitiveCollectionsObjectParcel;
 import pub.devrel.bundler.objects.PrivateFieldsNoGetterObject;
 import pub.devrel.bundler.objects.PrivateFieldsNoSetterObject;
+import pub.devrel.bundler.objects.Shape;
+import pub.devrel.bundler.objects.SparseArrayObject;
+import pub.devrel.bundler.objects.SparseArrayObjectBundler;
+import pub.devrel.bundler.objects.SparseArrayObjectParcel;
+import pub.devrel.bundler.objects.ViewObject;
+import pub.devrel.bundler.objects.ViewObjectBundleView;
 
 import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
 
 /**
  * Tests for {@link EasyBundler} and related classes.
@@ -39,6 +99,42 @@ import static junit.framework.Assert.assertFalse;
 @RunWith(RobolectricTestRunner.class)
 public class EasyBundlerTest {
 
+    @Test
+    public void testHasBundler() {
+        assertTrue(EasyBundler.hasBundler(AllPublicFieldsObject.class));
+        assertFalse(EasyBundler.hasBundler(String.class));
+
+        // Cached results should be the same
+        assertTrue(EasyBundler.hasBundler(AllPublicFieldsObject.class));
+        assertFalse(EasyBundler.hasBundler(String.class));
+    }
+
+    @Test
+    public void testConcurrentBundling() throws Exception {
+        final AllPublicFieldsObject obj = new AllPublicFieldsObject();
+        obj.publicString = "Hello";
+        obj.publicInt = 123;
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<AllPublicFieldsObject>> results = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                results.add(executor.submit(new Callable<AllPublicFieldsObject>() {
+                    @Override
+                    public AllPublicFieldsObject call() {
+                        return bundleAndUnbundle(obj);
+                    }
+                }));
+            }
+
+            for (Future<AllPublicFieldsObject> result : results) {
+                ReflectionAssert.assertReflectionEquals(obj, result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
     @Test
     public void testAllPublicFields() {
         AllPublicFieldsObject obj = new AllPublicFieldsObject();
@@ -59,6 +155,750 @@ public class EasyBundlerTest {
         checkSurvivesBundle(obj);
     }
 
+    @Test
+    public void testTypedBundler() {
+        AllPublicFieldsObject obj1 = new AllPublicFieldsObject();
+        obj1.publicString = "Hello";
+        obj1.publicInt = 123;
+
+        Bundler<AllPublicFieldsObject> bundler = EasyBundler.getBundler(AllPublicFieldsObject.class);
+        AllPublicFieldsObject obj2 = bundler.fromBundle(bundler.toBundle(obj1));
+
+        ReflectionAssert.assertReflectionEquals(obj1, obj2);
+    }
+
+    @Test
+    public void testInto() {
+        AllPublicFieldsObject obj1 = new AllPublicFieldsObject();
+        obj1.publicString = "Hello";
+        obj1.publicInt = 123;
+
+        AllPublicFieldsObject obj2 = new AllPublicFieldsObject();
+        AllPublicFieldsObject result = EasyBundler.into(EasyBundler.toBundle(obj1), obj2);
+
+        // The existing instance should have been populated
+        assertSame(obj2, result);
+        ReflectionAssert.assertReflectionEquals(obj1, obj2);
+    }
+
+    @Test
+    public void testIntoSkipMissing() {
+        AllPublicFieldsObject obj = new AllPublicFieldsObject();
+        obj.publicString = "Hello";
+        obj.publicInt = 123;
+
+        Bundle bundle = new Bundle();
+        bundle.putString(AllPublicFieldsObjectBundler.KEY_PUBLIC_STRING, "World");
+
+        // Only the field present in the Bundle should change
+        EasyBundler.into(bundle, obj, true);
+        assertEquals("World", obj.publicString);
+        assertEquals(123, obj.publicInt);
+
+        // Without skipping, missing fields are reset
+        EasyBundler.into(bundle, obj, false);
+        assertEquals("World", obj.publicString);
+        assertEquals(0, obj.publicInt);
+    }
+
+    @Test
+    public void testKeyConstants() {
+        AllPublicFieldsObject obj = new AllPublicFieldsObject();
+        obj.publicString = "Hello";
+
+        Bundle bundle = EasyBundler.toBundle(obj);
+        assertEquals("Hello", bundle.getString(AllPublicFieldsObjectBundler.KEY_PUBLIC_STRING));
+    }
+
+    @Test
+    public void testCompactKeys() {
+        CompactKeysObject obj = new CompactKeysObject();
+        obj.publicString = "Hello";
+        obj.publicLong = 123L;
+        obj.public_string = "World";
+
+        // Keys should be the field names
+        Bundle bundle = EasyBundler.toBundle(obj);
+        assertEquals("publicString", CompactKeysObjectBundler.KEY_PUBLIC_STRING);
+        assertEquals("Hello", bundle.getString("publicString"));
+        assertEquals(123L, bundle.getLong("publicLong"));
+
+        // Key constants should be unique even if the names of the fields are alike
+        assertEquals("public_string", CompactKeysObjectBundler.KEY_PUBLIC_STRING_2);
+        assertEquals("World", bundle.getString("public_string"));
+
+        checkSurvivesBundle(obj);
+    }
+
+    @Test
+    public void testNestedObjects() {
+        NestedObject obj = new NestedObject();
+        obj.publicString = "Hello";
+        obj.publicChild = new AllPublicFieldsObject();
+        obj.publicChild.publicInt = 123;
+        obj.setPrivateChild(new AllPrivateFieldsObject());
+        obj.getPrivateChild().setPrivateFloat(42f);
+
+        // Children should be stored as nested Bundles
+        Bundle bundle = EasyBundler.toBundle(obj);
+        assertNotNull(bundle.getBundle(NestedObjectBundler.KEY_PUBLIC_CHILD));
+
+        checkSurvivesBundle(obj);
+    }
+
+    @Test
+    public void testNullNestedObject() {
+        NestedObject obj = new NestedObject();
+        obj.publicString = "Hello";
+
+        checkSurvivesBundle(obj);
+    }
+
+    @Test
+    public void testBundleView() {
+        NestedObject obj = new NestedObject();
+        obj.publicString = "Hello";
+        obj.publicChild = new AllPublicFieldsObject();
+        obj.publicChild.publicInt = 123;
+
+        Bundle bundle = EasyBundler.toBundle(obj);
+        NestedObjectBundleView view = new NestedObjectBundleView(bundle);
+        assertSame(bundle, view.asBundle());
+        assertEquals("Hello", view.getPublicString());
+        assertNull(view.getPrivateChild());
+
+        // Nested objects are read once and cached
+        AllPublicFieldsObject child = view.getPublicChild();
+        assertEquals(123, child.publicInt);
+        assertSame(child, view.getPublicChild());
+
+        ReflectionAssert.assertReflectionEquals(obj, view.toObject());
+    }
+
+    @Test
+    public void testBundleViewConversions() {
+        ViewObject obj = new ViewObject();
+        obj.bundle = new AllPublicFieldsObject();
+        obj.bundle.publicString = "Nested";
+        obj.mode = EnumObject.Mode.AUTO;
+        obj.numbers = Arrays.asList(1, 2, 3);
+
+        Bundle bundle = EasyBundler.toBundle(obj);
+        ViewObjectBundleView view = new ViewObjectBundleView(bundle);
+
+        // A field named "bundle" does not hide the Bundle wrapped by the view
+        assertSame(bundle, view.asBundle());
+        assertEquals("Nested", view.getBundle().publicString);
+
+        // Enums and collections are converted once and cached
+        assertEquals(EnumObject.Mode.AUTO, view.getMode());
+        List<Integer> numbers = view.getNumbers();
+        assertEquals(obj.numbers, numbers);
+        assertSame(numbers, view.getNumbers());
+        assertSame(view.getBundle(), view.getBundle());
+
+        ReflectionAssert.assertReflectionEquals(obj, view.toObject());
+    }
+
+    @Test
+    public void testEstimateSize() {
+        NestedObject obj = new NestedObject();
+        obj.publicString = "Hello";
+        obj.publicChild = new AllPublicFieldsObject();
+        obj.publicChild.publicDoubleArray = new double[1000];
+
+        // Estimated without creating the Bundle, close to its size once parceled
+        int size = EasyBundler.estimateSize(obj);
+        assertEstimate(getParceledSize(EasyBundler.toBundle(obj)), size);
+        assertTrue(size > 8000);
+
+        Map<String, Integer> fieldSizes = EasyBundler.estimateFieldSizes(obj);
+        assertEquals(Arrays.asList("publicString", "publicChild", "privateChild"),
+                new ArrayList<>(fieldSizes.keySet()));
+        assertTrue(fieldSizes.get("publicChild") > 8000);
+
+        // Under the limit the Bundle is created as usual, over it the largest field is named
+        assertNotNull(EasyBundler.toBundle(obj, size));
+        try {
+            EasyBundler.toBundle(obj, 1000);
+            fail("Expected BundleTooLargeException");
+        } catch (BundleTooLargeException e) {
+            assertEquals(size, e.getEstimatedSize());
+            assertTrue(e.getMessage().contains("Largest fields: publicChild="));
+        }
+    }
+
+    @Test
+    public void testEstimateCollectionSizes() {
+        // Collections of boxed primitives, with and without a null element
+        PrimitiveCollectionsObject primitives = new PrimitiveCollectionsObject();
+        primitives.publicIntArrayList = new ArrayList<>();
+        primitives.publicLongSet = new LinkedHashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            primitives.publicIntArrayList.add(i);
+            primitives.publicLongSet.add((long) i);
+        }
+        primitives.publicLongSet.add(null);
+        assertEstimate(getParceledSize(EasyBundler.toBundle(primitives)),
+                EasyBundler.estimateSize(primitives));
+
+        // Maps, including one of BundlerClass values stored as columns
+        MapObject maps = new MapObject();
+        maps.publicStringIntMap = new HashMap<>();
+        maps.publicIntStringMap = new HashMap<>();
+        maps.publicChildren = new LinkedHashMap<>();
+        for (int i = 0; i < 300; i++) {
+            maps.publicStringIntMap.put("key" + i, i);
+            maps.publicIntStringMap.put(i, "value" + i);
+            maps.publicChildren.put("child" + i, createChild(i));
+        }
+        maps.publicStringIntMap.put("null", null);
+        assertEstimate(getParceledSize(EasyBundler.toBundle(maps)),
+                EasyBundler.estimateSize(maps));
+
+        // Lists of BundlerClass objects, with a null element
+        ListObject lists = new ListObject();
+        lists.publicChildren = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            lists.publicChildren.add(createChild(i));
+        }
+        lists.publicChildren.add(null);
+        assertEstimate(getParceledSize(EasyBundler.toBundle(lists)),
+                EasyBundler.estimateSize(lists));
+    }
+
+    @Test
+    public void testMetrics() {
+        BundlerMetrics metrics = new BundlerMetrics();
+        EasyBundler.setListener(metrics);
+        try {
+            AllPublicFieldsObject obj = new AllPublicFieldsObject();
+            obj.publicString = "Hello";
+
+            Bundle bundle = EasyBundler.toBundle(obj);
+            EasyBundler.fromBundle(bundle, AllPublicFieldsObject.class);
+            EasyBundler.fromBundle(bundle, AllPublicFieldsObject.class);
+
+            BundlerMetrics.Stats toBundle = metrics.getStats(
+                    AllPublicFieldsObject.class, BundlerListener.Operation.TO_BUNDLE);
+            assertEquals(1, toBundle.getCount());
+            assertEquals(3, toBundle.getTotalKeys());
+            assertTrue(toBundle.getMaxNanos() > 0);
+
+            BundlerMetrics.Stats fromBundle = metrics.getStats(
+                    AllPublicFieldsObject.class, BundlerListener.Operation.FROM_BUNDLE);
+            assertEquals(2, fromBundle.getCount());
+
+            // Every conversion falls in one bucket of the histogram
+            long histogramCount = 0;
+            for (long bucket : fromBundle.getHistogram()) {
+                histogramCount += bucket;
+            }
+            assertEquals(2, histogramCount);
+
+            // Of two conversions, the 90th percentile is in the bucket of the slowest
+            assertTrue(fromBundle.getPercentileNanos(0.9) >= fromBundle.getMaxNanos());
+
+            assertNull(metrics.getStats(NestedObject.class, BundlerListener.Operation.TO_BUNDLE));
+
+            assertTrue(metrics.dump().contains(AllPublicFieldsObject.class.getName()
+                    + " FROM_BUNDLE count=2"));
+        } finally {
+            EasyBundler.setListener(null);
+        }
+
+        // Nothing is recorded without a listener
+        EasyBundler.toBundle(new AllPublicFieldsObject());
+        assertEquals(1, metrics.getStats(AllPublicFieldsObject.class,
+                BundlerListener.Operation.TO_BUNDLE).getCount());
+    }
+
+    @Test
+    public void testUpdateBundle() {
+        NestedObject obj = new NestedObject();
+        obj.publicString = "Hello";
+        obj.publicChild = new AllPublicFieldsObject();
+        obj.publicChild.publicInt = 123;
+        obj.publicChild.publicDoubleArray = new double[]{1, 2, 3};
+
+        Bundle bundle = EasyBundler.toBundle(obj);
+        Bundle childBundle = bundle.getBundle(NestedObjectBundler.KEY_PUBLIC_CHILD);
+
+        // Change some fields, including one of a nested object
+        obj.publicString = "World";
+        obj.publicChild.publicInt = 456;
+        obj.setPrivateChild(new AllPrivateFieldsObject());
+        obj.getPrivateChild().setPrivateFloat(42f);
+
+        // The existing Bundles should be updated in place
+        assertSame(bundle, EasyBundler.updateBundle(obj, bundle));
+        assertSame(childBundle, bundle.getBundle(NestedObjectBundler.KEY_PUBLIC_CHILD));
+        assertSame(obj.publicChild.publicDoubleArray,
+                childBundle.getDoubleArray(AllPublicFieldsObjectBundler.KEY_PUBLIC_DOUBLE_ARRAY));
+
+        NestedObject restored = EasyBundler.fromBundle(bundle, NestedObject.class);
+        ReflectionAssert.assertReflectionEquals(obj, restored);
+
+        // Without changes, every entry keeps its instance, including the nested Bundles that
+        // toBundle would have created again
+        Map<String, Object> entries = new HashMap<>();
+        for (String key : bundle.keySet()) {
+            entries.put(key, bundle.get(key));
+        }
+        EasyBundler.updateBundle(obj, bundle);
+        assertEquals(entries.keySet(), bundle.keySet());
+        for (String key : entries.keySet()) {
+            assertSame(key, entries.get(key), bundle.get(key));
+        }
+
+        // Without an existing Bundle, a new one is created
+        Bundle newBundle = EasyBundler.updateBundle(obj, null);
+        ReflectionAssert.assertReflectionEquals(
+                obj, EasyBundler.fromBundle(newBundle, NestedObject.class));
+    }
+
+    @Test
+    public void testBundleList() {
+        List<AllPublicFieldsObject> objects = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            AllPublicFieldsObject obj = new AllPublicFieldsObject();
+            obj.publicString = "Hello " + i;
+            obj.publicInt = i;
+            obj.publicDoubleArray = new double[]{i};
+            objects.add(obj);
+        }
+        objects.add(1, null);
+
+        // Fields should be stored in one array each
+        Bundle bundle = EasyBundler.toBundleList(objects, AllPublicFieldsObject.class);
+        assertEquals(4, bundle.getIntArray(AllPublicFieldsObjectBundler.KEY_PUBLIC_INT).length);
+
+        List<AllPublicFieldsObject> restored =
+                EasyBundler.fromBundleList(bundle, AllPublicFieldsObject.class);
+        ReflectionAssert.assertReflectionEquals(objects, restored);
+    }
+
+    @Test
+    public void testBundleListWithConstructor() {
+        List<ImmutableObject> objects = Arrays.asList(
+                new ImmutableObject("Hello", 1), new ImmutableObject("World", 2));
+
+        Bundle bundle = EasyBundler.toBundleList(objects, ImmutableObject.class);
+        ReflectionAssert.assertReflectionEquals(
+                objects, EasyBundler.fromBundleList(bundle, ImmutableObject.class));
+    }
+
+    @Test
+    public void testListFields() {
+        AllPublicFieldsObject child = new AllPublicFieldsObject();
+        child.publicString = "Child";
+
+        NestedObject nested = new NestedObject();
+        nested.publicString = "Nested";
+        nested.publicChild = child;
+
+        ListObject obj = new ListObject();
+        obj.publicChildren = Arrays.asList(child, null);
+        obj.setPrivateChildren(new ArrayList<>(Collections.singletonList(nested)));
+
+        checkSurvivesBundle(obj);
+    }
+
+    @Test
+    public void testPrimitiveCollections() {
+        PrimitiveCollectionsObject obj1 = new PrimitiveCollectionsObject();
+        obj1.publicIntList = Arrays.asList(1, 2, 3);
+        obj1.publicIntArrayList = new ArrayList<>(Arrays.asList(4, 5));
+        obj1.publicLongList = Collections.singletonList(6L);
+        obj1.publicDoubleCollection = Arrays.asList(7.5, 8.5);
+        obj1.publicFloatList = Collections.emptyList();
+        obj1.publicBooleanList = Arrays.asList(true, false);
+        obj1.publicByteList = Arrays.asList((byte) 9);
+        obj1.publicShortList = Arrays.asList((short) 10, (short) 11);
+        obj1.publicLongSet = new HashSet<>(Arrays.asList(12L, 13L));
+        obj1.setPrivateCharSet(new LinkedHashSet<>(Arrays.asList('a', 'b')));
+
+        // Collections are stored as primitive arrays, and rebuilt with the same values
+        Bundle bundle = PrimitiveCollectionsObjectBundler.toBundle(obj1);
+        assertNotNull(bundle.getIntArray(PrimitiveCollectionsObjectBundler.KEY_PUBLIC_INT_LIST));
+        assertNotNull(bundle.getLongArray(PrimitiveCollectionsObjectBundler.KEY_PUBLIC_LONG_SET));
+
+        PrimitiveCollectionsObject obj2 = PrimitiveCollectionsObjectBundler.fromBundle(bundle);
+        assertEquals(obj1.publicIntList, obj2.publicIntList);
+        assertEquals(obj1.publicIntArrayList, obj2.publicIntArrayList);
+        assertEquals(obj1.publicLongList, obj2.publicLongList);
+        assertEquals(new ArrayList<>(obj1.publicDoubleCollection),
+                new ArrayList<>(obj2.publicDoubleCollection));
+        assertEquals(obj1.publicFloatList, obj2.publicFloatList);
+        assertEquals(obj1.publicBooleanList, obj2.publicBooleanList);
+        assertEquals(obj1.publicByteList, obj2.publicByteList);
+        assertEquals(obj1.publicShortList, obj2.publicShortList);
+        assertEquals(obj1.publicLongSet, obj2.publicLongSet);
+        assertEquals(new ArrayList<>(obj1.getPrivateCharSet()),
+                new ArrayList<>(obj2.getPrivateCharSet()));
+
+        // Null collections stay null, also through the Parcelable wrapper
+        PrimitiveCollectionsObject empty = new PrimitiveCollectionsObject();
+        Parcel parcel = Parcel.obtain();
+        try {
+            new PrimitiveCollectionsObjectParcel(obj1).writeToParcel(parcel, 0);
+            new PrimitiveCollectionsObjectParcel(empty).writeToParcel(parcel, 0);
+            parcel.setDataPosition(0);
+
+            PrimitiveCollectionsObject obj3 =
+                    PrimitiveCollectionsObjectParcel.CREATOR.createFromParcel(parcel).get();
+            assertEquals(obj1.publicShortList, obj3.publicShortList);
+            assertEquals(obj1.publicLongSet, obj3.publicLongSet);
+
+            ReflectionAssert.assertReflectionEquals(empty,
+                    PrimitiveCollectionsObjectParcel.CREATOR.createFromParcel(parcel).get());
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    @Test
+    public void testPrimitiveCollectionsWithNulls() {
+        PrimitiveCollectionsObject obj1 = new PrimitiveCollectionsObject();
+        obj1.publicIntArrayList = new ArrayList<>(Arrays.asList(1, null, 3));
+        obj1.publicLongSet = new LinkedHashSet<>(Arrays.asList(4L, null));
+
+        // Null elements can not be stored in a primitive array, so the boxed values are kept
+        Bundle bundle = PrimitiveCollectionsObjectBundler.toBundle(obj1);
+        assertTrue(bundle.get(PrimitiveCollectionsObjectBundler.KEY_PUBLIC_INT_ARRAY_LIST)
+                instanceof List);
+
+        PrimitiveCollectionsObject obj2 = PrimitiveCollectionsObjectBundler.fromBundle(bundle);
+        assertEquals(obj1.publicIntArrayList, obj2.publicIntArrayList);
+        assertEquals(obj1.publicLongSet, obj2.publicLongSet);
+
+        Parcel parcel = Parcel.obtain();
+        try {
+            new PrimitiveCollectionsObjectParcel(obj1).writeToParcel(parcel, 0);
+            parcel.setDataPosition(0);
+
+            PrimitiveCollectionsObject obj3 =
+                    PrimitiveCollectionsObjectParcel.CREATOR.createFromParcel(parcel).get();
+            assertEquals(obj1.publicIntArrayList, obj3.publicIntArrayList);
+            assertEquals(obj1.publicLongSet, obj3.publicLongSet);
+        } finally {
+            parcel.recycle();
+        }
+
+        // Bundles written with putIntegerArrayList, before arrays were used, are still read
+        Bundle old = new Bundle();
+        old.putIntegerArrayList(PrimitiveCollectionsObjectBundler.KEY_PUBLIC_INT_ARRAY_LIST,
+                obj1.publicIntArrayList);
+        assertEquals(obj1.publicIntArrayList,
+                PrimitiveCollectionsObjectBundler.fromBundle(old).publicIntArrayList);
+    }
+
+    @Test
+    public void testSparseArrays() {
+        SparseArrayObject obj1 = new SparseArrayObject();
+        obj1.publicSparseInts = new SparseIntArray();
+        obj1.publicSparseInts.put(3, 30);
+        obj1.publicSparseInts.put(1, 10);
+        obj1.publicSparseBooleans = new SparseBooleanArray();
+        obj1.publicSparseBooleans.put(2, true);
+        obj1.publicSparseLongs = new SparseLongArray();
+        obj1.publicSparseLongs.put(4, 40L);
+        obj1.publicSparseStrings = new SparseArray<>();
+        obj1.publicSparseStrings.put(5, "Five");
+        obj1.publicSparseStrings.put(6, null);
+        obj1.publicSparseBundles = new SparseArray<>();
+        obj1.publicSparseBundles.put(7, new Bundle());
+        obj1.publicLongSparseBundles = new LongSparseArray<>();
+        obj1.publicLongSparseBundles.put(8L, new Bundle());
+        obj1.publicLongSparseChildren = new LongSparseArray<>();
+        obj1.publicLongSparseChildren.put(Long.MAX_VALUE, new AllPublicFieldsObject());
+        obj1.publicLongSparseChildren.valueAt(0).publicString = "Child";
+        obj1.setPrivateSparseIntegers(new SparseArray<Integer>());
+        obj1.getPrivateSparseIntegers().put(9, 90);
+        obj1.getPrivateSparseIntegers().put(10, null);
+        obj1.publicLongSparseLongs = new LongSparseArray<>();
+        obj1.publicLongSparseLongs.put(11L, null);
+        obj1.publicLongSparseLongs.put(12L, 120L);
+
+        // Null boxed values are marked in a mask next to the primitive column
+        Bundle bundle = SparseArrayObjectBundler.toBundle(obj1);
+        checkSparseArraysEqual(obj1, SparseArrayObjectBundler.fromBundle(bundle));
+
+        // Null sparse arrays stay null, also through the Parcelable wrapper
+        SparseArrayObject empty = new SparseArrayObject();
+        Parcel parcel = Parcel.obtain();
+        try {
+            new SparseArrayObjectParcel(obj1).writeToParcel(parcel, 0);
+            new SparseArrayObjectParcel(empty).writeToParcel(parcel, 0);
+            parcel.setDataPosition(0);
+
+            checkSparseArraysEqual(obj1,
+                    SparseArrayObjectParcel.CREATOR.createFromParcel(parcel).get());
+            ReflectionAssert.assertReflectionEquals(empty,
+                    SparseArrayObjectParcel.CREATOR.createFromParcel(parcel).get());
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    /**
+     * Sparse arrays do not implement equals, so they are compared by their contents.
+     */
+    private void checkSparseArraysEqual(SparseArrayObject obj1, SparseArrayObject obj2) {
+        assertEquals(obj1.publicSparseInts.toString(), obj2.publicSparseInts.toString());
+        assertEquals(obj1.publicSparseBooleans.toString(), obj2.publicSparseBooleans.toString());
+        assertEquals(obj1.publicSparseLongs.toString(), obj2.publicSparseLongs.toString());
+        assertEquals(obj1.publicSparseStrings.toString(), obj2.publicSparseStrings.toString());
+        assertEquals(obj1.getPrivateSparseIntegers().toString(),
+                obj2.getPrivateSparseIntegers().toString());
+        assertEquals(2, obj2.getPrivateSparseIntegers().size());
+        assertEquals(obj1.publicLongSparseLongs.toString(), obj2.publicLongSparseLongs.toString());
+        assertEquals(2, obj2.publicLongSparseLongs.size());
+
+        assertEquals(1, obj2.publicSparseBundles.size());
+        assertEquals(7, obj2.publicSparseBundles.keyAt(0));
+        assertEquals(1, obj2.publicLongSparseBundles.size());
+        assertEquals(8L, obj2.publicLongSparseBundles.keyAt(0));
+
+        assertEquals(1, obj2.publicLongSparseChildren.size());
+        assertEquals(Long.MAX_VALUE, obj2.publicLongSparseChildren.keyAt(0));
+        ReflectionAssert.assertReflectionEquals(obj1.publicLongSparseChildren.valueAt(0),
+                obj2.publicLongSparseChildren.valueAt(0));
+    }
+
+    @Test
+    public void testMaps() {
+        MapObject obj1 = new MapObject();
+        obj1.publicStringIntMap = new LinkedHashMap<>();
+        obj1.publicStringIntMap.put("b", 2);
+        obj1.publicStringIntMap.put("a", 1);
+        obj1.publicStringIntMap.put("c", null);
+        obj1.publicIntStringMap = new HashMap<>();
+        obj1.publicIntStringMap.put(3, "Three");
+        obj1.publicIntStringMap.put(4, null);
+        obj1.publicIntStringMap.put(null, "Null");
+        obj1.publicSortedMap = new TreeMap<>();
+        obj1.publicSortedMap.put("x", true);
+        obj1.publicChildren = new LinkedHashMap<>();
+        obj1.publicChildren.put("child", new AllPublicFieldsObject());
+        obj1.publicChildren.put(null, null);
+        obj1.setPrivateCharSequenceMap(
+                Collections.<Character, CharSequence>singletonMap('c', "See"));
+
+        checkSurvivesBundle(obj1);
+
+        // Maps are stored as a Bundle of columns rather than serialized, and keep their order
+        Bundle bundle = MapObjectBundler.toBundle(obj1);
+        assertNotNull(bundle.getBundle(MapObjectBundler.KEY_PUBLIC_STRING_INT_MAP));
+        MapObject obj2 = MapObjectBundler.fromBundle(bundle);
+        assertEquals(Arrays.asList("b", "a", "c"),
+                new ArrayList<>(obj2.publicStringIntMap.keySet()));
+
+        // Null boxed keys and values are kept
+        assertTrue(obj2.publicStringIntMap.containsKey("c"));
+        assertNull(obj2.publicStringIntMap.get("c"));
+        assertEquals("Null", obj2.publicIntStringMap.get(null));
+
+        // Sorted maps keep their comparator
+        obj1.publicSortedMap = new TreeMap<>(Collections.<String>reverseOrder());
+        obj1.publicSortedMap.put("x", true);
+        obj1.publicSortedMap.put("y", false);
+        obj2 = MapObjectBundler.fromBundle(MapObjectBundler.toBundle(obj1));
+        assertEquals(Arrays.asList("y", "x"), new ArrayList<>(obj2.publicSortedMap.keySet()));
+        assertEquals(obj1.publicSortedMap.comparator(), obj2.publicSortedMap.comparator());
+
+        // Also once the Bundle has been parceled, which reads maps back as a HashMap
+        obj2 = MapObjectBundler.fromBundle(parcelAndUnparcel(MapObjectBundler.toBundle(obj1)));
+        assertEquals(Arrays.asList("y", "x"), new ArrayList<>(obj2.publicSortedMap.keySet()));
+        assertEquals(obj1.publicSortedMap.comparator(), obj2.publicSortedMap.comparator());
+        assertTrue(obj2.publicStringIntMap.containsKey("c"));
+
+        // Through the Parcelable wrapper
+        Parcel parcel = Parcel.obtain();
+        try {
+            new MapObjectParcel(obj1).writeToParcel(parcel, 0);
+            parcel.setDataPosition(0);
+
+            MapObject obj3 = MapObjectParcel.CREATOR.createFromParcel(parcel).get();
+            ReflectionAssert.assertReflectionEquals(obj1, obj3);
+        } finally {
+            parcel.recycle();
+        }
+
+        // Sorted maps with a comparator that is not Serializable are kept whole in memory
+        Comparator<String> byLength = new Comparator<String>() {
+            @Override
+            public int compare(String a, String b) {
+                return a.length() - b.length();
+            }
+        };
+        obj1.publicSortedMap = new TreeMap<>(byLength);
+        obj1.publicSortedMap.put("xx", true);
+        obj1.publicSortedMap.put("y", false);
+        bundle = MapObjectBundler.toBundle(obj1);
+        assertTrue(EasyBundler.estimateSize(obj1) > 0);
+        obj2 = MapObjectBundler.fromBundle(bundle);
+        assertSame(obj1.publicSortedMap, obj2.publicSortedMap);
+        assertEquals(Arrays.asList("y", "xx"), new ArrayList<>(obj2.publicSortedMap.keySet()));
+    }
+
+    @Test
+    public void testEnums() {
+        EnumObject obj1 = new EnumObject();
+        obj1.publicMode = EnumObject.Mode.ON;
+        obj1.publicModes = new EnumObject.Mode[]{EnumObject.Mode.AUTO, null};
+        obj1.publicModeList = Arrays.asList(EnumObject.Mode.OFF, EnumObject.Mode.ON);
+        obj1.publicModeCounts = Collections.singletonMap(EnumObject.Mode.AUTO, 3);
+        obj1.setPrivateModes(new ArrayList<>(Collections.singletonList(EnumObject.Mode.OFF)));
+
+        checkSurvivesBundle(obj1);
+
+        // Stored by name, and names that no longer exist are restored as null
+        Bundle bundle = EnumObjectBundler.toBundle(obj1);
+        assertEquals("ON", bundle.getString(EnumObjectBundler.KEY_PUBLIC_MODE));
+        bundle.putString(EnumObjectBundler.KEY_PUBLIC_MODE, "REMOVED");
+        assertEquals(null, EnumObjectBundler.fromBundle(bundle).publicMode);
+
+        Parcel parcel = Parcel.obtain();
+        try {
+            new EnumObjectParcel(obj1).writeToParcel(parcel, 0);
+            parcel.setDataPosition(0);
+
+            EnumObject obj2 = EnumObjectParcel.CREATOR.createFromParcel(parcel).get();
+            ReflectionAssert.assertReflectionEquals(obj1, obj2);
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    @Test
+    public void testEnumOrdinals() {
+        OrdinalEnumObject obj1 = new OrdinalEnumObject();
+        obj1.publicMode = EnumObject.Mode.AUTO;
+        obj1.publicModes = new EnumObject.Mode[]{EnumObject.Mode.ON};
+        obj1.publicModeList = Arrays.asList(null, EnumObject.Mode.OFF);
+
+        checkSurvivesBundle(obj1);
+
+        // Stored as the ordinal plus one, so that 0 is null
+        Bundle bundle = OrdinalEnumObjectBundler.toBundle(obj1);
+        assertEquals(3, bundle.getInt(OrdinalEnumObjectBundler.KEY_PUBLIC_MODE));
+        assertEquals(0, bundle.getInt(OrdinalEnumObjectBundler.KEY_PUBLIC_NULL_MODE));
+
+        // Also in the column-wise list format
+        List<OrdinalEnumObject> list = Arrays.asList(obj1, new OrdinalEnumObject());
+        ReflectionAssert.assertReflectionEquals(list, EasyBundler.fromBundleList(
+                EasyBundler.toBundleList(list, OrdinalEnumObject.class),
+                OrdinalEnumObject.class));
+    }
+
+    @Test
+    public void testUpdateBundleEnums() {
+        EnumObject byName = new EnumObject();
+        byName.publicMode = EnumObject.Mode.ON;
+        Bundle bundle = EnumObjectBundler.toBundle(byName);
+
+        // Unchanged names are the same String, and changed or missing ones are written
+        EnumObjectBundler.updateBundle(byName, bundle);
+        assertSame(EnumObject.Mode.ON.name(), bundle.get(EnumObjectBundler.KEY_PUBLIC_MODE));
+        byName.publicMode = null;
+        EnumObjectBundler.updateBundle(byName, bundle);
+        assertNull(bundle.getString(EnumObjectBundler.KEY_PUBLIC_MODE));
+        byName.publicMode = EnumObject.Mode.AUTO;
+        bundle.remove(EnumObjectBundler.KEY_PUBLIC_MODE);
+        EnumObjectBundler.updateBundle(byName, bundle);
+        assertEquals("AUTO", bundle.getString(EnumObjectBundler.KEY_PUBLIC_MODE));
+
+        OrdinalEnumObject byOrdinal = new OrdinalEnumObject();
+        byOrdinal.publicMode = EnumObject.Mode.ON;
+        bundle = OrdinalEnumObjectBundler.toBundle(byOrdinal);
+
+        OrdinalEnumObjectBundler.updateBundle(byOrdinal, bundle);
+        assertEquals(2, bundle.getInt(OrdinalEnumObjectBundler.KEY_PUBLIC_MODE));
+        byOrdinal.publicMode = EnumObject.Mode.OFF;
+        OrdinalEnumObjectBundler.updateBundle(byOrdinal, bundle);
+        assertEquals(1, bundle.getInt(OrdinalEnumObjectBundler.KEY_PUBLIC_MODE));
+        byOrdinal.publicMode = null;
+        OrdinalEnumObjectBundler.updateBundle(byOrdinal, bundle);
+        assertEquals(0, bundle.getInt(OrdinalEnumObjectBundler.KEY_PUBLIC_MODE));
+        ReflectionAssert.assertReflectionEquals(byOrdinal,
+                OrdinalEnumObjectBundler.fromBundle(bundle));
+    }
+
+    @Test
+    public void testParcelable() {
+        ParcelableObject obj1 = new ParcelableObject();
+        obj1.publicBoolean = true;
+        obj1.publicChar = 'c';
+        obj1.publicShort = 7;
+        obj1.publicInt = 123;
+        obj1.publicLong = 456L;
+        obj1.publicBoxedInt = 789;
+        obj1.publicString = "Hello";
+        obj1.publicIntArray = new int[]{1, 2, 3};
+        obj1.publicStringList = new ArrayList<>(Arrays.asList("Hello", "World"));
+        obj1.publicChild = new AllPublicFieldsObject();
+        obj1.publicChild.publicString = "Child";
+        obj1.publicCircles = new Circle[]{new Circle(1.5)};
+        obj1.publicShapes = new Shape[]{new Circle(2.5), null};
+        obj1.setPrivateDouble(4.2);
+
+        // Write the wrapper to a Parcel and read it back
+        Parcel parcel = Parcel.obtain();
+        try {
+            new ParcelableObjectParcel(obj1).writeToParcel(parcel, 0);
+            parcel.setDataPosition(0);
+
+            ParcelableObject obj2 = ParcelableObjectParcel.CREATOR.createFromParcel(parcel).get();
+            ReflectionAssert.assertReflectionEquals(obj1, obj2);
+        } finally {
+            parcel.recycle();
+        }
+
+        // Parcelable arrays are read back from a parceled Bundle as Parcelable[]
+        Bundle bundle = parcelAndUnparcel(ParcelableObjectBundler.toBundle(obj1));
+        ReflectionAssert.assertReflectionEquals(obj1, ParcelableObjectBundler.fromBundle(bundle));
+        ReflectionAssert.assertReflectionEquals(obj1,
+                ParcelableObjectBundler.into(bundle, new ParcelableObject()));
+
+        Bundle columns = parcelAndUnparcel(
+                ParcelableObjectBundler.toColumns(Collections.singletonList(obj1)));
+        ReflectionAssert.assertReflectionEquals(Collections.singletonList(obj1),
+                ParcelableObjectBundler.fromColumns(columns));
+    }
+
+    @Test
+    public void testBundlerConstructor() {
+        ImmutableObject obj1 = new ImmutableObject("Hello", 123);
+        obj1.publicLong = 456L;
+
+        checkSurvivesBundle(obj1);
+
+        // The Parcelable wrapper should use the constructor too
+        Parcel parcel = Parcel.obtain();
+        try {
+            new ImmutableObjectParcel(obj1).writeToParcel(parcel, 0);
+            parcel.setDataPosition(0);
+
+            ImmutableObject obj2 = ImmutableObjectParcel.CREATOR.createFromParcel(parcel).get();
+            ReflectionAssert.assertReflectionEquals(obj1, obj2);
+        } finally {
+            parcel.recycle();
+        }
+
+        // Only the fields that are not set by the constructor can be restored in place
+        ImmutableObject target = new ImmutableObject("World", 1);
+        assertSame(target, EasyBundler.into(EasyBundler.toBundle(obj1), target));
+        assertEquals(456L, target.publicLong);
+        assertEquals("World", target.publicString);
+        assertEquals(1, target.getPrivateInt());
+    }
+
+    @Test
+    public void testBundlerConstructorFactory() {
+        checkSurvivesBundle(FactoryObject.create("Hello"));
+    }
+
     @Test
     public void testPrivateFieldsNoSetter() {
         PrivateFieldsNoSetterObject obj1 = new PrivateFieldsNoSetterObject(456);
@@ -73,6 +913,24 @@ public class EasyBundlerTest {
         assertFalse(obj1.getPrivateInt() == obj2.getPrivateInt());
     }
 
+    @Test
+    public void testGenericAccessors() {
+        GenericAccessorsObject obj1 = new GenericAccessorsObject();
+        obj1.setNames(new ArrayList<>(Arrays.asList("a", "b")));
+        obj1.setTags(new ArrayList<>(Arrays.asList("c")));
+
+        Bundle bundle = EasyBundler.toBundle(obj1);
+        GenericAccessorsObject obj2 = EasyBundler.fromBundle(bundle, GenericAccessorsObject.class);
+
+        // Accessors with exactly the field's generic type are used
+        assertTrue(bundle.containsKey(GenericAccessorsObjectBundler.KEY_NAMES));
+        assertEquals(obj1.getNames(), obj2.getNames());
+
+        // A getter returning a supertype does not match, so the field is ignored
+        assertEquals(1, bundle.size());
+        assertNull(obj2.getTags());
+    }
+
     @Test
     public void testPrivateFieldsNoGetter() {
         PrivateFieldsNoGetterObject obj1 = new PrivateFieldsNoGetterObject();
@@ -116,4 +974,48 @@ public class EasyBundlerTest {
         ReflectionAssert.assertReflectionEquals(obj1, obj2);
     }
 
+    private AllPublicFieldsObject createChild(int i) {
+        AllPublicFieldsObject child = new AllPublicFieldsObject();
+        child.publicInt = i;
+        child.publicString = "child" + i;
+        child.publicDoubleArray = new double[10];
+        return child;
+    }
+
+    /**
+     * Write a Bundle to a Parcel and read it back, as when it is passed to another process.
+     */
+    private Bundle parcelAndUnparcel(Bundle bundle) {
+        Parcel parcel = Parcel.obtain();
+        try {
+            parcel.writeBundle(bundle);
+            parcel.setDataPosition(0);
+            return parcel.readBundle(getClass().getClassLoader());
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    /**
+     * Returns the size of a Bundle once written to a Parcel, as when it is sent to another
+     * process.
+     */
+    private int getParceledSize(Bundle bundle) {
+        Parcel parcel = Parcel.obtain();
+        try {
+            parcel.writeBundle(bundle);
+            return parcel.dataSize();
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    /**
+     * Asserts that an estimated size is within 10% of the actual size.
+     */
+    private void assertEstimate(int actual, int estimate) {
+        assertTrue("Estimated " + estimate + " bytes for " + actual,
+                Math.abs(estimate - actual) <= actual / 10);
+    }
+
 }
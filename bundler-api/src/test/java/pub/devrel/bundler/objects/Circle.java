@@ -0,0 +1,58 @@
+/*
+ * Copyright 2017 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pub.devrel.bundler.objects;
+
+import android.os.Parcel;
+
+/**
+ * Concrete Parcelable class with a CREATOR.
+ */
+public class Circle implements Shape {
+
+    public static final Creator<Circle> CREATOR = new Creator<Circle>() {
+        @Override
+        public Circle createFromParcel(Parcel in) {
+            return new Circle(in.readDouble());
+        }
+
+        @Override
+        public Circle[] newArray(int size) {
+            return new Circle[size];
+        }
+    };
+
+    private double radius;
+
+    public Circle(double radius) {
+        this.radius = radius;
+    }
+
+    @Override
+    public double getArea() {
+        return Math.PI * radius * radius;
+    }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @Override
+    public void writeToParcel(Parcel dest, int flags) {
+        dest.writeDouble(radius);
+    }
+
+}
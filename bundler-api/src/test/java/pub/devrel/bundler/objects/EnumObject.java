@@ -0,0 +1,51 @@
+/*
+ * Copyright 2017 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pub.devrel.bundler.objects;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import pub.devrel.bundler.BundlerClass;
+
+/**
+ * Class with enum fields, stored by name.
+ */
+@BundlerClass(parcelable = true)
+public class EnumObject {
+
+    public enum Mode {
+        OFF, ON, AUTO
+    }
+
+    public Mode publicMode;
+    public Mode[] publicModes;
+    public List<Mode> publicModeList;
+    public Map<Mode, Integer> publicModeCounts;
+
+    private ArrayList<Mode> privateModes;
+
+    public EnumObject() {}
+
+    public ArrayList<Mode> getPrivateModes() {
+        return privateModes;
+    }
+
+    public void setPrivateModes(ArrayList<Mode> privateModes) {
+        this.privateModes = privateModes;
+    }
+
+}
@@ -0,0 +1,39 @@
+
+/*
+ * Copyright 2017 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pub.devrel.bundler.objects;
+
+import pub.devrel.bundler.BundlerClass;
+import pub.devrel.bundler.BundlerConstructor;
+
+/**
+ * Class with final fields that is created through a static factory method.
+ */
+@BundlerClass
+public class FactoryObject {
+
+    public final String publicString;
+
+    private FactoryObject(String publicString) {
+        this.publicString = publicString;
+    }
+
+    @BundlerConstructor
+    public static FactoryObject create(String publicString) {
+        return new FactoryObject(publicString);
+    }
+
+}
@@ -0,0 +1,44 @@
+
+/*
+ * Copyright 2017 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pub.devrel.bundler.objects;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import pub.devrel.bundler.BundlerClass;
+
+/**
+ * Class with lists of objects that are themselves annotated with {@link BundlerClass}.
+ */
+@BundlerClass
+public class ListObject {
+
+    public List<AllPublicFieldsObject> publicChildren;
+
+    private ArrayList<NestedObject> privateChildren;
+
+    public ListObject() {}
+
+    public ArrayList<NestedObject> getPrivateChildren() {
+        return privateChildren;
+    }
+
+    public void setPrivateChildren(ArrayList<NestedObject> privateChildren) {
+        this.privateChildren = privateChildren;
+    }
+
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2017 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pub.devrel.bundler.objects;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SortedMap;
+
+import pub.devrel.bundler.BundlerClass;
+
+/**
+ * Class with maps, which are stored as columns of keys and values.
+ */
+@BundlerClass(parcelable = true)
+public class MapObject {
+
+    public Map<String, Integer> publicStringIntMap;
+    public HashMap<Integer, String> publicIntStringMap;
+    public SortedMap<String, Boolean> publicSortedMap;
+    public LinkedHashMap<String, AllPublicFieldsObject> publicChildren;
+
+    private Map<Character, CharSequence> privateCharSequenceMap;
+
+    public MapObject() {}
+
+    public Map<Character, CharSequence> getPrivateCharSequenceMap() {
+        return privateCharSequenceMap;
+    }
+
+    public void setPrivateCharSequenceMap(Map<Character, CharSequence> privateCharSequenceMap) {
+        this.privateCharSequenceMap = privateCharSequenceMap;
+    }
+
+}
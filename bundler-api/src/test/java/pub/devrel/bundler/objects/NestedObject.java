@@ -0,0 +1,42 @@
+/*
+ * Copyright 2017 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pub.devrel.bundler.objects;
+
+import pub.devrel.bundler.BundlerClass;
+
+/**
+ * Class with fields that are themselves annotated with {@link BundlerClass}.
+ */
+@BundlerClass(view = true)
+public class NestedObject {
+
+    public String publicString;
+
+    public AllPublicFieldsObject publicChild;
+
+    private AllPrivateFieldsObject privateChild;
+
+    public NestedObject() {}
+
+    public AllPrivateFieldsObject getPrivateChild() {
+        return privateChild;
+    }
+
+    public void setPrivateChild(AllPrivateFieldsObject privateChild) {
+        this.privateChild = privateChild;
+    }
+
+}
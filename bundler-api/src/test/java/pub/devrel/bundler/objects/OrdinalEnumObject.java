@@ -0,0 +1,36 @@
+/*
+ * Copyright 2017 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pub.devrel.bundler.objects;
+
+import java.util.List;
+
+import pub.devrel.bundler.BundlerClass;
+import pub.devrel.bundler.EnumEncoding;
+
+/**
+ * Class with enum fields, stored by ordinal.
+ */
+@BundlerClass(enumEncoding = EnumEncoding.ORDINAL)
+public class OrdinalEnumObject {
+
+    public EnumObject.Mode publicMode;
+    public EnumObject.Mode publicNullMode;
+    public EnumObject.Mode[] publicModes;
+    public List<EnumObject.Mode> publicModeList;
+
+    public OrdinalEnumObject() {}
+
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2017 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pub.devrel.bundler.objects;
+
+import java.util.ArrayList;
+
+import pub.devrel.bundler.BundlerClass;
+
+/**
+ * Class with a Parcelable wrapper and fields of many types.
+ */
+@BundlerClass(parcelable = true)
+public class ParcelableObject {
+
+    public boolean publicBoolean;
+
+    public char publicChar;
+
+    public short publicShort;
+
+    public int publicInt;
+
+    public long publicLong;
+
+    public Integer publicBoxedInt;
+
+    public String publicString;
+
+    public int[] publicIntArray;
+
+    public ArrayList<String> publicStringList;
+
+    public AllPublicFieldsObject publicChild;
+
+    // Read with the CREATOR of Circle
+    public Circle[] publicCircles;
+
+    // Read with readParcelableArray, since Shape is an interface
+    public Shape[] publicShapes;
+
+    private double privateDouble;
+
+    public ParcelableObject() {}
+
+    public double getPrivateDouble() {
+        return privateDouble;
+    }
+
+    public void setPrivateDouble(double privateDouble) {
+        this.privateDouble = privateDouble;
+    }
+
+}
@@ -0,0 +1,55 @@
+
+/*
+ * Copyright 2017 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pub.devrel.bundler.objects;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import pub.devrel.bundler.BundlerClass;
+
+/**
+ * Class with collections of boxed primitives, which are stored as primitive arrays.
+ */
+@BundlerClass(parcelable = true)
+public class PrimitiveCollectionsObject {
+
+    public List<Integer> publicIntList;
+    public ArrayList<Integer> publicIntArrayList;
+    public List<Long> publicLongList;
+    public Collection<Double> publicDoubleCollection;
+    public List<Float> publicFloatList;
+    public List<Boolean> publicBooleanList;
+    public List<Byte> publicByteList;
+    public List<Short> publicShortList;
+    public Set<Long> publicLongSet;
+
+    private LinkedHashSet<Character> privateCharSet;
+
+    public PrimitiveCollectionsObject() {}
+
+    public LinkedHashSet<Character> getPrivateCharSet() {
+        return privateCharSet;
+    }
+
+    public void setPrivateCharSet(LinkedHashSet<Character> privateCharSet) {
+        this.privateCharSet = privateCharSet;
+    }
+
+}
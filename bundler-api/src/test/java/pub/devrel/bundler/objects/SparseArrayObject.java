@@ -0,0 +1,55 @@
+
+/*
+ * Copyright 2017 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pub.devrel.bundler.objects;
+
+import android.os.Bundle;
+import android.util.LongSparseArray;
+import android.util.SparseArray;
+import android.util.SparseBooleanArray;
+import android.util.SparseIntArray;
+import android.util.SparseLongArray;
+
+import pub.devrel.bundler.BundlerClass;
+
+/**
+ * Class with Android's primitive-keyed sparse arrays.
+ */
+@BundlerClass(parcelable = true)
+public class SparseArrayObject {
+
+    public SparseIntArray publicSparseInts;
+    public SparseBooleanArray publicSparseBooleans;
+    public SparseLongArray publicSparseLongs;
+    public SparseArray<String> publicSparseStrings;
+    public SparseArray<Bundle> publicSparseBundles;
+    public LongSparseArray<Bundle> publicLongSparseBundles;
+    public LongSparseArray<AllPublicFieldsObject> publicLongSparseChildren;
+    public LongSparseArray<Long> publicLongSparseLongs;
+
+    private SparseArray<Integer> privateSparseIntegers;
+
+    public SparseArrayObject() {}
+
+    public SparseArray<Integer> getPrivateSparseIntegers() {
+        return privateSparseIntegers;
+    }
+
+    public void setPrivateSparseIntegers(SparseArray<Integer> privateSparseIntegers) {
+        this.privateSparseIntegers = privateSparseIntegers;
+    }
+
+}
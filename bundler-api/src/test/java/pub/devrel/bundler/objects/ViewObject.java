@@ -0,0 +1,37 @@
+/*
+ * Copyright 2017 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pub.devrel.bundler.objects;
+
+import java.util.List;
+
+import pub.devrel.bundler.BundlerClass;
+
+/**
+ * Class with a view whose getters convert and cache their values, including a field with the
+ * same name as the Bundle wrapped by the view.
+ */
+@BundlerClass(view = true)
+public class ViewObject {
+
+    public AllPublicFieldsObject bundle;
+
+    public EnumObject.Mode mode;
+
+    public List<Integer> numbers;
+
+    public ViewObject() {}
+
+}
@@ -0,0 +1,38 @@
+
+/*
+ * Copyright 2017 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.content;
+
+import android.os.Bundle;
+
+/**
+ * Pure-JVM stand-in for {@code android.content.Intent}, with only the methods used by
+ * EasyBundler.
+ */
+public class Intent {
+
+    private final Bundle extras = new Bundle();
+
+    public Intent putExtra(String name, Bundle value) {
+        extras.putBundle(name, value);
+        return this;
+    }
+
+    public Bundle getBundleExtra(String name) {
+        return extras.getBundle(name);
+    }
+
+}
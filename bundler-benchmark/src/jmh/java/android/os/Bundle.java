@@ -0,0 +1,358 @@
+
+/*
+ * Copyright 2017 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.os;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Pure-JVM stand-in for {@code android.os.Bundle} with the same method signatures, so that
+ * EasyBundler and the generated Bundlers can be benchmarked without a device or Robolectric.
+ * Values are kept in a {@link HashMap}, and {@link #writeToParcel(Parcel, int)} writes them to
+ * a byte stream much like a real Bundle is parceled.
+ */
+@SuppressWarnings("unchecked")
+public final class Bundle implements Parcelable {
+
+    private final HashMap<String, Object> map;
+
+    public Bundle() {
+        map = new HashMap<>();
+    }
+
+    public Bundle(int capacity) {
+        map = new HashMap<>(capacity);
+    }
+
+    public Bundle(Bundle bundle) {
+        map = new HashMap<>(bundle.map);
+    }
+
+    public int size() {
+        return map.size();
+    }
+
+    public boolean isEmpty() {
+        return map.isEmpty();
+    }
+
+    public boolean containsKey(String key) {
+        return map.containsKey(key);
+    }
+
+    public Object get(String key) {
+        return map.get(key);
+    }
+
+    public void remove(String key) {
+        map.remove(key);
+    }
+
+    public void putAll(Bundle bundle) {
+        map.putAll(bundle.map);
+    }
+
+    public Set<String> keySet() {
+        return map.keySet();
+    }
+
+    public void setClassLoader(ClassLoader loader) {
+        // Not needed on the JVM
+    }
+
+    public void putBoolean(String key, boolean value) {
+        map.put(key, value);
+    }
+
+    public boolean getBoolean(String key) {
+        return getBoolean(key, false);
+    }
+
+    public boolean getBoolean(String key, boolean defaultValue) {
+        Object value = map.get(key);
+        return value != null ? (Boolean) value : defaultValue;
+    }
+
+    public void putByte(String key, byte value) {
+        map.put(key, value);
+    }
+
+    public byte getByte(String key) {
+        return getByte(key, (byte) 0);
+    }
+
+    public byte getByte(String key, byte defaultValue) {
+        Object value = map.get(key);
+        return value != null ? (Byte) value : defaultValue;
+    }
+
+    public void putChar(String key, char value) {
+        map.put(key, value);
+    }
+
+    public char getChar(String key) {
+        return getChar(key, (char) 0);
+    }
+
+    public char getChar(String key, char defaultValue) {
+        Object value = map.get(key);
+        return value != null ? (Character) value : defaultValue;
+    }
+
+    public void putDouble(String key, double value) {
+        map.put(key, value);
+    }
+
+    public double getDouble(String key) {
+        return getDouble(key, 0.0);
+    }
+
+    public double getDouble(String key, double defaultValue) {
+        Object value = map.get(key);
+        return value != null ? (Double) value : defaultValue;
+    }
+
+    public void putFloat(String key, float value) {
+        map.put(key, value);
+    }
+
+    public float getFloat(String key) {
+        return getFloat(key, 0f);
+    }
+
+    public float getFloat(String key, float defaultValue) {
+        Object value = map.get(key);
+        return value != null ? (Float) value : defaultValue;
+    }
+
+    public void putInt(String key, int value) {
+        map.put(key, value);
+    }
+
+    public int getInt(String key) {
+        return getInt(key, 0);
+    }
+
+    public int getInt(String key, int defaultValue) {
+        Object value = map.get(key);
+        return value != null ? (Integer) value : defaultValue;
+    }
+
+    public void putLong(String key, long value) {
+        map.put(key, value);
+    }
+
+    public long getLong(String key) {
+        return getLong(key, 0L);
+    }
+
+    public long getLong(String key, long defaultValue) {
+        Object value = map.get(key);
+        return value != null ? (Long) value : defaultValue;
+    }
+
+    public void putShort(String key, short value) {
+        map.put(key, value);
+    }
+
+    public short getShort(String key) {
+        return getShort(key, (short) 0);
+    }
+
+    public short getShort(String key, short defaultValue) {
+        Object value = map.get(key);
+        return value != null ? (Short) value : defaultValue;
+    }
+
+    public void putString(String key, String value) {
+        map.put(key, value);
+    }
+
+    public String getString(String key) {
+        return (String) map.get(key);
+    }
+
+    public void putCharSequence(String key, CharSequence value) {
+        map.put(key, value);
+    }
+
+    public CharSequence getCharSequence(String key) {
+        return (CharSequence) map.get(key);
+    }
+
+    public void putBundle(String key, Bundle value) {
+        map.put(key, value);
+    }
+
+    public Bundle getBundle(String key) {
+        return (Bundle) map.get(key);
+    }
+
+    public void putByteArray(String key, byte[] value) {
+        map.put(key, value);
+    }
+
+    public byte[] getByteArray(String key) {
+        return (byte[]) map.get(key);
+    }
+
+    public void putBooleanArray(String key, boolean[] value) {
+        map.put(key, value);
+    }
+
+    public boolean[] getBooleanArray(String key) {
+        return (boolean[]) map.get(key);
+    }
+
+    public void putCharArray(String key, char[] value) {
+        map.put(key, value);
+    }
+
+    public char[] getCharArray(String key) {
+        return (char[]) map.get(key);
+    }
+
+    public void putDoubleArray(String key, double[] value) {
+        map.put(key, value);
+    }
+
+    public double[] getDoubleArray(String key) {
+        return (double[]) map.get(key);
+    }
+
+    public void putFloatArray(String key, float[] value) {
+        map.put(key, value);
+    }
+
+    public float[] getFloatArray(String key) {
+        return (float[]) map.get(key);
+    }
+
+    public void putIntArray(String key, int[] value) {
+        map.put(key, value);
+    }
+
+    public int[] getIntArray(String key) {
+        return (int[]) map.get(key);
+    }
+
+    public void putLongArray(String key, long[] value) {
+        map.put(key, value);
+    }
+
+    public long[] getLongArray(String key) {
+        return (long[]) map.get(key);
+    }
+
+    public void putShortArray(String key, short[] value) {
+        map.put(key, value);
+    }
+
+    public short[] getShortArray(String key) {
+        return (short[]) map.get(key);
+    }
+
+    public void putStringArray(String key, String[] value) {
+        map.put(key, value);
+    }
+
+    public String[] getStringArray(String key) {
+        return (String[]) map.get(key);
+    }
+
+    public void putCharSequenceArray(String key, CharSequence[] value) {
+        map.put(key, value);
+    }
+
+    public CharSequence[] getCharSequenceArray(String key) {
+        return (CharSequence[]) map.get(key);
+    }
+
+    public void putCharSequenceArrayList(String key, ArrayList<CharSequence> value) {
+        map.put(key, value);
+    }
+
+    public ArrayList<CharSequence> getCharSequenceArrayList(String key) {
+        return (ArrayList<CharSequence>) map.get(key);
+    }
+
+    public void putIntegerArrayList(String key, ArrayList<Integer> value) {
+        map.put(key, value);
+    }
+
+    public ArrayList<Integer> getIntegerArrayList(String key) {
+        return (ArrayList<Integer>) map.get(key);
+    }
+
+    public void putStringArrayList(String key, ArrayList<String> value) {
+        map.put(key, value);
+    }
+
+    public ArrayList<String> getStringArrayList(String key) {
+        return (ArrayList<String>) map.get(key);
+    }
+
+    public void putParcelableArray(String key, Parcelable[] value) {
+        map.put(key, value);
+    }
+
+    public Parcelable[] getParcelableArray(String key) {
+        return (Parcelable[]) map.get(key);
+    }
+
+    public void putSerializable(String key, Serializable value) {
+        map.put(key, value);
+    }
+
+    public Serializable getSerializable(String key) {
+        return (Serializable) map.get(key);
+    }
+
+    public void putParcelable(String key, Parcelable value) {
+        map.put(key, value);
+    }
+
+    public <T extends Parcelable> T getParcelable(String key) {
+        return (T) map.get(key);
+    }
+
+    public void putParcelableArrayList(String key, ArrayList<? extends Parcelable> value) {
+        map.put(key, value);
+    }
+
+    public <T extends Parcelable> ArrayList<T> getParcelableArrayList(String key) {
+        return (ArrayList<T>) map.get(key);
+    }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @Override
+    public void writeToParcel(Parcel dest, int flags) {
+        dest.writeInt(map.size());
+        for (Map.Entry<String, Object> entry : map.entrySet()) {
+            dest.writeString(entry.getKey());
+            dest.writeValue(entry.getValue());
+        }
+    }
+
+}
@@ -0,0 +1,202 @@
+
+/*
+ * Copyright 2017 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.os;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Pure-JVM, write-only stand-in for {@code android.os.Parcel}. Values are written to a byte
+ * stream with a type tag, and Serializable values go through Java serialization like on a
+ * device, so that the cost of parceling a {@link Bundle} can be compared between encodings.
+ */
+public final class Parcel {
+
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private final DataOutputStream out = new DataOutputStream(bytes);
+
+    public static Parcel obtain() {
+        return new Parcel();
+    }
+
+    public void recycle() {
+        bytes.reset();
+    }
+
+    public int dataSize() {
+        return out.size();
+    }
+
+    public byte[] marshall() {
+        return bytes.toByteArray();
+    }
+
+    public void writeInt(int value) {
+        try {
+            out.writeInt(value);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public void writeLong(long value) {
+        try {
+            out.writeLong(value);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public void writeFloat(float value) {
+        writeInt(Float.floatToIntBits(value));
+    }
+
+    public void writeDouble(double value) {
+        writeLong(Double.doubleToLongBits(value));
+    }
+
+    public void writeString(String value) {
+        if (value == null) {
+            writeInt(-1);
+            return;
+        }
+
+        // Parcel stores strings as UTF-16
+        try {
+            out.writeInt(value.length());
+            out.writeChars(value);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public void writeBundle(Bundle value) {
+        if (value == null) {
+            writeInt(-1);
+            return;
+        }
+
+        value.writeToParcel(this, 0);
+    }
+
+    public void writeSerializable(Serializable value) {
+        try {
+            ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+            ObjectOutputStream objectOut = new ObjectOutputStream(serialized);
+            objectOut.writeObject(value);
+            objectOut.close();
+
+            out.writeInt(serialized.size());
+            serialized.writeTo(out);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Write a value of any supported type, preceded by a type tag.
+     */
+    public void writeValue(Object value) {
+        if (value == null) {
+            writeInt(-1);
+        } else if (value instanceof String) {
+            writeInt(0);
+            writeString((String) value);
+        } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            writeInt(1);
+            writeInt(((Number) value).intValue());
+        } else if (value instanceof Boolean) {
+            writeInt(1);
+            writeInt((Boolean) value ? 1 : 0);
+        } else if (value instanceof Character) {
+            writeInt(1);
+            writeInt((Character) value);
+        } else if (value instanceof Long) {
+            writeInt(2);
+            writeLong((Long) value);
+        } else if (value instanceof Float) {
+            writeInt(3);
+            writeFloat((Float) value);
+        } else if (value instanceof Double) {
+            writeInt(4);
+            writeDouble((Double) value);
+        } else if (value instanceof Bundle) {
+            writeInt(5);
+            writeBundle((Bundle) value);
+        } else if (value instanceof CharSequence) {
+            writeInt(6);
+            writeString(value.toString());
+        } else if (value instanceof Parcelable) {
+            writeInt(7);
+            writeString(value.getClass().getName());
+            ((Parcelable) value).writeToParcel(this, 0);
+        } else if (value instanceof int[]) {
+            writeInt(8);
+            int[] array = (int[]) value;
+            writeInt(array.length);
+            for (int item : array) {
+                writeInt(item);
+            }
+        } else if (value instanceof long[]) {
+            writeInt(9);
+            long[] array = (long[]) value;
+            writeInt(array.length);
+            for (long item : array) {
+                writeLong(item);
+            }
+        } else if (value instanceof double[]) {
+            writeInt(10);
+            double[] array = (double[]) value;
+            writeInt(array.length);
+            for (double item : array) {
+                writeDouble(item);
+            }
+        } else if (value instanceof boolean[]) {
+            writeInt(11);
+            boolean[] array = (boolean[]) value;
+            writeInt(array.length);
+            for (boolean item : array) {
+                writeInt(item ? 1 : 0);
+            }
+        } else if (value instanceof Object[]) {
+            writeInt(12);
+            Object[] array = (Object[]) value;
+            writeInt(array.length);
+            for (Object item : array) {
+                writeValue(item);
+            }
+        } else if (value instanceof List) {
+            writeInt(13);
+            List<?> list = (List<?>) value;
+            writeInt(list.size());
+            for (Object item : list) {
+                writeValue(item);
+            }
+        } else if (value instanceof Serializable) {
+            // Includes the remaining primitive arrays, as on a device
+            writeInt(14);
+            writeSerializable((Serializable) value);
+        } else {
+            throw new RuntimeException("Parcel: unable to marshal value " + value);
+        }
+    }
+
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2017 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pub.devrel.bundler.benchmark;
+
+import android.os.Bundle;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import pub.devrel.bundler.jvm.ArrayBundle;
+
+/**
+ * Compares the array-backed {@link ArrayBundle} from bundler-jvm with the HashMap-backed
+ * {@link Bundle} stand-in, for filling a Bundle and reading every key back as generated
+ * Bundlers do.
+ */
+@State(Scope.Thread)
+public class ArrayBundleBenchmark {
+
+    @Param({"8", "32"})
+    public int size;
+
+    private String[] keys;
+    private Bundle bundle;
+    private ArrayBundle arrayBundle;
+
+    @Setup
+    public void setUp() {
+        keys = new String[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = "KEY_pub.devrel.bundler.benchmark.Object_field" + i;
+        }
+
+        bundle = putBundle();
+        arrayBundle = putArrayBundle();
+    }
+
+    @Benchmark
+    public Bundle putBundle() {
+        Bundle result = new Bundle();
+        for (int i = 0; i < keys.length; i++) {
+            result.putInt(keys[i], i);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public ArrayBundle putArrayBundle() {
+        ArrayBundle result = new ArrayBundle();
+        for (int i = 0; i < keys.length; i++) {
+            result.putInt(keys[i], i);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public int getBundle() {
+        int sum = 0;
+        for (String key : keys) {
+            sum += bundle.getInt(key);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int getArrayBundle() {
+        int sum = 0;
+        for (String key : keys) {
+            sum += arrayBundle.getInt(key);
+        }
+        return sum;
+    }
+
+}
@@ -0,0 +1,54 @@
+
+/*
+ * Copyright 2017 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pub.devrel.bundler.benchmark;
+
+import pub.devrel.bundler.BundlerClass;
+
+/**
+ * Object with primitive and String array fields.
+ */
+@BundlerClass
+public class ArraysObject {
+
+    private static final int SIZE = 64;
+
+    public int[] ints;
+    public long[] longs;
+    public double[] doubles;
+    public boolean[] booleans;
+    public String[] strings;
+
+    public ArraysObject() {}
+
+    static ArraysObject create() {
+        ArraysObject object = new ArraysObject();
+        object.ints = new int[SIZE];
+        object.longs = new long[SIZE];
+        object.doubles = new double[SIZE];
+        object.booleans = new boolean[SIZE];
+        object.strings = new String[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            object.ints[i] = i;
+            object.longs[i] = i;
+            object.doubles[i] = i;
+            object.booleans[i] = i % 2 == 0;
+            object.strings[i] = "string" + i;
+        }
+        return object;
+    }
+
+}
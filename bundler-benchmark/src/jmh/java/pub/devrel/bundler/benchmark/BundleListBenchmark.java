@@ -0,0 +1,107 @@
+
+/*
+ * Copyright 2017 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pub.devrel.bundler.benchmark;
+
+import android.os.Bundle;
+import android.os.Parcel;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares bundling a list of objects column-wise, with one array per field, against
+ * bundling each object separately into a Bundle of Bundles.
+ */
+@State(Scope.Thread)
+public class BundleListBenchmark {
+
+    @Param({"10", "100"})
+    public int size;
+
+    private List<PrimitivesObject> objects;
+    private Bundle perElementBundle;
+    private Bundle columnsBundle;
+
+    @Setup
+    public void setUp() {
+        objects = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            objects.add(PrimitivesObject.create());
+        }
+
+        perElementBundle = toBundlePerElement();
+        columnsBundle = PrimitivesObjectBundler.toColumns(objects);
+    }
+
+    @Benchmark
+    public Bundle toBundlePerElement() {
+        Bundle bundle = new Bundle();
+        for (int i = 0; i < objects.size(); i++) {
+            bundle.putBundle(Integer.toString(i), PrimitivesObjectBundler.toBundle(objects.get(i)));
+        }
+        return bundle;
+    }
+
+    @Benchmark
+    public Bundle toBundleColumns() {
+        return PrimitivesObjectBundler.toColumns(objects);
+    }
+
+    @Benchmark
+    public List<PrimitivesObject> fromBundlePerElement() {
+        List<PrimitivesObject> result = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            result.add(PrimitivesObjectBundler.fromBundle(
+                    perElementBundle.getBundle(Integer.toString(i))));
+        }
+        return result;
+    }
+
+    @Benchmark
+    public List<PrimitivesObject> fromBundleColumns() {
+        return PrimitivesObjectBundler.fromColumns(columnsBundle);
+    }
+
+    /**
+     * Returns the parceled size so that it shows up next to the time in the results.
+     */
+    @Benchmark
+    public int parcelPerElement() {
+        return parcel(perElementBundle);
+    }
+
+    @Benchmark
+    public int parcelColumns() {
+        return parcel(columnsBundle);
+    }
+
+    private static int parcel(Bundle bundle) {
+        Parcel parcel = Parcel.obtain();
+        parcel.writeBundle(bundle);
+
+        int size = parcel.dataSize();
+        parcel.recycle();
+        return size;
+    }
+
+}
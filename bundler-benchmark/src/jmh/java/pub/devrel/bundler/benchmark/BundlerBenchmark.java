@@ -0,0 +1,171 @@
+
+/*
+ * Copyright 2017 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pub.devrel.bundler.benchmark;
+
+import android.os.Bundle;
+import android.os.Parcel;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.lang.reflect.Method;
+
+import pub.devrel.bundler.Bundler;
+import pub.devrel.bundler.EasyBundler;
+
+/**
+ * Round-trip benchmarks shared by every object shape. Each subclass supplies an object and
+ * direct calls to its generated Bundler, and the same conversion is measured through each
+ * way of reaching that Bundler:
+ * <ul>
+ *     <li>direct: static call to the generated class, the lower bound.</li>
+ *     <li>easyBundler: {@link EasyBundler}, dispatching on the runtime class.</li>
+ *     <li>typed: a {@link Bundler} instance looked up once.</li>
+ *     <li>reflective: {@link Method#invoke(Object, Object...)} on the generated class, the
+ *     way dispatch worked before Bundler lookups were cached.</li>
+ * </ul>
+ */
+@State(Scope.Thread)
+public abstract class BundlerBenchmark<T> {
+
+    private T object;
+    private T target;
+    private Bundle bundle;
+    private Bundler<T> bundler;
+
+    private Method reflectiveToBundle;
+    private Method reflectiveFromBundle;
+
+    /**
+     * Class of the benchmarked object.
+     */
+    protected abstract Class<T> getObjectClass();
+
+    /**
+     * Create a populated instance of the benchmarked object.
+     */
+    protected abstract T createObject();
+
+    /**
+     * Call the generated {@code toBundle} method directly.
+     */
+    protected abstract Bundle directToBundle(T object);
+
+    /**
+     * Call the generated {@code fromBundle} method directly.
+     */
+    protected abstract T directFromBundle(Bundle bundle);
+
+    @Setup
+    public void setUp() throws Exception {
+        Class<T> clazz = getObjectClass();
+        Class<?> bundlerClass = Class.forName(clazz.getName() + "Bundler");
+
+        object = createObject();
+        target = createObject();
+        bundle = directToBundle(object);
+        bundler = EasyBundler.getBundler(clazz);
+
+        reflectiveToBundle = bundlerClass.getMethod("toBundle", clazz);
+        reflectiveFromBundle = bundlerClass.getMethod("fromBundle", Bundle.class);
+    }
+
+    @Benchmark
+    public Bundle toBundleDirect() {
+        return directToBundle(object);
+    }
+
+    @Benchmark
+    public Bundle toBundleEasyBundler() {
+        return EasyBundler.toBundle(object);
+    }
+
+    @Benchmark
+    public Bundle toBundleTyped() {
+        return bundler.toBundle(object);
+    }
+
+    @Benchmark
+    public Object toBundleReflective() throws Exception {
+        return reflectiveToBundle.invoke(null, object);
+    }
+
+    /**
+     * Write the unchanged object into the Bundle it was written to before. Fields stored as
+     * they are, including enums, are compared with the Bundle and skipped. Collections, maps
+     * and sparse arrays are converted and written again, so objects holding them still
+     * allocate.
+     */
+    @Benchmark
+    public Bundle updateBundleUnchanged() {
+        return bundler.updateBundle(object, bundle);
+    }
+
+    @Benchmark
+    public T fromBundleDirect() {
+        return directFromBundle(bundle);
+    }
+
+    @Benchmark
+    public T fromBundleEasyBundler() {
+        return EasyBundler.fromBundle(bundle, getObjectClass());
+    }
+
+    @Benchmark
+    public T fromBundleTyped() {
+        return bundler.fromBundle(bundle);
+    }
+
+    /**
+     * Restore into an existing instance instead of allocating a new one.
+     */
+    @Benchmark
+    public T intoTyped() {
+        return bundler.into(bundle, target);
+    }
+
+    @Benchmark
+    public Object fromBundleReflective() throws Exception {
+        return reflectiveFromBundle.invoke(null, bundle);
+    }
+
+    /**
+     * Bundle the object and write the result to a Parcel, as happens when the Bundle crosses
+     * a process boundary. Returns the parceled size so the work is not eliminated.
+     */
+    @Benchmark
+    public int toBundleAndParcel() {
+        Parcel parcel = Parcel.obtain();
+        parcel.writeBundle(directToBundle(object));
+
+        int size = parcel.dataSize();
+        parcel.recycle();
+        return size;
+    }
+
+    /**
+     * Estimate the parceled size without creating or parceling the Bundle, to compare with
+     * {@link #toBundleAndParcel()}.
+     */
+    @Benchmark
+    public int estimateSizeTyped() {
+        return bundler.estimateSize(object);
+    }
+
+}
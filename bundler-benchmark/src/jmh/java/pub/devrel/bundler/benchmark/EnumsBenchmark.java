@@ -0,0 +1,46 @@
+
+/*
+ * Copyright 2017 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pub.devrel.bundler.benchmark;
+
+import android.os.Bundle;
+
+/**
+ * Round-trip benchmarks for {@link EnumsObject}.
+ */
+public class EnumsBenchmark extends BundlerBenchmark<EnumsObject> {
+
+    @Override
+    protected Class<EnumsObject> getObjectClass() {
+        return EnumsObject.class;
+    }
+
+    @Override
+    protected EnumsObject createObject() {
+        return EnumsObject.create();
+    }
+
+    @Override
+    protected Bundle directToBundle(EnumsObject object) {
+        return EnumsObjectBundler.toBundle(object);
+    }
+
+    @Override
+    protected EnumsObject directFromBundle(Bundle bundle) {
+        return EnumsObjectBundler.fromBundle(bundle);
+    }
+
+}
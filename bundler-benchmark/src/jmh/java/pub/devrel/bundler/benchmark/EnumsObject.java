@@ -0,0 +1,42 @@
+/*
+ * Copyright 2017 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pub.devrel.bundler.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import pub.devrel.bundler.BundlerClass;
+
+/**
+ * Object with enum fields, like the mode flags of a screen, stored by name.
+ */
+@BundlerClass
+public class EnumsObject {
+
+    public TimeUnit unit;
+    public Thread.State state;
+    public TimeUnit[] units;
+
+    public EnumsObject() {}
+
+    static EnumsObject create() {
+        EnumsObject object = new EnumsObject();
+        object.unit = TimeUnit.SECONDS;
+        object.state = Thread.State.RUNNABLE;
+        object.units = TimeUnit.values();
+        return object;
+    }
+
+}
@@ -0,0 +1,72 @@
+
+/*
+ * Copyright 2017 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pub.devrel.bundler.benchmark;
+
+import android.os.Bundle;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Setup;
+
+/**
+ * Round-trip benchmarks for {@link LargeObject}.
+ */
+public class LargeBenchmark extends BundlerBenchmark<LargeObject> {
+
+    private Bundle largeBundle;
+
+    @Setup
+    public void setUpLarge() {
+        largeBundle = directToBundle(createObject());
+    }
+
+    @Override
+    protected Class<LargeObject> getObjectClass() {
+        return LargeObject.class;
+    }
+
+    @Override
+    protected LargeObject createObject() {
+        return LargeObject.create();
+    }
+
+    @Override
+    protected Bundle directToBundle(LargeObject object) {
+        return LargeObjectBundler.toBundle(object);
+    }
+
+    @Override
+    protected LargeObject directFromBundle(Bundle bundle) {
+        return LargeObjectBundler.fromBundle(bundle);
+    }
+
+    /**
+     * Restore a single field, as a screen does when it only needs a few fields at first.
+     */
+    @Benchmark
+    public String oneFieldFromBundle() {
+        return LargeObjectBundler.fromBundle(largeBundle).string1;
+    }
+
+    /**
+     * Restore a single field through the lazy view, which does not read the other fields.
+     */
+    @Benchmark
+    public String oneFieldFromView() {
+        return new LargeObjectBundleView(largeBundle).getString1();
+    }
+
+}
@@ -0,0 +1,86 @@
+
+/*
+ * Copyright 2017 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pub.devrel.bundler.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import pub.devrel.bundler.BundlerClass;
+
+/**
+ * Object with many fields of mixed types, to measure the per-field cost of bundling.
+ */
+@BundlerClass(view = true)
+public class LargeObject {
+
+    public int int1;
+    public int int2;
+    public int int3;
+    public int int4;
+    public long long1;
+    public long long2;
+    public long long3;
+    public long long4;
+    public double double1;
+    public double double2;
+    public float float1;
+    public float float2;
+    public boolean boolean1;
+    public boolean boolean2;
+    public String string1;
+    public String string2;
+    public String string3;
+    public String string4;
+    public String string5;
+    public String string6;
+    public int[] ints;
+    public String[] strings;
+    public ArrayList<String> stringList;
+    public ArrayList<Integer> integerList;
+
+    public LargeObject() {}
+
+    static LargeObject create() {
+        LargeObject object = new LargeObject();
+        object.int1 = 1;
+        object.int2 = 2;
+        object.int3 = 3;
+        object.int4 = 4;
+        object.long1 = 1L;
+        object.long2 = 2L;
+        object.long3 = 3L;
+        object.long4 = 4L;
+        object.double1 = 1.0;
+        object.double2 = 2.0;
+        object.float1 = 1.0f;
+        object.float2 = 2.0f;
+        object.boolean1 = true;
+        object.boolean2 = false;
+        object.string1 = "string1";
+        object.string2 = "string2";
+        object.string3 = "string3";
+        object.string4 = "string4";
+        object.string5 = "string5";
+        object.string6 = "string6";
+        object.ints = new int[] {1, 2, 3, 4, 5, 6, 7, 8};
+        object.strings = new String[] {"a", "b", "c", "d"};
+        object.stringList = new ArrayList<>(Arrays.asList("a", "b", "c", "d"));
+        object.integerList = new ArrayList<>(Arrays.asList(1, 2, 3, 4));
+        return object;
+    }
+
+}
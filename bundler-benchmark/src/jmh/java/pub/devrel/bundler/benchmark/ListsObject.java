@@ -0,0 +1,47 @@
+
+/*
+ * Copyright 2017 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pub.devrel.bundler.benchmark;
+
+import java.util.ArrayList;
+
+import pub.devrel.bundler.BundlerClass;
+
+/**
+ * Object with ArrayList fields of the types Bundle supports directly.
+ */
+@BundlerClass
+public class ListsObject {
+
+    private static final int SIZE = 64;
+
+    public ArrayList<String> strings;
+    public ArrayList<Integer> integers;
+
+    public ListsObject() {}
+
+    static ListsObject create() {
+        ListsObject object = new ListsObject();
+        object.strings = new ArrayList<>(SIZE);
+        object.integers = new ArrayList<>(SIZE);
+        for (int i = 0; i < SIZE; i++) {
+            object.strings.add("string" + i);
+            object.integers.add(i);
+        }
+        return object;
+    }
+
+}
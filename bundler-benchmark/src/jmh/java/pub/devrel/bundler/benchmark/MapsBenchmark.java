@@ -0,0 +1,45 @@
+/*
+ * Copyright 2017 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pub.devrel.bundler.benchmark;
+
+import android.os.Bundle;
+
+/**
+ * Round-trip benchmarks for {@link MapsObject}.
+ */
+public class MapsBenchmark extends BundlerBenchmark<MapsObject> {
+
+    @Override
+    protected Class<MapsObject> getObjectClass() {
+        return MapsObject.class;
+    }
+
+    @Override
+    protected MapsObject createObject() {
+        return MapsObject.create();
+    }
+
+    @Override
+    protected Bundle directToBundle(MapsObject object) {
+        return MapsObjectBundler.toBundle(object);
+    }
+
+    @Override
+    protected MapsObject directFromBundle(Bundle bundle) {
+        return MapsObjectBundler.fromBundle(bundle);
+    }
+
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2017 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pub.devrel.bundler.benchmark;
+
+import java.util.HashMap;
+import java.util.TreeMap;
+
+import pub.devrel.bundler.BundlerClass;
+
+/**
+ * Object with map fields, stored as columns of keys and values. The String map holds the same
+ * entries as {@link SerializableObject}, which is serialized instead.
+ */
+@BundlerClass
+public class MapsObject {
+
+    private static final int SIZE = 16;
+
+    public HashMap<String, Integer> map;
+    public TreeMap<Integer, String> sortedMap;
+
+    public MapsObject() {}
+
+    static MapsObject create() {
+        MapsObject object = new MapsObject();
+        object.map = new HashMap<>();
+        object.sortedMap = new TreeMap<>();
+        for (int i = 0; i < SIZE; i++) {
+            object.map.put("key" + i, i);
+            object.sortedMap.put(i, "value" + i);
+        }
+        return object;
+    }
+
+}
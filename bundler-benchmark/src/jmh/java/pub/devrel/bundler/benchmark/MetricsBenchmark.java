@@ -0,0 +1,66 @@
+/*
+ * Copyright 2017 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pub.devrel.bundler.benchmark;
+
+import android.os.Bundle;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import pub.devrel.bundler.BundlerMetrics;
+import pub.devrel.bundler.EasyBundler;
+
+/**
+ * Measures the overhead of recording {@link BundlerMetrics} on each conversion through
+ * {@link EasyBundler}, compared with no listener at all.
+ */
+@State(Scope.Thread)
+public class MetricsBenchmark {
+
+    @Param({"false", "true"})
+    public boolean metrics;
+
+    private SmallObject object;
+    private Bundle bundle;
+
+    @Setup
+    public void setUp() {
+        EasyBundler.setListener(metrics ? new BundlerMetrics() : null);
+
+        object = SmallObject.create();
+        bundle = EasyBundler.toBundle(object);
+    }
+
+    @TearDown
+    public void tearDown() {
+        EasyBundler.setListener(null);
+    }
+
+    @Benchmark
+    public Bundle toBundle() {
+        return EasyBundler.toBundle(object);
+    }
+
+    @Benchmark
+    public SmallObject fromBundle() {
+        return EasyBundler.fromBundle(bundle, SmallObject.class);
+    }
+
+}
@@ -0,0 +1,84 @@
+
+/*
+ * Copyright 2017 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pub.devrel.bundler.benchmark;
+
+import pub.devrel.bundler.BundlerClass;
+
+/**
+ * Object with one field of every primitive type, half of them behind getters and setters.
+ */
+@BundlerClass
+public class PrimitivesObject {
+
+    public boolean booleanValue;
+    public byte byteValue;
+    public char charValue;
+    public short shortValue;
+
+    private int intValue;
+    private long longValue;
+    private float floatValue;
+    private double doubleValue;
+
+    public PrimitivesObject() {}
+
+    static PrimitivesObject create() {
+        PrimitivesObject object = new PrimitivesObject();
+        object.booleanValue = true;
+        object.byteValue = 1;
+        object.charValue = 'c';
+        object.shortValue = 2;
+        object.intValue = 3;
+        object.longValue = 4L;
+        object.floatValue = 5.0f;
+        object.doubleValue = 6.0;
+        return object;
+    }
+
+    public int getIntValue() {
+        return intValue;
+    }
+
+    public void setIntValue(int intValue) {
+        this.intValue = intValue;
+    }
+
+    public long getLongValue() {
+        return longValue;
+    }
+
+    public void setLongValue(long longValue) {
+        this.longValue = longValue;
+    }
+
+    public float getFloatValue() {
+        return floatValue;
+    }
+
+    public void setFloatValue(float floatValue) {
+        this.floatValue = floatValue;
+    }
+
+    public double getDoubleValue() {
+        return doubleValue;
+    }
+
+    public void setDoubleValue(double doubleValue) {
+        this.doubleValue = doubleValue;
+    }
+
+}
@@ -0,0 +1,48 @@
+
+/*
+ * Copyright 2017 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pub.devrel.bundler.benchmark;
+
+import java.util.Date;
+import java.util.HashMap;
+
+import pub.devrel.bundler.BundlerClass;
+
+/**
+ * Object whose fields can only be bundled as {@link java.io.Serializable}.
+ */
+@BundlerClass
+public class SerializableObject {
+
+    private static final int SIZE = 16;
+
+    // Number can not be stored in an array, so unlike MapsObject this map is serialized
+    public Date date;
+    public HashMap<String, Number> map;
+
+    public SerializableObject() {}
+
+    static SerializableObject create() {
+        SerializableObject object = new SerializableObject();
+        object.date = new Date(1483228800000L);
+        object.map = new HashMap<>();
+        for (int i = 0; i < SIZE; i++) {
+            object.map.put("key" + i, i);
+        }
+        return object;
+    }
+
+}
@@ -0,0 +1,41 @@
+
+/*
+ * Copyright 2017 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pub.devrel.bundler.benchmark;
+
+import pub.devrel.bundler.BundlerClass;
+
+/**
+ * Small object with a handful of public fields.
+ */
+@BundlerClass
+public class SmallObject {
+
+    public int id;
+    public String name;
+    public boolean enabled;
+
+    public SmallObject() {}
+
+    static SmallObject create() {
+        SmallObject object = new SmallObject();
+        object.id = 42;
+        object.name = "small";
+        object.enabled = true;
+        return object;
+    }
+
+}
@@ -0,0 +1,119 @@
+
+/*
+ * Copyright 2017 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pub.devrel.bundler.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+
+/**
+ * File manager that keeps everything javac and the processor write in memory, so that disk
+ * I/O does not show up in {@link ProcessorBenchmark} results.
+ */
+class InMemoryFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+
+    private final List<OutputFile> outputs = new ArrayList<>();
+
+    InMemoryFileManager(StandardJavaFileManager fileManager) {
+        super(fileManager);
+    }
+
+    /**
+     * Create an in-memory source file for a class.
+     */
+    static JavaFileObject source(String className, final String content) {
+        URI uri = URI.create("mem:///" + className.replace('.', '/') + ".java");
+        return new SimpleJavaFileObject(uri, JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return content;
+            }
+        };
+    }
+
+    /**
+     * Number of bytes written so far by javac and the processor.
+     */
+    long getOutputSize() {
+        long size = 0;
+        for (OutputFile output : outputs) {
+            size += output.content.size();
+        }
+        return size;
+    }
+
+    /**
+     * Discard everything written so far.
+     */
+    void reset() {
+        outputs.clear();
+    }
+
+    @Override
+    public JavaFileObject getJavaFileForOutput(Location location, String className,
+                                               JavaFileObject.Kind kind, FileObject sibling) {
+        URI uri = URI.create("mem:///" + className.replace('.', '/') + kind.extension);
+        return add(new OutputFile(uri, kind));
+    }
+
+    @Override
+    public FileObject getFileForOutput(Location location, String packageName,
+                                       String relativeName, FileObject sibling) {
+        URI uri = URI.create("mem:///" + packageName.replace('.', '/') + "/" + relativeName);
+        return add(new OutputFile(uri, JavaFileObject.Kind.OTHER));
+    }
+
+    @Override
+    public boolean isSameFile(FileObject a, FileObject b) {
+        return a.toUri().equals(b.toUri());
+    }
+
+    private OutputFile add(OutputFile output) {
+        outputs.add(output);
+        return output;
+    }
+
+    private static class OutputFile extends SimpleJavaFileObject {
+
+        private final ByteArrayOutputStream content = new ByteArrayOutputStream();
+
+        OutputFile(URI uri, Kind kind) {
+            super(uri, kind);
+        }
+
+        @Override
+        public OutputStream openOutputStream() {
+            content.reset();
+            return content;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return content.toString();
+        }
+
+    }
+
+}
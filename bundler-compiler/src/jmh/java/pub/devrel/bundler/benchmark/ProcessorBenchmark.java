@@ -0,0 +1,198 @@
+
+/*
+ * Copyright 2017 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pub.devrel.bundler.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.processing.Completion;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.Processor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.ToolProvider;
+
+import pub.devrel.bundler.BundlerClassProcessor;
+
+/**
+ * Measures how the annotation processor scales with the number of {@code @BundlerClass} types
+ * and fields, by running javac in-process over synthesized sources.
+ * <p>
+ * Both benchmarks run javac with {@code -proc:only}, so {@link #parseOnly()} is the cost of
+ * parsing and entering the sources and the difference to {@link #process()} is the cost of
+ * {@link BundlerClassProcessor}, including parsing the files it generates. The time spent inside
+ * the processor itself is also printed per class at the end of each trial. Run with
+ * {@code -prof gc} (the Gradle build does this by default) to see allocation per compilation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ProcessorBenchmark {
+
+    private static final List<String> OPTIONS = Arrays.asList("-proc:only", "-Xlint:none");
+
+    @Param({"10", "100"})
+    public int classCount;
+
+    @Param({"5", "50"})
+    public int fieldCount;
+
+    private JavaCompiler compiler;
+    private InMemoryFileManager fileManager;
+    private List<JavaFileObject> sources;
+
+    private long processorNanos;
+    private long processorRuns;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IllegalStateException("The benchmark must run on a JDK, not a JRE.");
+        }
+
+        fileManager = new InMemoryFileManager(
+                compiler.getStandardFileManager(null, Locale.ROOT, null));
+        sources = SourceGenerator.generate(classCount, fieldCount);
+
+        // Fail fast if the synthesized sources do not process cleanly
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        if (!compile(new BundlerClassProcessor(), diagnostics)) {
+            throw new IllegalStateException("Processing failed: " + diagnostics.getDiagnostics());
+        }
+
+        processorNanos = 0;
+        processorRuns = 0;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (processorRuns > 0) {
+            double perClass = (double) processorNanos / processorRuns / classCount / 1000.0;
+            System.out.println(String.format(Locale.ROOT,
+                    "%nBundlerClassProcessor: %.1f us/class (%d classes, %d fields, %d runs)",
+                    perClass, classCount, fieldCount, processorRuns));
+        }
+
+        fileManager.close();
+    }
+
+    @Benchmark
+    public long parseOnly() {
+        compile(null, null);
+        return fileManager.getOutputSize();
+    }
+
+    @Benchmark
+    public long process() {
+        TimedProcessor processor = new TimedProcessor(new BundlerClassProcessor());
+        compile(processor, null);
+
+        processorNanos += processor.nanos;
+        processorRuns++;
+        return fileManager.getOutputSize();
+    }
+
+    private boolean compile(Processor processor,
+                            DiagnosticCollector<JavaFileObject> diagnostics) {
+        fileManager.reset();
+
+        JavaCompiler.CompilationTask task =
+                compiler.getTask(null, fileManager, diagnostics, OPTIONS, null, sources);
+        List<Processor> processors = processor != null
+                ? Collections.singletonList(processor)
+                : Collections.<Processor>emptyList();
+        task.setProcessors(processors);
+
+        return task.call();
+    }
+
+    /**
+     * Processor that delegates to another one and keeps track of the time spent in
+     * {@link Processor#process(Set, RoundEnvironment)}.
+     */
+    private static class TimedProcessor implements Processor {
+
+        private final Processor delegate;
+        private long nanos;
+
+        TimedProcessor(Processor delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Set<String> getSupportedOptions() {
+            return delegate.getSupportedOptions();
+        }
+
+        @Override
+        public Set<String> getSupportedAnnotationTypes() {
+            return delegate.getSupportedAnnotationTypes();
+        }
+
+        @Override
+        public SourceVersion getSupportedSourceVersion() {
+            return delegate.getSupportedSourceVersion();
+        }
+
+        @Override
+        public void init(ProcessingEnvironment processingEnv) {
+            delegate.init(processingEnv);
+        }
+
+        @Override
+        public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+            long start = System.nanoTime();
+            boolean claimed = delegate.process(annotations, roundEnv);
+            nanos += System.nanoTime() - start;
+            return claimed;
+        }
+
+        @Override
+        public Iterable<? extends Completion> getCompletions(Element element,
+                                                             AnnotationMirror annotation,
+                                                             ExecutableElement member,
+                                                             String userText) {
+            return delegate.getCompletions(element, annotation, member, userText);
+        }
+
+    }
+
+}
@@ -0,0 +1,122 @@
+
+/*
+ * Copyright 2017 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pub.devrel.bundler.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.tools.JavaFileObject;
+
+/**
+ * Synthesizes {@code @BundlerClass} sources for {@link ProcessorBenchmark}, along with
+ * minimal stand-ins for the Android and bundler-api types that the generated code refers to.
+ */
+class SourceGenerator {
+
+    private static final String PACKAGE = "bench";
+
+    // Field types cycled through by each class, covering every branch of the Bundle method
+    // lookup from primitives to the Serializable fallback
+    private static final String[] FIELD_TYPES = {
+            "int",
+            "long",
+            "double",
+            "boolean",
+            "String",
+            "CharSequence",
+            "int[]",
+            "String[]",
+            "java.util.ArrayList<String>",
+            "java.util.ArrayList<Integer>",
+            "android.os.Bundle",
+            "java.util.Date",
+    };
+
+    private static final String[][] STUBS = {
+            {"android.os.Parcelable", "package android.os; public interface Parcelable {}"},
+            {"android.os.IBinder", "package android.os; public interface IBinder {}"},
+            {"android.os.Bundle", "package android.os; public final class Bundle implements Parcelable {}"},
+            {"pub.devrel.bundler.Bundler",
+                    "package pub.devrel.bundler; import android.os.Bundle;"
+                            + " public interface Bundler<T> {"
+                            + " Bundle toBundle(T object);"
+                            + " Bundle updateBundle(T object, Bundle bundle);"
+                            + " T fromBundle(Bundle bundle);"
+                            + " T into(Bundle bundle, T target);"
+                            + " T into(Bundle bundle, T target, boolean skipMissing);"
+                            + " Bundle toColumns(java.util.List<T> objects);"
+                            + " java.util.ArrayList<T> fromColumns(Bundle bundle); }"},
+    };
+
+    private SourceGenerator() {}
+
+    /**
+     * Create the sources for {@code classCount} classes with {@code fieldCount} fields each.
+     * Every third field is private with a getter and setter, and from the second class on the
+     * last field refers to the previous class so that nested Bundlers are exercised too.
+     */
+    static List<JavaFileObject> generate(int classCount, int fieldCount) {
+        List<JavaFileObject> sources = new ArrayList<>();
+        for (String[] stub : STUBS) {
+            sources.add(InMemoryFileManager.source(stub[0], stub[1]));
+        }
+
+        for (int i = 0; i < classCount; i++) {
+            String className = "State" + i;
+            sources.add(InMemoryFileManager.source(
+                    PACKAGE + "." + className, generateClass(i, fieldCount)));
+        }
+
+        return sources;
+    }
+
+    private static String generateClass(int index, int fieldCount) {
+        String className = "State" + index;
+
+        StringBuilder fields = new StringBuilder();
+        StringBuilder accessors = new StringBuilder();
+        for (int i = 0; i < fieldCount; i++) {
+            String type = FIELD_TYPES[i % FIELD_TYPES.length];
+            if (index > 0 && i == fieldCount - 1) {
+                type = "State" + (index - 1);
+            }
+
+            String name = "field" + i;
+            if (i % 3 == 2) {
+                String capitalized = "Field" + i;
+                fields.append("    private ").append(type).append(' ').append(name).append(";\n");
+                accessors.append("    public ").append(type).append(" get").append(capitalized)
+                        .append("() { return ").append(name).append("; }\n");
+                accessors.append("    public void set").append(capitalized).append('(')
+                        .append(type).append(" value) { this.").append(name)
+                        .append(" = value; }\n");
+            } else {
+                fields.append("    public ").append(type).append(' ').append(name).append(";\n");
+            }
+        }
+
+        return "package " + PACKAGE + ";\n"
+                + "\n"
+                + "@pub.devrel.bundler.BundlerClass\n"
+                + "public class " + className + " {\n"
+                + fields
+                + "    public " + className + "() {}\n"
+                + accessors
+                + "}\n";
+    }
+
+}
@@ -15,14 +15,33 @@
  */
 package pub.devrel.bundler;
 
+import com.squareup.javapoet.AnnotationSpec;
+import com.squareup.javapoet.ArrayTypeName;
 import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
 import com.squareup.javapoet.JavaFile;
 import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
 import com.squareup.javapoet.TypeSpec;
+import com.squareup.javapoet.TypeVariableName;
+import com.squareup.javapoet.WildcardTypeName;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
 import javax.annotation.processing.ProcessingEnvironment;
 import javax.lang.model.element.Element;
@@ -43,517 +62,2796 @@ import javax.tools.Diagnostic;
  */
 public class Bundler {
 
-    /** Policy for matching two types. **/
-    private enum MatchPolicy {
-        // Types must be the same
-        EXACT,
+    // Access the Bundle class like this since we don't have the ability to get Android classes
+    // in this Java module
+    private static final ClassName BUNDLE_CLASS = ClassName.get("android.os", "Bundle");
+
+    // Classes used by the generated Parcelable wrapper
+    private static final ClassName PARCEL_CLASS = ClassName.get("android.os", "Parcel");
+    private static final ClassName PARCELABLE_CLASS = ClassName.get("android.os", "Parcelable");
+    private static final ClassName CREATOR_CLASS =
+            ClassName.get("android.os", "Parcelable", "Creator");
+
+    // The typed Bundler interface from the bundler-api module
+    private static final ClassName BUNDLER_INTERFACE = ClassName.get("pub.devrel.bundler", "Bundler");
+
+    // Size estimates of parceled values, from the bundler-api module
+    private static final ClassName BUNDLE_SIZES_CLASS =
+            ClassName.get("pub.devrel.bundler", "BundleSizes");
+
+    // Keys of the column-wise list format that can not clash with field keys, since '#' is not
+    // valid in a field name
+    private static final String COLUMNS_SIZE_KEY = "#size";
+    private static final String COLUMNS_NULLS_KEY = "#nulls";
+
+    // Keys of the key and value columns of sparse arrays and maps stored as a Bundle
+    private static final String KEYS_KEY = "keys";
+    private static final String VALUES_KEY = "values";
+
+    // Key of the comparator of a sorted map, stored next to its key and value columns
+    private static final String COMPARATOR_KEY = "comparator";
+
+    // Key of a sorted map stored whole, in place of the columns, when its comparator is not
+    // Serializable
+    private static final String MAP_KEY = "map";
+
+    private ProcessingEnvironment environment;
+    private BundlerTypes types;
+    private BundlerClassInfo info;
+
+    // Class of the Bundle in generated code, android.os.Bundle unless another was set with a
+    // processor option
+    private ClassName bundleClass;
+
+    // Static helpers converting field values to and from the types stored in the Bundle, such
+    // as primitive arrays for collections of boxed primitives, by name. They are added to the
+    // generated Bundler class as they are used
+    private Map<String, MethodSpec> helpers = new LinkedHashMap<>();
+
+    // Cached values() arrays of the enums stored by ordinal, by name
+    private Map<String, FieldSpec> enumValuesFields = new LinkedHashMap<>();
+
+    // Names of the generated key constants, by field. Different field names can have the same
+    // constant name, such as fooBar and foo_bar, so later fields get a numbered suffix
+    private Map<BundlerField, String> keyNames = new HashMap<>();
+
+    public Bundler(ProcessingEnvironment environment, BundlerTypes types, BundlerClassInfo info) {
+        this.environment = environment;
+        this.types = types;
+        this.info = info;
+        this.bundleClass = info.bundleClass;
+
+        // Ex: KEY_FOO_BAR for fooBar and KEY_FOO_BAR_2 for foo_bar
+        Set<String> usedKeyNames = new HashSet<>();
+        for (BundlerField field : info.applicableFields) {
+            String keyName = "KEY_" + getConstantName(field.name);
+            for (int i = 2; !usedKeyNames.add(keyName); i++) {
+                keyName = "KEY_" + getConstantName(field.name) + "_" + i;
+            }
+            keyNames.put(field, keyName);
+        }
+
+        // Report fields that can not be bundled once, rather than each time they are used
+        for (BundlerField field : info.applicableFields) {
+            if (field.suffix == null) {
+                String message = "[EasyBundler] Field " + field.name + " in class "
+                        + info.className + " cannot be included in bundle: unknown type "
+                        + field.type;
+                environment.getMessager().printMessage(Diagnostic.Kind.ERROR, message);
+            }
+
+            if ("Serializable".equals(field.suffix)) {
+                checkSerializable(field);
+            }
+        }
+
+        checkConstructor();
+
+        // into() can only restore the fields that can be set on an existing instance
+        for (BundlerField field : info.applicableFields) {
+            if (!field.isWritable) {
+                environment.getMessager().printMessage(Diagnostic.Kind.NOTE,
+                        "[EasyBundler] Field " + field.name + " in class " + info.className
+                                + " is only set by the @BundlerConstructor, so into() leaves "
+                                + "it unchanged", field.element);
+            }
+        }
+
+        // The Parcelable wrapper needs the Android Parcel classes
+        if (info.parcelable && !isAndroidBundle()) {
+            printError("Class " + info.className + " can not be parcelable when "
+                    + "generating code for " + bundleClass);
+        }
+    }
+
+    /**
+     * Report a warning or an error on a field that falls back to Java serialization, depending
+     * on the {@code SerializablePolicy} of the class.
+     */
+    private void checkSerializable(BundlerField field) {
+        Diagnostic.Kind kind;
+        if ("WARN".equals(info.serializablePolicy)) {
+            kind = Diagnostic.Kind.WARNING;
+        } else if ("ERROR".equals(info.serializablePolicy)) {
+            kind = Diagnostic.Kind.ERROR;
+        } else {
+            return;
+        }
+
+        String message = "[EasyBundler] Field " + field.name + " in class " + info.className
+                + " is stored as Serializable, which is slow: " + getSerializableSuggestion(field);
+        environment.getMessager().printMessage(kind, message, field.element);
+    }
+
+    /**
+     * Returns a suggestion for storing a field more efficiently than as Serializable.
+     */
+    private String getSerializableSuggestion(BundlerField field) {
+        TypeMirror type = field.type;
+        if (type.getKind() == TypeKind.ARRAY) {
+            return "use an array of primitives, String or CharSequence, or of a Parcelable type";
+        }
+
+        if (types.isSubtypeOf(type, "java.util.Map")) {
+            return "use a Map, HashMap, LinkedHashMap, SortedMap or TreeMap whose keys and "
+                    + "values are boxed primitives, String, CharSequence, Parcelable or "
+                    + "@BundlerClass types";
+        } else if (types.isSubtypeOf(type, "java.util.Collection")) {
+            return "use a List or Set of boxed primitives, an ArrayList of String or "
+                    + "CharSequence, or a List of a @BundlerClass type";
+        } else if (types.isSubtypeOf(type, "java.util.Date")) {
+            return "store getTime() in a long field";
+        }
+
+        return "annotate " + type + " with @BundlerClass to store it as a nested Bundle, or make "
+                + "it Parcelable";
+    }
+
+    /**
+     * Report an error if the class can not be instantiated: it needs either a default
+     * constructor, or exactly one valid {@code BundlerConstructor}.
+     */
+    private void checkConstructor() {
+        if (info.bundlerConstructors.isEmpty()) {
+            // Ensure the class has an empty constructor
+            boolean hasEmptyConstructor = false;
+            for (Element e : info.typeElement.getEnclosedElements()) {
+                if (e.getKind() == ElementKind.CONSTRUCTOR) {
+                    boolean isEmptyConstructor =
+                            ((ExecutableElement) e).getParameters().isEmpty();
+                    hasEmptyConstructor = hasEmptyConstructor || isEmptyConstructor;
+                }
+            }
+
+            if (!hasEmptyConstructor) {
+                printError("Type " + info.className + " does not have default constructor!");
+            }
+            return;
+        }
+
+        if (info.bundlerConstructors.size() > 1) {
+            printError("Type " + info.className + " has more than one @BundlerConstructor");
+            return;
+        }
+
+        ExecutableElement constructor = info.bundlerConstructors.get(0);
+        if (constructor.getKind() == ElementKind.METHOD) {
+            // Factory methods must be static and return an instance of the class
+            boolean isStatic = constructor.getModifiers().contains(Modifier.STATIC);
+            boolean returnsClass = environment.getTypeUtils()
+                    .isSameType(constructor.getReturnType(), info.typeElement.asType());
+            if (!isStatic || !returnsClass) {
+                printError("@BundlerConstructor method " + constructor.getSimpleName() + " in "
+                        + info.className + " must be static and return " + info.className);
+            }
+        }
+
+        // Each parameter must match a field that can be read to put it in the Bundle
+        for (VariableElement parameter : constructor.getParameters()) {
+            BundlerField field = info.getApplicableField(parameter.getSimpleName().toString());
+            if (field == null || !environment.getTypeUtils()
+                    .isSameType(field.type, parameter.asType())) {
+                printError("Parameter " + parameter.getSimpleName()
+                        + " of @BundlerConstructor in " + info.className
+                        + " does not match a readable field with the same name and type");
+            }
+        }
+    }
+
+    private void printError(String message) {
+        environment.getMessager().printMessage(Diagnostic.Kind.ERROR, "[EasyBundler] " + message);
+    }
+
+    /**
+     * Returns the fully qualified name of the generated class. Ex: com.foo.far.BazBundler.
+     */
+    public String getQualifiedBundlerClassName() {
+        return info.className.packageName() + "." + getBundlerClassName();
+    }
+
+    /**
+     * Returns the simple class name of the generate class. Ex: BazBundler.
+     */
+    public String getBundlerClassName() {
+        return info.className.simpleName() + "Bundler";
+    }
+
+    /**
+     * Returns the {@link ClassName} of the generated class.
+     */
+    public ClassName getBundlerClass() {
+        return ClassName.get(info.className.packageName(), getBundlerClassName());
+    }
+
+    /**
+     * Returns the {@link ClassName} of the annotated class.
+     */
+    public ClassName getAnnotatedClass() {
+        return info.className;
+    }
+
+    /**
+     * Returns {@code true} if the annotated class can be referenced from other packages.
+     */
+    public boolean isAnnotatedClassPublic() {
+        return info.typeElement.getModifiers().contains(Modifier.PUBLIC);
+    }
+
+    /**
+     * Returns the Bundle method suffix of each field included in the bundle, by field name.
+     * Ex: { "someField": "String" }.
+     */
+    public Map<String, String> getFieldSuffixes() {
+        Map<String, String> result = new LinkedHashMap<>();
+        for (BundlerField field : info.applicableFields) {
+            result.put(field.name, field.suffix);
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the names of non-static fields that are not included in the bundle because
+     * they are not public and do not have a getter and setter.
+     */
+    public List<String> getSkippedFieldNames() {
+        List<String> result = new ArrayList<>();
+        for (VariableElement field : info.skippedFields) {
+            result.add(field.getSimpleName().toString());
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns {@code true} if a Parcelable wrapper should be generated for the class.
+     */
+    public boolean hasParcelClass() {
+        return info.parcelable && isAndroidBundle();
+    }
+
+    /**
+     * Returns {@code true} if the generated code uses {@code android.os.Bundle}. Otherwise it
+     * only has the static methods, without the parts of bundler-api that need Android: the
+     * {@code INSTANCE} implementing the Bundler interface and the size estimates.
+     */
+    private boolean isAndroidBundle() {
+        return BUNDLE_CLASS.equals(bundleClass);
+    }
+
+    /**
+     * Returns the fully qualified name of the generated Parcelable wrapper.
+     * Ex: com.foo.far.BazParcel.
+     */
+    public String getQualifiedParcelClassName() {
+        return info.className.packageName() + "." + getParcelClassName();
+    }
+
+    /**
+     * Returns the simple class name of the generated Parcelable wrapper. Ex: BazParcel.
+     */
+    public String getParcelClassName() {
+        return info.className.simpleName() + "Parcel";
+    }
+
+    /**
+     * Returns {@code true} if a lazy Bundle view should be generated for the class.
+     */
+    public boolean hasViewClass() {
+        return info.view;
+    }
+
+    /**
+     * Returns the fully qualified name of the generated Bundle view.
+     * Ex: com.foo.far.BazBundleView.
+     */
+    public String getQualifiedViewClassName() {
+        return info.className.packageName() + "." + getViewClassName();
+    }
+
+    /**
+     * Returns the simple class name of the generated Bundle view. Ex: BazBundleView.
+     */
+    public String getViewClassName() {
+        return info.className.simpleName() + "BundleView";
+    }
+
+    /**
+     * Process the BundlerClass and return the source of a generated Bundler class, as a String.
+     * The output of this method is intended for writing to a ".java" file.
+     */
+    public String getBundlerClassSource() {
+        // Create class named {FooObject}Bundler
+        TypeSpec.Builder builder = TypeSpec.classBuilder(getBundlerClassName())
+                .addModifiers(Modifier.PUBLIC, Modifier.FINAL);
+
+        // Declare the Bundle keys as constants, shared by all methods and usable by callers
+        for (BundlerField field : info.applicableFields) {
+            builder.addField(createKeyField(field));
+        }
+
+        if (isAndroidBundle()) {
+            builder.addField(createInstanceField());
+        }
+
+        builder.addMethod(createToBundleMethod())
+                .addMethod(createUpdateBundleMethod())
+                .addMethod(createFromBundleMethod())
+                .addMethod(createIntoMethod())
+                .addMethod(createIntoSkipMissingMethod())
+                .addMethod(createToColumnsMethod())
+                .addMethod(createFromColumnsMethod());
+
+        if (isAndroidBundle()) {
+            builder.addMethod(createEstimateSizeMethod())
+                    .addMethod(createEstimateFieldSizesMethod())
+                    .addMethod(createEstimateColumnsSizeMethod());
+        }
+
+        // Helpers are known once every method has been created
+        for (MethodSpec helper : helpers.values()) {
+            builder.addMethod(helper);
+        }
+        for (FieldSpec field : enumValuesFields.values()) {
+            builder.addField(field);
+        }
+
+        TypeSpec bundlerType = builder.build();
+
+        JavaFile javaFile = JavaFile.builder(info.className.packageName(), bundlerType)
+                .build();
+
+        return javaFile.toString();
+    }
+
+    /**
+     * Create the "INSTANCE" field, an implementation of the Bundler interface that delegates
+     * to the static methods of the generated class.
+     */
+    private FieldSpec createInstanceField() {
+        TypeName bundlerType = ParameterizedTypeName.get(BUNDLER_INTERFACE, info.className);
+
+        TypeSpec instanceType = TypeSpec.anonymousClassBuilder("")
+                .addSuperinterface(bundlerType)
+                .addMethod(MethodSpec.methodBuilder("toBundle")
+                        .addAnnotation(Override.class)
+                        .addModifiers(Modifier.PUBLIC)
+                        .addParameter(info.className, "object")
+                        .returns(bundleClass)
+                        .addStatement("return $T.toBundle(object)", getBundlerClass())
+                        .build())
+                .addMethod(MethodSpec.methodBuilder("updateBundle")
+                        .addAnnotation(Override.class)
+                        .addModifiers(Modifier.PUBLIC)
+                        .addParameter(info.className, "object")
+                        .addParameter(bundleClass, "bundle")
+                        .returns(bundleClass)
+                        .addStatement("return $T.updateBundle(object, bundle)", getBundlerClass())
+                        .build())
+                .addMethod(MethodSpec.methodBuilder("fromBundle")
+                        .addAnnotation(Override.class)
+                        .addModifiers(Modifier.PUBLIC)
+                        .addParameter(bundleClass, "bundle")
+                        .returns(info.className)
+                        .addStatement("return $T.fromBundle(bundle)", getBundlerClass())
+                        .build())
+                .addMethod(MethodSpec.methodBuilder("into")
+                        .addAnnotation(Override.class)
+                        .addModifiers(Modifier.PUBLIC)
+                        .addParameter(bundleClass, "bundle")
+                        .addParameter(info.className, "target")
+                        .returns(info.className)
+                        .addStatement("return $T.into(bundle, target)", getBundlerClass())
+                        .build())
+                .addMethod(MethodSpec.methodBuilder("into")
+                        .addAnnotation(Override.class)
+                        .addModifiers(Modifier.PUBLIC)
+                        .addParameter(bundleClass, "bundle")
+                        .addParameter(info.className, "target")
+                        .addParameter(boolean.class, "skipMissing")
+                        .returns(info.className)
+                        .addStatement("return $T.into(bundle, target, skipMissing)",
+                                getBundlerClass())
+                        .build())
+                .addMethod(MethodSpec.methodBuilder("toColumns")
+                        .addAnnotation(Override.class)
+                        .addModifiers(Modifier.PUBLIC)
+                        .addParameter(getListType(), "objects")
+                        .returns(bundleClass)
+                        .addStatement("return $T.toColumns(objects)", getBundlerClass())
+                        .build())
+                .addMethod(MethodSpec.methodBuilder("fromColumns")
+                        .addAnnotation(Override.class)
+                        .addModifiers(Modifier.PUBLIC)
+                        .addParameter(bundleClass, "bundle")
+                        .returns(getArrayListType())
+                        .addStatement("return $T.fromColumns(bundle)", getBundlerClass())
+                        .build())
+                .addMethod(MethodSpec.methodBuilder("estimateSize")
+                        .addAnnotation(Override.class)
+                        .addModifiers(Modifier.PUBLIC)
+                        .addParameter(info.className, "object")
+                        .returns(int.class)
+                        .addStatement("return $T.estimateSize(object)", getBundlerClass())
+                        .build())
+                .addMethod(MethodSpec.methodBuilder("estimateFieldSizes")
+                        .addAnnotation(Override.class)
+                        .addModifiers(Modifier.PUBLIC)
+                        .addParameter(info.className, "object")
+                        .returns(getFieldSizesType())
+                        .addStatement("return $T.estimateFieldSizes(object)", getBundlerClass())
+                        .build())
+                .build();
+
+        return FieldSpec.builder(bundlerType, "INSTANCE")
+                .addModifiers(Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL)
+                .initializer("$L", instanceType)
+                .build();
+    }
+
+    /**
+     * Create the "fromBundle" method that accepts a Bundle and returns a member
+     * of the wrapped class.
+     */
+    private MethodSpec createFromBundleMethod() {
+        MethodSpec.Builder builder = MethodSpec.methodBuilder("fromBundle")
+                .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                .addParameter(bundleClass, "bundle")
+                .returns(info.className);
+
+        // Null bundles become null objects, so that nested objects can be null
+        builder.beginControlFlow("if (bundle == null)")
+                .addStatement("return null")
+                .endControlFlow();
+
+        if (info.bundlerConstructors.isEmpty()) {
+            // Create a new instance of the object and populate it
+            builder.addStatement("$T object = new $T()", info.className, info.className);
+            builder.addStatement("return into(bundle, object)");
+        } else {
+            // Read every value first, then pass them to the BundlerConstructor
+            Map<BundlerField, CodeBlock> values = new LinkedHashMap<>();
+            for (BundlerField field : info.applicableFields) {
+                values.put(field, getBundleValue(field));
+            }
+
+            addCreateWithConstructor(builder, values);
+            builder.addStatement("return object");
+        }
+
+        return builder.build();
+    }
+
+    /**
+     * Add statements that create an instance named "object" with the {@code BundlerConstructor}
+     * of the class. Each value is first read into a local, in field order, then the parameters
+     * are passed to the constructor and the remaining fields are set on the new instance.
+     */
+    private void addCreateWithConstructor(MethodSpec.Builder builder,
+                                          Map<BundlerField, CodeBlock> values) {
+        // Ex: String someFieldValue = (String) bundle.getString(KEY_SOME_FIELD)
+        for (Map.Entry<BundlerField, CodeBlock> entry : values.entrySet()) {
+            BundlerField field = entry.getKey();
+            builder.addStatement("$T $N = $L", TypeName.get(field.type), field.name + "Value",
+                    entry.getValue());
+        }
+
+        // Ex: someFieldValue, otherFieldValue
+        ExecutableElement constructor = info.bundlerConstructors.get(0);
+        CodeBlock.Builder arguments = CodeBlock.builder();
+        List<? extends VariableElement> parameters = constructor.getParameters();
+        for (int i = 0; i < parameters.size(); i++) {
+            if (i > 0) {
+                arguments.add(", ");
+            }
+            arguments.add("$N", parameters.get(i).getSimpleName() + "Value");
+        }
+
+        if (constructor.getKind() == ElementKind.CONSTRUCTOR) {
+            // Ex: Foo object = new Foo(someFieldValue)
+            builder.addStatement("$T object = new $T($L)", info.className, info.className,
+                    arguments.build());
+        } else {
+            // Ex: Foo object = Foo.create(someFieldValue)
+            builder.addStatement("$T object = $T.$N($L)", info.className, info.className,
+                    constructor.getSimpleName().toString(), arguments.build());
+        }
+
+        for (BundlerField field : values.keySet()) {
+            if (!field.isConstructorParameter) {
+                addSetField(builder, field, CodeBlock.of("$N", field.name + "Value"));
+            }
+        }
+    }
+
+    /**
+     * Add a statement setting a field on the instance named "object".
+     */
+    private void addSetField(MethodSpec.Builder builder, BundlerField field, CodeBlock value) {
+        if (field.isPublic && !field.isFinal) {
+            // Public fields can be set directly
+            // Ex: object.someField = (Type) bundle.getString(KEY_SOME_FIELD)
+            builder.addStatement("object.$L = $L", field.name, value);
+        } else {
+            // Other fields are set with the setter
+            // Ex: object.setSomeField((Type) bundle.getString(KEY_SOME_FIELD))
+            builder.addStatement("object.$L($L)", field.setterName, value);
+        }
+    }
+
+    /**
+     * Create the "into" method that accepts a Bundle and an existing member of the wrapped
+     * class, and sets each field on the object from the Bundle.
+     */
+    private MethodSpec createIntoMethod() {
+        return MethodSpec.methodBuilder("into")
+                .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                .addParameter(bundleClass, "bundle")
+                .addParameter(info.className, "object")
+                .returns(info.className)
+                .addStatement("return into(bundle, object, false)")
+                .build();
+    }
+
+    /**
+     * Create the "into" method that also accepts a flag to leave the fields whose keys are
+     * missing from the Bundle untouched, instead of resetting them to default values.
+     */
+    private MethodSpec createIntoSkipMissingMethod() {
+        MethodSpec.Builder builder = MethodSpec.methodBuilder("into")
+                .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                .addParameter(bundleClass, "bundle")
+                .addParameter(info.className, "object")
+                .addParameter(boolean.class, "skipMissing")
+                .returns(info.className);
+
+        // Get each field from the bundle and set it on the object. Fields that are only set by
+        // the BundlerConstructor can not be restored in place and keep their values.
+        for (BundlerField field : info.applicableFields) {
+            if (!field.isWritable) {
+                continue;
+            }
+
+            String fieldKey = getFieldKeyName(field);
+
+            // Decide how to get the field from the bundle
+            // Ex: (Type) bundle.getString(KEY_SOME_FIELD)
+            CodeBlock value = getBundleValue(field);
+
+            builder.beginControlFlow("if (!skipMissing || bundle.containsKey($L))", fieldKey);
+            addSetField(builder, field, value);
+            builder.endControlFlow();
+        }
+
+        // Return the object instance
+        builder.addStatement("return object");
+
+        return builder.build();
+    }
+
+    /**
+     * Create the "toBundle" method that serializes the wrapped class as a Bundle.
+     */
+    private MethodSpec createToBundleMethod() {
+        MethodSpec.Builder builder = MethodSpec.methodBuilder("toBundle")
+                .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                .addParameter(info.className, "object")
+                .returns(bundleClass);
+
+        // Null objects become null bundles, so that nested objects can be null
+        builder.beginControlFlow("if (object == null)")
+                .addStatement("return null")
+                .endControlFlow();
+
+        // Create new bundle
+        builder.addStatement("$T bundle = new $T()", bundleClass, bundleClass);
+
+        // Get each field from the object and set it on the bundle
+        for (BundlerField field : info.applicableFields) {
+            // Decide on the key for the field and how to add it to the bundle
+            String fieldKey = getFieldKeyName(field);
+            String putMethod = bundlePutMethod(field);
+
+            // Ex: bundle.putString(KEY_SOME_FIELD, object.someField)
+            builder.addStatement("bundle.$L($L, $L)", putMethod, fieldKey, getObjectValue(field));
+        }
+
+        // Return statement
+        builder.addStatement("return bundle");
+
+        return builder.build();
+    }
+
+    /**
+     * Create the "updateBundle" method that writes the wrapped class into an existing Bundle,
+     * only putting the fields whose values differ from what the Bundle already holds. Nested
+     * BundlerClass objects are updated in their existing nested Bundle the same way.
+     */
+    private MethodSpec createUpdateBundleMethod() {
+        MethodSpec.Builder builder = MethodSpec.methodBuilder("updateBundle")
+                .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                .addParameter(info.className, "object")
+                .addParameter(bundleClass, "bundle")
+                .returns(bundleClass);
+
+        builder.beginControlFlow("if (object == null)")
+                .addStatement("return null")
+                .endControlFlow();
+
+        // Without an existing Bundle there is nothing to compare against
+        builder.beginControlFlow("if (bundle == null)")
+                .addStatement("return toBundle(object)")
+                .endControlFlow();
+
+        for (BundlerField field : info.applicableFields) {
+            String fieldKey = getFieldKeyName(field);
+            String putMethod = bundlePutMethod(field);
+
+            // Read the value once, since getters may do work
+            // Ex: String someFieldValue = object.getSomeField()
+            String local = field.name + "Value";
+            builder.addStatement("$T $N = $L", TypeName.get(field.type), local,
+                    getFieldValue(field));
+
+            ClassName nestedBundler = getNestedBundlerClass(field);
+            if (nestedBundler != null) {
+                // Ex: bundle.putBundle(KEY_CHILD, ChildBundler.updateBundle(childValue,
+                //         bundle.getBundle(KEY_CHILD)))
+                builder.addStatement("bundle.$L($L, $T.updateBundle($N, bundle.getBundle($L)))",
+                        putMethod, fieldKey, nestedBundler, local, fieldKey);
+                continue;
+            }
+
+            // Enums are compared by their stored name or ordinal. Enum.name() returns the same
+            // String each time, so names can be compared by reference.
+            // Ex: String modeStored = FooBundler.enumName(modeValue)
+            //     if (bundle.get(KEY_MODE) != modeStored || !bundle.containsKey(KEY_MODE))
+            CodeBlock storedValue = getToStoredValue(field, CodeBlock.of("$N", local));
+            if (types.isEnum(field.type)) {
+                String stored = field.name + "Stored";
+                builder.addStatement("$T $N = $L", info.enumOrdinals
+                        ? TypeName.INT : ClassName.get(String.class), stored, storedValue);
+                CodeBlock changed = info.enumOrdinals
+                        ? CodeBlock.of("bundle.getInt($L) != $N", fieldKey, stored)
+                        : CodeBlock.of("bundle.get($L) != $N", fieldKey, stored);
+                builder.beginControlFlow("if ($L || !bundle.containsKey($L))", changed, fieldKey)
+                        .addStatement("bundle.$L($L, $N)", putMethod, fieldKey, stored)
+                        .endControlFlow();
+                continue;
+            }
+
+            // Lists and other collections are stored as a converted copy, so they can not be
+            // compared by reference and are rewritten as a whole
+            if (storedValue != null) {
+                // Ex: bundle.putBundle(KEY_CHILDREN, ChildBundler.toColumns(childrenValue))
+                builder.addStatement("bundle.$L($L, $L)", putMethod, fieldKey, storedValue);
+                continue;
+            }
+
+            // Ex: if (bundle.getInt(KEY_SOME_FIELD) != someFieldValue
+            //         || !bundle.containsKey(KEY_SOME_FIELD))
+            builder.beginControlFlow("if ($L || !bundle.containsKey($L))",
+                    getChangedCondition(field, fieldKey, local), fieldKey)
+                    .addStatement("bundle.$L($L, $N)", putMethod, fieldKey, local)
+                    .endControlFlow();
+        }
+
+        builder.addStatement("return bundle");
+
+        return builder.build();
+    }
+
+    /**
+     * Create the "toColumns" method that converts a list of the wrapped class to a single
+     * Bundle holding one array per field ("column"), instead of one Bundle per element.
+     * Primitive and String fields are stored as arrays, and other fields as a Bundle holding
+     * each element's value under its index.
+     */
+    private MethodSpec createToColumnsMethod() {
+        MethodSpec.Builder builder = MethodSpec.methodBuilder("toColumns")
+                .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                .addParameter(getListType(), "objects")
+                .returns(bundleClass);
+
+        builder.beginControlFlow("if (objects == null)")
+                .addStatement("return null")
+                .endControlFlow();
+
+        builder.addStatement("int size = objects.size()");
+
+        // Ex: int[] someFieldColumn = new int[size]
+        boolean hasIndexedColumns = false;
+        for (BundlerField field : info.applicableFields) {
+            TypeName columnType = getColumnType(field);
+            if (columnType != null) {
+                builder.addStatement("$T $N = new $T[size]", columnType, field.name + "Column",
+                        ((ArrayTypeName) columnType).componentType);
+            } else {
+                builder.addStatement("$T $N = new $T()", bundleClass, field.name + "Column",
+                        bundleClass);
+                hasIndexedColumns = true;
+            }
+        }
+
+        // Null elements are flagged in a separate array, only created if needed
+        builder.addStatement("boolean[] nulls = null");
+        builder.addStatement("int i = 0");
+        builder.beginControlFlow("for ($T object : objects)", info.className);
+        builder.beginControlFlow("if (object == null)")
+                .beginControlFlow("if (nulls == null)")
+                .addStatement("nulls = new boolean[size]")
+                .endControlFlow()
+                .addStatement("nulls[i++] = true")
+                .addStatement("continue")
+                .endControlFlow();
+
+        if (hasIndexedColumns) {
+            builder.addStatement("$T index = $T.toString(i)", String.class, Integer.class);
+        }
+
+        for (BundlerField field : info.applicableFields) {
+            if (getColumnType(field) != null) {
+                // Ex: someFieldColumn[i] = object.someField
+                builder.addStatement("$N[i] = $L", field.name + "Column", getObjectValue(field));
+            } else {
+                // Ex: someFieldColumn.putSerializable(index, object.someField)
+                builder.addStatement("$N.$L(index, $L)", field.name + "Column",
+                        bundlePutMethod(field), getObjectValue(field));
+            }
+        }
+
+        builder.addStatement("i++");
+        builder.endControlFlow();
+
+        builder.addStatement("$T bundle = new $T()", bundleClass, bundleClass);
+        builder.addStatement("bundle.putInt($S, size)", COLUMNS_SIZE_KEY);
+        builder.beginControlFlow("if (nulls != null)")
+                .addStatement("bundle.putBooleanArray($S, nulls)", COLUMNS_NULLS_KEY)
+                .endControlFlow();
+
+        // Ex: bundle.putIntArray(KEY_SOME_FIELD, someFieldColumn)
+        for (BundlerField field : info.applicableFields) {
+            String putMethod = getColumnType(field) != null
+                    ? "put" + field.suffix + "Array"
+                    : "putBundle";
+            builder.addStatement("bundle.$L($L, $N)", putMethod, getFieldKeyName(field),
+                    field.name + "Column");
+        }
+
+        builder.addStatement("return bundle");
+
+        return builder.build();
+    }
+
+    /**
+     * Create the "fromColumns" method that converts a Bundle created by "toColumns" back to a
+     * list of the wrapped class.
+     */
+    private MethodSpec createFromColumnsMethod() {
+        MethodSpec.Builder builder = MethodSpec.methodBuilder("fromColumns")
+                .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                .addParameter(bundleClass, "bundle")
+                .returns(getArrayListType());
+
+        builder.beginControlFlow("if (bundle == null)")
+                .addStatement("return null")
+                .endControlFlow();
+
+        builder.addStatement("int size = bundle.getInt($S)", COLUMNS_SIZE_KEY);
+        builder.addStatement("boolean[] nulls = bundle.getBooleanArray($S)", COLUMNS_NULLS_KEY);
+
+        // Ex: int[] someFieldColumn = bundle.getIntArray(KEY_SOME_FIELD)
+        boolean hasIndexedColumns = false;
+        for (BundlerField field : info.applicableFields) {
+            TypeName columnType = getColumnType(field);
+            if (columnType != null) {
+                builder.addStatement("$T $N = bundle.$L($L)", columnType, field.name + "Column",
+                        "get" + field.suffix + "Array", getFieldKeyName(field));
+            } else {
+                builder.addStatement("$T $N = bundle.getBundle($L)", bundleClass,
+                        field.name + "Column", getFieldKeyName(field));
+                hasIndexedColumns = true;
+            }
+        }
+
+        builder.addStatement("$T objects = new $T<>(size)", getArrayListType(), ArrayList.class);
+        builder.beginControlFlow("for (int i = 0; i < size; i++)");
+        builder.beginControlFlow("if (nulls != null && nulls[i])")
+                .addStatement("objects.add(null)")
+                .addStatement("continue")
+                .endControlFlow();
+
+        if (hasIndexedColumns) {
+            builder.addStatement("$T index = $T.toString(i)", String.class, Integer.class);
+        }
+
+        // Ex: someFieldColumn[i] or (Type) someFieldColumn.getSerializable(index)
+        Map<BundlerField, CodeBlock> values = new LinkedHashMap<>();
+        for (BundlerField field : info.applicableFields) {
+            CodeBlock column = CodeBlock.of("$N", field.name + "Column");
+            if (getColumnType(field) != null) {
+                // Enums are stored in an array of their names or ordinals
+                CodeBlock element = CodeBlock.of("$L[i]", column);
+                CodeBlock fieldValue = getFromStoredValue(field, element);
+                values.put(field, fieldValue != null ? fieldValue : element);
+            } else {
+                values.put(field, getBundleValue(field, column, CodeBlock.of("index")));
+            }
+        }
+
+        if (info.bundlerConstructors.isEmpty()) {
+            builder.addStatement("$T object = new $T()", info.className, info.className);
+            for (Map.Entry<BundlerField, CodeBlock> entry : values.entrySet()) {
+                addSetField(builder, entry.getKey(), entry.getValue());
+            }
+        } else {
+            addCreateWithConstructor(builder, values);
+        }
+
+        builder.addStatement("objects.add(object)");
+        builder.endControlFlow();
+
+        builder.addStatement("return objects");
+
+        return builder.build();
+    }
+
+    /**
+     * Returns the array type used to store a field in the column-wise list format, or
+     * {@code null} if the field is stored in a Bundle by index instead. Primitives, Strings
+     * and enums can be stored in arrays since the Bundle has a method for each of their array
+     * types.
+     */
+    private TypeName getColumnType(BundlerField field) {
+        if (field.type.getKind().isPrimitive()) {
+            return ArrayTypeName.of(TypeName.get(field.type));
+        }
+
+        if ("String".equals(field.suffix)) {
+            return ArrayTypeName.of(String.class);
+        } else if ("CharSequence".equals(field.suffix)) {
+            return ArrayTypeName.of(CharSequence.class);
+        } else if (types.isEnum(field.type)) {
+            // Stored by ordinal
+            return ArrayTypeName.of(int.class);
+        }
+
+        return null;
+    }
+
+    private TypeName getListType() {
+        return ParameterizedTypeName.get(ClassName.get(List.class), info.className);
+    }
+
+    private TypeName getArrayListType() {
+        return ParameterizedTypeName.get(ClassName.get(ArrayList.class), info.className);
+    }
+
+    /**
+     * Create the "estimateSize" method that estimates the parceled size of the Bundle created
+     * by "toBundle" without creating it. Primitive sizes are known when generating the code,
+     * nested objects are estimated by their own Bundler, collections are measured by their
+     * size and elements without being converted, and other values are measured by
+     * BundleSizes. See {@link #getValueSize(BundlerField, CodeBlock)}.
+     */
+    private MethodSpec createEstimateSizeMethod() {
+        MethodSpec.Builder builder = MethodSpec.methodBuilder("estimateSize")
+                .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                .addParameter(info.className, "object")
+                .returns(int.class);
+
+        // Null objects are stored as null values, which are only a type tag
+        builder.beginControlFlow("if (object == null)")
+                .addStatement("return 0")
+                .endControlFlow();
+
+        // Ex: size += BundleSizes.ofKey(KEY_SOME_FIELD) + BundleSizes.PRIMITIVE
+        builder.addStatement("int size = $T.BUNDLE_HEADER", BUNDLE_SIZES_CLASS);
+        for (BundlerField field : info.applicableFields) {
+            builder.addStatement("size += $L", getEntrySize(field));
+        }
+        builder.addStatement("return size");
+
+        return builder.build();
+    }
+
+    /**
+     * Create the "estimateFieldSizes" method that returns the estimated size of each field,
+     * by field name, to report which fields make the Bundle large.
+     */
+    private MethodSpec createEstimateFieldSizesMethod() {
+        MethodSpec.Builder builder = MethodSpec.methodBuilder("estimateFieldSizes")
+                .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                .addParameter(info.className, "object")
+                .returns(getFieldSizesType());
+
+        builder.addStatement("$T sizes = new $T<>($L)", getFieldSizesType(),
+                LinkedHashMap.class, info.applicableFields.size() * 4 / 3 + 1);
+        builder.beginControlFlow("if (object == null)")
+                .addStatement("return sizes")
+                .endControlFlow();
+
+        for (BundlerField field : info.applicableFields) {
+            builder.addStatement("sizes.put($S, $L)", field.name, getEntrySize(field));
+        }
+        builder.addStatement("return sizes");
+
+        return builder.build();
+    }
+
+    private TypeName getFieldSizesType() {
+        return ParameterizedTypeName.get(Map.class, String.class, Integer.class);
+    }
+
+    /**
+     * Create the "estimateColumnsSize" method that estimates the parceled size of the Bundle
+     * created by "toColumns" without creating it, so that lists of the class nested in other
+     * classes can be estimated. Columns of primitives have a fixed size per element, String
+     * columns are measured element by element, and other fields are estimated like in
+     * "estimateSize" with an index key each.
+     */
+    private MethodSpec createEstimateColumnsSizeMethod() {
+        MethodSpec.Builder builder = MethodSpec.methodBuilder("estimateColumnsSize")
+                .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                .addParameter(ParameterizedTypeName.get(ClassName.get(Collection.class),
+                        info.className), "objects")
+                .returns(int.class);
+
+        // Null lists are stored as null values, which are only a type tag
+        builder.beginControlFlow("if (objects == null)")
+                .addStatement("return 0")
+                .endControlFlow();
+
+        builder.addStatement("int size = objects.size()");
+        builder.addStatement("int estimate = $T.BUNDLE_HEADER + $T.ofKey($S) + $T.PRIMITIVE",
+                BUNDLE_SIZES_CLASS, BUNDLE_SIZES_CLASS, COLUMNS_SIZE_KEY, BUNDLE_SIZES_CLASS);
+
+        // Ex: estimate += BundleSizes.ofKey(KEY_SOME_FIELD) + BundleSizes.ofArray(size, 4)
+        List<BundlerField> elementColumns = new ArrayList<>();
+        List<BundlerField> indexedColumns = new ArrayList<>();
+        for (BundlerField field : info.applicableFields) {
+            TypeName columnType = getColumnType(field);
+            CodeBlock keySize = CodeBlock.of("$T.ofKey($L)", BUNDLE_SIZES_CLASS,
+                    getFieldKeyName(field));
+            if (columnType == null) {
+                builder.addStatement("estimate += $L + $T.TYPE_TAG + $T.BUNDLE_HEADER", keySize,
+                        BUNDLE_SIZES_CLASS, BUNDLE_SIZES_CLASS);
+                indexedColumns.add(field);
+            } else if (((ArrayTypeName) columnType).componentType.isPrimitive()) {
+                builder.addStatement("estimate += $L + $T.ofArray(size, $L)", keySize,
+                        BUNDLE_SIZES_CLASS,
+                        getPrimitiveSize(((ArrayTypeName) columnType).componentType));
+            } else {
+                builder.addStatement("estimate += $L + $T.TYPE_TAG + 4", keySize,
+                        BUNDLE_SIZES_CLASS);
+                elementColumns.add(field);
+            }
+        }
+
+        builder.addStatement("boolean hasNulls = false");
+        if (!indexedColumns.isEmpty()) {
+            builder.addStatement("int i = 0");
+        }
+        builder.beginControlFlow("for ($T object : objects)", info.className);
+
+        // Null objects leave a null, written as its length only, in each column of objects
+        // and no entry in indexed columns
+        builder.beginControlFlow("if (object == null)")
+                .addStatement("hasNulls = true");
+        if (!elementColumns.isEmpty()) {
+            builder.addStatement("estimate += $L", elementColumns.size() * 4);
+        }
+        if (!indexedColumns.isEmpty()) {
+            builder.addStatement("i++");
+        }
+        builder.addStatement("continue")
+                .endControlFlow();
+
+        for (BundlerField field : elementColumns) {
+            if ("String".equals(field.suffix)) {
+                // Ex: estimate += BundleSizes.ofString(object.someField)
+                builder.addStatement("estimate += $T.ofString($L)", BUNDLE_SIZES_CLASS,
+                        getObjectValue(field));
+            } else {
+                builder.addStatement("estimate += $T.ofValue($L)", BUNDLE_SIZES_CLASS,
+                        getObjectValue(field));
+            }
+        }
+
+        for (BundlerField field : indexedColumns) {
+            // Ex: estimate += BundleSizes.ofIndexKey(i) + BundleSizes.ofValue(object.someField)
+            builder.addStatement("estimate += $T.ofIndexKey(i) + $L", BUNDLE_SIZES_CLASS,
+                    getValueSize(field, getFieldValue(field)));
+        }
+
+        if (!indexedColumns.isEmpty()) {
+            builder.addStatement("i++");
+        }
+        builder.endControlFlow();
+
+        builder.beginControlFlow("if (hasNulls)")
+                .addStatement("estimate += $T.ofKey($S) + $T.ofArray(size, 4)",
+                        BUNDLE_SIZES_CLASS, COLUMNS_NULLS_KEY, BUNDLE_SIZES_CLASS)
+                .endControlFlow();
+        builder.addStatement("return estimate");
+
+        return builder.build();
+    }
+
+    /**
+     * Returns an expression for the estimated size of a field in the parceled Bundle, including
+     * its key. Ex: BundleSizes.ofKey(KEY_SOME_FIELD) + BundleSizes.ofValue(object.someField).
+     */
+    private CodeBlock getEntrySize(BundlerField field) {
+        return CodeBlock.of("$T.ofKey($L) + $L", BUNDLE_SIZES_CLASS, getFieldKeyName(field),
+                getValueSize(field, getFieldValue(field)));
+    }
+
+    /**
+     * Returns an expression for the estimated size of a value of a field as it is stored in
+     * the Bundle, including its type tag, without converting it. Collections, sparse arrays
+     * and maps are measured from their size and elements by BundleSizes or a generated
+     * helper. Ex: BundleSizes.ofPrimitives(object.ids, 4).
+     */
+    private CodeBlock getValueSize(BundlerField field, CodeBlock value) {
+        // Primitives, including enums stored by ordinal, have a fixed size
+        if ("Long".equals(field.suffix) || "Double".equals(field.suffix)) {
+            return CodeBlock.of("$T.WIDE_PRIMITIVE", BUNDLE_SIZES_CLASS);
+        } else if (isPrimitiveSuffix(field.suffix)) {
+            return CodeBlock.of("$T.PRIMITIVE", BUNDLE_SIZES_CLASS);
+        }
+
+        // Nested objects and lists of them are estimated by their own Bundler. Null objects
+        // are estimated as 0, leaving the type tag of the null value.
+        ClassName nestedBundler = getNestedBundlerClass(field);
+        if (nestedBundler != null) {
+            return CodeBlock.of("$T.TYPE_TAG + $T.estimateSize($L)", BUNDLE_SIZES_CLASS,
+                    nestedBundler, value);
+        }
+
+        ClassName nestedListBundler = getNestedListBundlerClass(field);
+        if (nestedListBundler != null) {
+            return CodeBlock.of("$T.TYPE_TAG + $T.estimateColumnsSize($L)", BUNDLE_SIZES_CLASS,
+                    nestedListBundler, value);
+        }
+
+        PrimitiveType elementType = types.getPrimitiveCollectionElementType(field.type);
+        if (elementType != null) {
+            return CodeBlock.of("$T.ofPrimitives($L, $L)", BUNDLE_SIZES_CLASS, value,
+                    getPrimitiveSize(TypeName.get(elementType)));
+        }
+
+        // Ex: FooBundler.estimateMapOfStringAndInteger(object.scores)
+        String helper = null;
+        TypeMirror[] sparseArrayTypes = types.getSparseArrayTypes(field.type);
+        TypeMirror[] mapTypes = types.getMapTypes(field.type);
+        TypeMirror enumType = types.getEnumCollectionElementType(field.type);
+        if (sparseArrayTypes != null) {
+            helper = addSparseArraySizeHelper(field.type, sparseArrayTypes);
+        } else if (mapTypes != null) {
+            helper = addMapSizeHelper(field.type, mapTypes);
+        } else if (enumType != null) {
+            helper = addEnumCollectionSizeHelper(field.type, enumType);
+        }
+
+        if (helper != null) {
+            return CodeBlock.of("$T.$N($L)", getBundlerClass(), helper, value);
+        }
+
+        // Enums stored by name are measured as their name
+        if (types.isEnum(field.type)) {
+            value = getEnumToStoredValue(field.type, value);
+        }
+
+        return CodeBlock.of("$T.ofValue($L)", BUNDLE_SIZES_CLASS, value);
+    }
+
+    /**
+     * Returns the size of an element of a primitive array in a Parcel, where every primitive
+     * smaller than an int is written as an int, except in byte arrays.
+     */
+    private static int getPrimitiveSize(TypeName primitive) {
+        if (TypeName.BYTE.equals(primitive)) {
+            return 1;
+        } else if (TypeName.LONG.equals(primitive) || TypeName.DOUBLE.equals(primitive)) {
+            return 8;
+        }
+
+        return 4;
+    }
+
+    /**
+     * Adds the helper estimating the size of a sparse array as stored by its "bundle" helper,
+     * and returns its name. Ex: estimateSparseArrayOfString.
+     */
+    private String addSparseArraySizeHelper(TypeMirror type, TypeMirror[] sparseArrayTypes) {
+        TypeMirror keyType = sparseArrayTypes[0];
+        TypeMirror valueType = sparseArrayTypes[1];
+        TypeName typeName = TypeName.get(type);
+        String name = "estimate" + getHelperTypeName(typeName);
+        if (helpers.containsKey(name)) {
+            return name;
+        }
+
+        MethodSpec.Builder helper = MethodSpec.methodBuilder(name)
+                .addModifiers(Modifier.STATIC)
+                .addParameter(typeName, "array")
+                .returns(int.class)
+                .beginControlFlow("if (array == null)")
+                .addStatement("return $T.TYPE_TAG", BUNDLE_SIZES_CLASS)
+                .endControlFlow()
+                .addStatement("int size = array.size()");
+
+        // BundlerClass values are estimated from a list of them, which only copies references
+        if (isBundlerColumn(valueType)) {
+            TypeName listType = ParameterizedTypeName.get(ClassName.get(ArrayList.class),
+                    TypeName.get(valueType));
+            helper.addStatement("$T values = new $T<>(size)", listType, ArrayList.class)
+                    .beginControlFlow("for (int i = 0; i < size; i++)")
+                    .addStatement("values.add(array.valueAt(i))")
+                    .endControlFlow();
+        }
+        addColumnsSize(helper, keyType, valueType,
+                CodeBlock.of("for (int i = 0; i < size; i++)"),
+                "array.keyAt(i)", "array.valueAt(i)", null, "values");
+        helper.addStatement("return estimate");
+
+        helpers.put(name, helper.build());
+        return name;
+    }
+
+    /**
+     * Adds the helper estimating the size of a map as stored by its "bundle" helper, and
+     * returns its name. Ex: estimateMapOfStringAndInteger. The comparator of a sorted map is
+     * serialized to be measured, since that is how it is stored, unless it is not Serializable
+     * and the map is stored whole.
+     */
+    private String addMapSizeHelper(TypeMirror type, TypeMirror[] mapTypes) {
+        TypeMirror keyType = mapTypes[0];
+        TypeMirror valueType = mapTypes[1];
+        TypeName typeName = TypeName.get(type);
+
+        String name = "estimate" + getHelperTypeName(typeName);
+        if (helpers.containsKey(name)) {
+            return name;
+        }
+
+        MethodSpec.Builder helper = MethodSpec.methodBuilder(name)
+                .addModifiers(Modifier.STATIC)
+                .addParameter(typeName, "map")
+                .returns(int.class)
+                .beginControlFlow("if (map == null)")
+                .addStatement("return $T.TYPE_TAG", BUNDLE_SIZES_CLASS)
+                .endControlFlow();
+
+        boolean isSorted = getMapClass(type).equals(ClassName.get(TreeMap.class));
+        if (isSorted) {
+            helper.beginControlFlow("if ($L)", getUnserializableComparatorCheck())
+                    .addStatement("return $T.TYPE_TAG + $T.BUNDLE_HEADER\n+ $T.ofKey($S) + "
+                                    + "$T.ofValue(map)", BUNDLE_SIZES_CLASS, BUNDLE_SIZES_CLASS,
+                            BUNDLE_SIZES_CLASS, MAP_KEY, BUNDLE_SIZES_CLASS)
+                    .endControlFlow();
+        }
+
+        TypeName entryType = ParameterizedTypeName.get(ClassName.get(Map.Entry.class),
+                TypeName.get(keyType), TypeName.get(valueType));
+        helper.addStatement("int size = map.size()");
+        addColumnsSize(helper, keyType, valueType,
+                CodeBlock.of("for ($T entry : map.entrySet())", entryType),
+                "entry.getKey()", "entry.getValue()", "map.keySet()", "map.values()");
+        if (isSorted) {
+            helper.beginControlFlow("if (map.comparator() != null)")
+                    .addStatement("estimate += $T.ofKey($S) + $T.ofValue(map.comparator())",
+                            BUNDLE_SIZES_CLASS, COMPARATOR_KEY, BUNDLE_SIZES_CLASS)
+                    .endControlFlow();
+        }
+        helper.addStatement("return estimate");
+
+        helpers.put(name, helper.build());
+        return name;
+    }
+
+    /**
+     * Adds the helper estimating the size of an array or list of enums as stored by its
+     * "encode" helper, and returns its name. Ex: estimateListOfMode.
+     */
+    private String addEnumCollectionSizeHelper(TypeMirror type, TypeMirror enumType) {
+        TypeName typeName = TypeName.get(type);
+        String name = "estimate" + getHelperTypeName(typeName);
+        if (helpers.containsKey(name)) {
+            return name;
+        }
+
+        MethodSpec.Builder helper = MethodSpec.methodBuilder(name)
+                .addModifiers(Modifier.STATIC)
+                .addParameter(typeName, "values")
+                .returns(int.class)
+                .beginControlFlow("if (values == null)")
+                .addStatement("return $T.TYPE_TAG", BUNDLE_SIZES_CLASS)
+                .endControlFlow();
+
+        String size = type.getKind() == TypeKind.ARRAY ? "values.length" : "values.size()";
+        CodeBlock elementSize = getColumnElementSize(enumType, "value");
+        if (elementSize == null) {
+            // Ordinals have a fixed size
+            helper.addStatement("return $T.ofArray($L, 4)", BUNDLE_SIZES_CLASS, size);
+        } else {
+            helper.addStatement("int estimate = $T.TYPE_TAG + 4", BUNDLE_SIZES_CLASS)
+                    .beginControlFlow("for ($T value : values)", TypeName.get(enumType))
+                    .addStatement("estimate += $L", elementSize)
+                    .endControlFlow()
+                    .addStatement("return estimate");
+        }
+
+        helpers.put(name, helper.build());
+        return name;
+    }
+
+    /**
+     * Add the statements declaring a local named "estimate" with the size of a Bundle holding
+     * a column of keys and a column of values, such as the ones of sparse arrays and maps, of
+     * a local named "size" entries. Columns of primitives have a fixed size, while the other
+     * columns and the masks of null elements are measured in a loop over the entries, which
+     * is only added if needed.
+     */
+    private void addColumnsSize(MethodSpec.Builder builder, TypeMirror keyType,
+                                TypeMirror valueType, CodeBlock loop, String key, String value,
+                                String keys, String values) {
+        builder.addStatement("int estimate = $T.TYPE_TAG + $T.BUNDLE_HEADER\n+ $L\n+ $L",
+                BUNDLE_SIZES_CLASS, BUNDLE_SIZES_CLASS, getColumnSize(keyType, KEYS_KEY, keys),
+                getColumnSize(valueType, VALUES_KEY, values));
+
+        CodeBlock keySize = getColumnElementSize(keyType, key);
+        CodeBlock valueSize = getColumnElementSize(valueType, value);
+        boolean keysNullable = isNullableColumn(keyType);
+        boolean valuesNullable = isNullableColumn(valueType);
+        if (keySize == null && valueSize == null && !keysNullable && !valuesNullable) {
+            return;
+        }
+
+        if (keysNullable) {
+            builder.addStatement("boolean keysNulls = false");
+        }
+        if (valuesNullable) {
+            builder.addStatement("boolean valuesNulls = false");
+        }
+
+        builder.beginControlFlow("$L", loop);
+        addColumnElementSize(builder, keyType, "keys", key, keySize);
+        addColumnElementSize(builder, valueType, "values", value, valueSize);
+        builder.endControlFlow();
+
+        addColumnNullsSize(builder, keyType, "keys", KEYS_KEY);
+        addColumnNullsSize(builder, valueType, "values", VALUES_KEY);
+    }
+
+    /**
+     * Add the statements measuring an element of a column in a loop, or marking that the
+     * column has a null element if it needs a mask for them.
+     */
+    private void addColumnElementSize(MethodSpec.Builder builder, TypeMirror type, String name,
+                                      String element, CodeBlock elementSize) {
+        if (isNullableColumn(type)) {
+            // Ex: if (entry.getKey() == null) { keysNulls = true; }
+            builder.beginControlFlow("if ($L == null)", element)
+                    .addStatement("$N = true", name + "Nulls")
+                    .endControlFlow();
+        }
+        if (elementSize != null) {
+            builder.addStatement("estimate += $L", elementSize);
+        }
+    }
+
+    /**
+     * Add the statement adding the size of the mask of null elements of a column, if it can
+     * have one and a null element was found.
+     */
+    private void addColumnNullsSize(MethodSpec.Builder builder, TypeMirror type, String name,
+                                    String key) {
+        if (!isNullableColumn(type)) {
+            return;
+        }
+
+        // Ex: estimate += BundleSizes.ofKey("keys#nulls") + BundleSizes.ofArray(size, 4)
+        builder.beginControlFlow("if ($N)", name + "Nulls")
+                .addStatement("estimate += $T.ofKey($S) + $T.ofArray(size, 4)",
+                        BUNDLE_SIZES_CLASS, key + COLUMNS_NULLS_KEY, BUNDLE_SIZES_CLASS)
+                .endControlFlow();
+    }
+
+    /**
+     * Returns an expression for the size of a column of a local named "size" elements,
+     * including its key, without the elements that differ in size. Columns of BundlerClass
+     * objects are estimated from a collection of them.
+     * Ex: BundleSizes.ofKey("keys") + BundleSizes.ofArray(size, 4).
+     */
+    private CodeBlock getColumnSize(TypeMirror type, String key, String collection) {
+        CodeBlock keySize = CodeBlock.of("$T.ofKey($S)", BUNDLE_SIZES_CLASS, key);
+        if (isBundlerColumn(type)) {
+            return CodeBlock.of("$L + $T.TYPE_TAG + $T.estimateColumnsSize($L)", keySize,
+                    BUNDLE_SIZES_CLASS, getBundlerClassFor(type), collection);
+        }
+
+        TypeName componentType = getColumnArrayType(type).componentType;
+        if (componentType.isPrimitive()) {
+            return CodeBlock.of("$L + $T.ofArray(size, $L)", keySize, BUNDLE_SIZES_CLASS,
+                    getPrimitiveSize(componentType));
+        }
+
+        // The type tag and the length of the array
+        return CodeBlock.of("$L + $T.TYPE_TAG + 4", keySize, BUNDLE_SIZES_CLASS);
+    }
+
+    /**
+     * Returns an expression for the size of an element of a column, or {@code null} if the
+     * elements of the column have a fixed size included in
+     * {@link #getColumnSize(TypeMirror, String, String)}. Ex: BundleSizes.ofString(value).
+     */
+    private CodeBlock getColumnElementSize(TypeMirror type, String element) {
+        if (isBundlerColumn(type)) {
+            return null;
+        }
+
+        ArrayTypeName arrayType = getColumnArrayType(type);
+        if (arrayType.componentType.isPrimitive()) {
+            return null;
+        }
+
+        // Strings in an array are written without a type tag, unlike other objects
+        if (arrayType.componentType.equals(ClassName.get(String.class))) {
+            CodeBlock value = types.isEnum(type)
+                    ? getEnumToStoredValue(type, CodeBlock.of("$L", element))
+                    : CodeBlock.of("$L", element);
+            return CodeBlock.of("$T.ofString($L)", BUNDLE_SIZES_CLASS, value);
+        }
+
+        return CodeBlock.of("$T.ofValue($L)", BUNDLE_SIZES_CLASS, element);
+    }
+
+    /**
+     * Returns a condition that is {@code true} if the value of a field in the Bundle differs
+     * from a local variable. Primitives are compared by value, without boxing. Other values
+     * are compared by reference, since a Bundle holds the objects that were put in it: an
+     * object or array modified in place is already up to date.
+     */
+    private CodeBlock getChangedCondition(BundlerField field, String fieldKey, String local) {
+        switch (field.type.getKind()) {
+            case FLOAT:
+                return CodeBlock.of("$T.compare(bundle.getFloat($L), $N) != 0",
+                        Float.class, fieldKey, local);
+            case DOUBLE:
+                return CodeBlock.of("$T.compare(bundle.getDouble($L), $N) != 0",
+                        Double.class, fieldKey, local);
+            case BOOLEAN:
+            case BYTE:
+            case CHAR:
+            case SHORT:
+            case INT:
+            case LONG:
+                return CodeBlock.of("bundle.$L($L) != $N", bundleGetMethod(field), fieldKey, local);
+            default:
+                break;
+        }
+
+        // Boxed primitives are unboxed when put, so the Bundle never holds the same instance
+        if (isPrimitiveSuffix(field.suffix)) {
+            return CodeBlock.of("!$N.equals(bundle.get($L))", local, fieldKey);
+        }
+
+        return CodeBlock.of("bundle.get($L) != $N", fieldKey, local);
+    }
+
+    /**
+     * Returns {@code true} if a Bundle method suffix stores a primitive value. Ex: "Int".
+     */
+    private static boolean isPrimitiveSuffix(String suffix) {
+        if (suffix == null) {
+            return false;
+        }
+
+        switch (suffix) {
+            case "Boolean":
+            case "Byte":
+            case "Char":
+            case "Short":
+            case "Int":
+            case "Long":
+            case "Float":
+            case "Double":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Return the source of a generated Parcelable wrapper class, as a String. The wrapper
+     * writes the same fields as the Bundler directly to a Parcel, in order and without keys.
+     */
+    public String getParcelClassSource() {
+        ClassName parcelClass = ClassName.get(info.className.packageName(), getParcelClassName());
+        TypeName creatorType = ParameterizedTypeName.get(CREATOR_CLASS, parcelClass);
+
+        // Create the CREATOR field required of every Parcelable
+        TypeSpec creatorImpl = TypeSpec.anonymousClassBuilder("")
+                .addSuperinterface(creatorType)
+                .addMethod(MethodSpec.methodBuilder("createFromParcel")
+                        .addAnnotation(Override.class)
+                        .addModifiers(Modifier.PUBLIC)
+                        .addParameter(PARCEL_CLASS, "in")
+                        .returns(parcelClass)
+                        .addStatement("return new $T(readFromParcel(in))", parcelClass)
+                        .build())
+                .addMethod(MethodSpec.methodBuilder("newArray")
+                        .addAnnotation(Override.class)
+                        .addModifiers(Modifier.PUBLIC)
+                        .addParameter(int.class, "size")
+                        .returns(ArrayTypeName.of(parcelClass))
+                        .addStatement("return new $T[size]", parcelClass)
+                        .build())
+                .build();
+
+        FieldSpec creator = FieldSpec.builder(creatorType, "CREATOR")
+                .addModifiers(Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL)
+                .initializer("$L", creatorImpl)
+                .build();
+
+        // Create class named {FooObject}Parcel
+        TypeSpec.Builder parcelType = TypeSpec.classBuilder(getParcelClassName())
+                .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
+                .addSuperinterface(PARCELABLE_CLASS)
+                .addField(creator)
+                .addField(info.className, "object", Modifier.PRIVATE, Modifier.FINAL)
+                .addMethod(MethodSpec.constructorBuilder()
+                        .addModifiers(Modifier.PUBLIC)
+                        .addParameter(info.className, "object")
+                        .addStatement("this.object = object")
+                        .build())
+                .addMethod(MethodSpec.methodBuilder("get")
+                        .addModifiers(Modifier.PUBLIC)
+                        .returns(info.className)
+                        .addStatement("return object")
+                        .build())
+                .addMethod(MethodSpec.methodBuilder("describeContents")
+                        .addAnnotation(Override.class)
+                        .addModifiers(Modifier.PUBLIC)
+                        .returns(int.class)
+                        .addStatement("return 0")
+                        .build())
+                .addMethod(createWriteToParcelMethod())
+                .addMethod(createReadFromParcelMethod());
+
+        for (BundlerField field : info.applicableFields) {
+            if (needsParcelableArrayCopy(field)) {
+                parcelType.addMethod(createCopyOfMethod(Modifier.PRIVATE, Modifier.STATIC));
+                break;
+            }
+        }
+
+        JavaFile javaFile = JavaFile.builder(info.className.packageName(), parcelType.build())
+                .build();
+
+        return javaFile.toString();
+    }
+
+    /**
+     * Create the "writeToParcel" method that writes each field of the wrapped object to a
+     * Parcel, preceded by a flag indicating whether the object is null.
+     */
+    private MethodSpec createWriteToParcelMethod() {
+        MethodSpec.Builder builder = MethodSpec.methodBuilder("writeToParcel")
+                .addAnnotation(Override.class)
+                .addModifiers(Modifier.PUBLIC)
+                .addParameter(PARCEL_CLASS, "dest")
+                .addParameter(int.class, "flags");
+
+        builder.beginControlFlow("if (object == null)")
+                .addStatement("dest.writeInt(0)")
+                .addStatement("return")
+                .endControlFlow();
+        builder.addStatement("dest.writeInt(1)");
+
+        // Ex: dest.writeString(object.someField)
+        for (BundlerField field : info.applicableFields) {
+            builder.addStatement("$L", getParcelWrite(field, getObjectValue(field)));
+        }
+
+        return builder.build();
+    }
+
+    /**
+     * Create the "copyOf" method that copies an array read with readParcelableArray or
+     * getParcelableArray to an array of the type of the field, since the Parcel creates a
+     * Parcelable[].
+     */
+    private MethodSpec createCopyOfMethod(Modifier... modifiers) {
+        TypeVariableName typeVariable = TypeVariableName.get("T");
+        TypeName arrayType = ArrayTypeName.of(typeVariable);
+
+        return MethodSpec.methodBuilder("copyOf")
+                .addModifiers(modifiers)
+                .addTypeVariable(typeVariable)
+                .addParameter(ArrayTypeName.of(PARCELABLE_CLASS), "values")
+                .addParameter(ParameterizedTypeName.get(ClassName.get(Class.class), arrayType),
+                        "type")
+                .returns(arrayType)
+                .addStatement("return values == null ? null : $T.copyOf(values, values.length, "
+                        + "type)", Arrays.class)
+                .build();
+    }
+
+    /**
+     * Create the "readFromParcel" method that reads each field of the wrapped object from a
+     * Parcel, in the same order as "writeToParcel".
+     */
+    private MethodSpec createReadFromParcelMethod() {
+        MethodSpec.Builder builder = MethodSpec.methodBuilder("readFromParcel")
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                .addParameter(PARCEL_CLASS, "in")
+                .returns(info.className);
+
+        // Generic values are read with readValue and cast
+        for (BundlerField field : info.applicableFields) {
+            if (isUncheckedParcelRead(field)) {
+                builder.addAnnotation(AnnotationSpec.builder(SuppressWarnings.class)
+                        .addMember("value", "$S", "unchecked")
+                        .build());
+                break;
+            }
+        }
+
+        builder.beginControlFlow("if (in.readInt() == 0)")
+                .addStatement("return null")
+                .endControlFlow();
+
+        if (info.bundlerConstructors.isEmpty()) {
+            builder.addStatement("$T object = new $T()", info.className, info.className);
+            for (BundlerField field : info.applicableFields) {
+                addSetField(builder, field, getParcelRead(field));
+            }
+        } else {
+            // Values must be read in the order they were written
+            Map<BundlerField, CodeBlock> values = new LinkedHashMap<>();
+            for (BundlerField field : info.applicableFields) {
+                values.put(field, getParcelRead(field));
+            }
+
+            addCreateWithConstructor(builder, values);
+        }
+
+        builder.addStatement("return object");
+
+        return builder.build();
+    }
+
+    /**
+     * Return the source of a generated Bundle view class, as a String. The view wraps a Bundle
+     * written by the Bundler and has a getter for each field that reads it on demand. Fields
+     * that need converting, such as nested objects, collections and enums, are converted on
+     * the first call and cached, other fields are read from the Bundle on every call. The
+     * view is not thread-safe.
+     */
+    public String getViewClassSource() {
+        // Create class named {FooObject}BundleView
+        TypeSpec.Builder builder = TypeSpec.classBuilder(getViewClassName())
+                .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
+                .addField(bundleClass, "bundle", Modifier.PRIVATE, Modifier.FINAL);
+
+        List<MethodSpec> getters = new ArrayList<>();
+        for (BundlerField field : info.applicableFields) {
+            CodeBlock key = CodeBlock.of("$T.$L", getBundlerClass(), getFieldKeyName(field));
+            CodeBlock value = getBundleValue(field, CodeBlock.of("bundle"), key);
+
+            MethodSpec.Builder getter = MethodSpec.methodBuilder(field.getterName)
+                    .addModifiers(Modifier.PUBLIC)
+                    .returns(TypeName.get(field.type));
+
+            if (getToStoredValue(field, value) == null) {
+                // Ex: return bundle.getString(FooBundler.KEY_SOME_FIELD)
+                getter.addStatement("return $L", value);
+            } else {
+                // Converted values are always objects, so null means not read yet. Missing
+                // values are read again, which is cheap. The cache is named with a prefix so
+                // that a field named "bundle" does not clash with the wrapped Bundle.
+                // Ex: cachedSomeField
+                String cache = "cached" + BundlerField.capitalizedName(field.name);
+                builder.addField(TypeName.get(field.type), cache, Modifier.PRIVATE);
+                getter.beginControlFlow("if ($N == null)", cache)
+                        .addStatement("$N = $L", cache, value)
+                        .endControlFlow()
+                        .addStatement("return $N", cache);
+            }
+
+            getters.add(getter.build());
+        }
+
+        builder.addMethod(MethodSpec.constructorBuilder()
+                        .addModifiers(Modifier.PUBLIC)
+                        .addParameter(bundleClass, "bundle")
+                        .addStatement("this.bundle = bundle")
+                        .build())
+                .addMethods(getters)
+                .addMethod(MethodSpec.methodBuilder("asBundle")
+                        .addModifiers(Modifier.PUBLIC)
+                        .returns(bundleClass)
+                        .addStatement("return bundle")
+                        .build())
+                .addMethod(MethodSpec.methodBuilder("toObject")
+                        .addModifiers(Modifier.PUBLIC)
+                        .returns(info.className)
+                        .addStatement("return $T.fromBundle(bundle)", getBundlerClass())
+                        .build());
+
+        JavaFile javaFile = JavaFile.builder(info.className.packageName(), builder.build())
+                .build();
+
+        return javaFile.toString();
+    }
+
+    /**
+     * Returns a statement writing a field value to the Parcel "dest". Primitives and common
+     * arrays use the specific Parcel method, everything else uses writeValue.
+     */
+    private CodeBlock getParcelWrite(BundlerField field, CodeBlock value) {
+        String suffix = bundleMethodSuffix(field);
+        TypeMirror type = field.type;
+
+        if (type.getKind().isPrimitive()) {
+            switch (type.getKind()) {
+                case BOOLEAN:
+                    return CodeBlock.of("dest.writeInt($L ? 1 : 0)", value);
+                case CHAR:
+                case SHORT:
+                    return CodeBlock.of("dest.writeInt($L)", value);
+                default:
+                    return CodeBlock.of("dest.write$L($L)", suffix, value);
+            }
+        }
+
+        String method = getParcelMethodSuffix(field);
+        if (method != null) {
+            return CodeBlock.of("dest.write$L($L)", method, value);
+        }
+
+        if ("ParcelableArray".equals(suffix)) {
+            if (getParcelableArrayCreator(field) != null) {
+                return CodeBlock.of("dest.writeTypedArray($L, flags)", value);
+            }
+            return CodeBlock.of("dest.writeParcelableArray($L, flags)", value);
+        }
+
+        return CodeBlock.of("dest.writeValue($L)", value);
+    }
+
+    /**
+     * Returns an expression reading a field value from the Parcel "in", the reverse of
+     * {@link #getParcelWrite(BundlerField, CodeBlock)}.
+     */
+    private CodeBlock getParcelRead(BundlerField field) {
+        String suffix = bundleMethodSuffix(field);
+        TypeMirror type = field.type;
+
+        if (type.getKind().isPrimitive()) {
+            switch (type.getKind()) {
+                case BOOLEAN:
+                    return CodeBlock.of("in.readInt() != 0");
+                case CHAR:
+                    return CodeBlock.of("(char) in.readInt()");
+                case SHORT:
+                    return CodeBlock.of("(short) in.readInt()");
+                default:
+                    return CodeBlock.of("in.read$L()", suffix);
+            }
+        }
+
+        CodeBlock classLoader = CodeBlock.of("$T.class.getClassLoader()", info.className);
+
+        // Read the value as it is stored in the Bundle, then convert it back if necessary
+        CodeBlock value;
+        String method = getParcelMethodSuffix(field);
+        if (method != null) {
+            if (method.endsWith("Array")) {
+                // Ex: in.createIntArray()
+                value = CodeBlock.of("in.create$L()", method);
+            } else if ("StringList".equals(method)) {
+                value = CodeBlock.of("in.createStringArrayList()");
+            } else if ("Bundle".equals(method)) {
+                value = CodeBlock.of("in.readBundle($L)", classLoader);
+            } else {
+                value = CodeBlock.of("in.read$L()", method);
+            }
+        } else if ("ParcelableArray".equals(suffix)) {
+            ClassName creatorClass = getParcelableArrayCreator(field);
+            if (creatorClass != null) {
+                value = CodeBlock.of("in.createTypedArray($T.CREATOR)", creatorClass);
+            } else if (needsParcelableArrayCopy(field)) {
+                // Ex: copyOf(in.readParcelableArray(...), Shape[].class)
+                TypeMirror arrayType = environment.getTypeUtils().erasure(field.type);
+                value = CodeBlock.of("copyOf(in.readParcelableArray($L), $T.class)",
+                        classLoader, TypeName.get(arrayType));
+            } else {
+                value = CodeBlock.of("in.readParcelableArray($L)", classLoader);
+            }
+        } else {
+            value = CodeBlock.of("($T) in.readValue($L)", getStoredType(field), classLoader);
+        }
 
-        // Type a must be assignable to type b
-        ASSIGNABLE
+        CodeBlock fieldValue = getFromStoredValue(field, value);
+        return fieldValue != null ? fieldValue : value;
     }
 
-    // Access the Bundle class like this since we don't have the ability to get Android classes
-    // in this Java module
-    private static final ClassName BUNDLE_CLASS = ClassName.get("android.os", "Bundle");
+    /**
+     * Returns the type of a field's value as it is written with writeValue. This is the type
+     * of the field itself unless it is a collection of boxed primitives, which is converted to
+     * a primitive array, or to a list of the boxed values if it has null elements.
+     */
+    private TypeName getStoredType(BundlerField field) {
+        if (types.getPrimitiveCollectionElementType(field.type) != null) {
+            return ClassName.get(Serializable.class);
+        }
+
+        // Enums stored by ordinal are written as an Integer
+        if (types.isEnum(field.type) && info.enumOrdinals) {
+            return ClassName.get(Integer.class);
+        }
 
-    // Other Android classes
-    private static final String BUNDLE_CLASS_NAME = "android.os.Bundle";
-    private static final String I_BINDER_CLASS_NAME = "android.os.IBinder";
-    private static final String PARCELABLE_CLASS_NAME = "android.os.Parcelable";
-    private static final String SIZE_CLASS_NAME = "android.util.Size";
-    private static final String SIZE_F_CLASS_NAME = "android.util.SizeF";
+        return TypeName.get(field.type);
+    }
 
-    private ProcessingEnvironment environment;
-    private BundlerClassInfo info;
+    /**
+     * Returns the suffix of the Parcel method used to write a non-primitive field when it
+     * differs from the generic writeValue, or {@code null} otherwise. Ex: "String" for
+     * writeString/readString or "IntArray" for writeIntArray/createIntArray.
+     */
+    private String getParcelMethodSuffix(BundlerField field) {
+        // Fields of unknown types have already been reported as errors
+        String suffix = bundleMethodSuffix(field);
+        if (suffix == null) {
+            return null;
+        }
 
-    public Bundler(ProcessingEnvironment environment, BundlerClassInfo info) {
-        this.environment = environment;
-        this.info = info;
+        switch (suffix) {
+            case "String":
+            case "Bundle":
+            case "ByteArray":
+            case "BooleanArray":
+            case "CharArray":
+            case "DoubleArray":
+            case "FloatArray":
+            case "IntArray":
+            case "LongArray":
+            case "StringArray":
+                return suffix;
+            case "Binder":
+                return "StrongBinder";
+            case "StringArrayList":
+                return "StringList";
+            default:
+                return null;
+        }
     }
 
     /**
-     * Returns the fully qualified name of the generated class. Ex: com.foo.far.BazBundler.
+     * Returns the component class of a Parcelable array field if it is a concrete class that
+     * declares its own CREATOR, so that the array can be read back with its real type. Returns
+     * {@code null} for interfaces such as Parcelable itself, abstract classes and classes that
+     * inherit their CREATOR, which can only be read with readParcelableArray.
      */
-    public String getQualifiedBundlerClassName() {
-        return info.className.packageName() + "." + getBundlerClassName();
+    private ClassName getParcelableArrayCreator(BundlerField field) {
+        TypeMirror componentType = ((ArrayType) field.type).getComponentType();
+        if (componentType.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+
+        TypeElement element = (TypeElement) ((DeclaredType) componentType).asElement();
+        if (element.getKind() != ElementKind.CLASS
+                || element.getModifiers().contains(Modifier.ABSTRACT)) {
+            return null;
+        }
+
+        for (Element e : element.getEnclosedElements()) {
+            if (e.getKind() == ElementKind.FIELD && e.getSimpleName().contentEquals("CREATOR")
+                    && e.getModifiers().contains(Modifier.STATIC)) {
+                return ClassName.get(element);
+            }
+        }
+
+        return null;
     }
 
     /**
-     * Returns the simple class name of the generate class. Ex: BazBundler.
+     * Returns {@code true} if a Parcelable array field is read with readParcelableArray but is
+     * not declared as Parcelable[], so the array that is read must be copied to the type of
+     * the field.
      */
-    public String getBundlerClassName() {
-        return info.className.simpleName() + "Bundler";
+    private boolean needsParcelableArrayCopy(BundlerField field) {
+        return isParcelableSubtypeArray(field) && getParcelableArrayCreator(field) == null;
     }
 
     /**
-     * Process the BundlerClass and return the source of a generated Bundler class, as a String.
-     * The output of this method is intended for writing to a ".java" file.
+     * Returns {@code true} if a field is stored with putParcelableArray but is not declared as
+     * Parcelable[], so the array read back from a parceled Bundle must be copied to the type
+     * of the field.
      */
-    public String getBundlerClassSource() {
-        // Create class named {FooObject}Bundler
-        TypeSpec bundlerType = TypeSpec.classBuilder(getBundlerClassName())
-                .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
-                .addMethod(createToBundleMethod())
-                .addMethod(createFromBundleMethod())
-                .build();
+    private boolean isParcelableSubtypeArray(BundlerField field) {
+        return "ParcelableArray".equals(bundleMethodSuffix(field))
+                && !((ArrayType) field.type).getComponentType().toString()
+                        .equals(BundlerTypes.PARCELABLE_CLASS_NAME);
+    }
 
-        JavaFile javaFile = JavaFile.builder(info.className.packageName(), bundlerType)
-                .build();
+    /**
+     * Returns {@code true} if a field is read from the Parcel with readValue and a cast to a
+     * generic type, which is unchecked.
+     */
+    private boolean isUncheckedParcelRead(BundlerField field) {
+        String suffix = bundleMethodSuffix(field);
+        return !field.type.getKind().isPrimitive()
+                && getParcelMethodSuffix(field) == null
+                && !"ParcelableArray".equals(suffix)
+                && getStoredType(field) instanceof ParameterizedTypeName;
+    }
 
-        return javaFile.toString();
+    /**
+     * Returns an expression for the value of a field to put in the Bundle, converted if
+     * necessary. Ex: object.someField or FooBundler.toBundle(object.getSomeField()).
+     */
+    private CodeBlock getObjectValue(BundlerField field) {
+        CodeBlock value = getFieldValue(field);
+        CodeBlock storedValue = getToStoredValue(field, value);
+        return storedValue != null ? storedValue : value;
     }
 
     /**
-     * Create the "fromBundle" method that accepts a Bundle and returns a member
-     * of the wrapped class.
+     * Returns an expression converting a value of a field to the type stored in the Bundle, or
+     * {@code null} if the field is stored as is. Ex: FooBundler.toBundle(value).
      */
-    private MethodSpec createFromBundleMethod() {
-        MethodSpec.Builder builder = MethodSpec.methodBuilder("fromBundle")
-                .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
-                .addParameter(BUNDLE_CLASS, "bundle")
-                .returns(info.className);
+    private CodeBlock getToStoredValue(BundlerField field, CodeBlock value) {
+        // Nested BundlerClass objects are converted with their own Bundler
+        ClassName nestedBundler = getNestedBundlerClass(field);
+        if (nestedBundler != null) {
+            return CodeBlock.of("$T.toBundle($L)", nestedBundler, value);
+        }
 
-        // Ensure the class has an empty constructor
-        boolean hasEmptyConstructor = false;
-        for (Element e : info.typeElement.getEnclosedElements()) {
-            if (e.getKind() == ElementKind.CONSTRUCTOR) {
-                boolean isEmptyConstructor = ((ExecutableElement) e).getParameters().isEmpty();
-                hasEmptyConstructor = hasEmptyConstructor || isEmptyConstructor;
-            }
-        }
-
-        if (!hasEmptyConstructor) {
-            String message = "[EasyBundler] Type " + info.className
-                    + " does not have default constructor!";
-            environment.getMessager().printMessage(Diagnostic.Kind.ERROR, message);
-        }
-
-        // Create a new instance of the object
-        builder.addStatement("$T object = new $T()", info.className, info.className);
-
-        // Get each field from the bundle and set it on the object
-        for (VariableElement field : getApplicableFields()) {
-            // Decide on the key for the field and how to get it from the bundle
-            String fieldKey = getFieldKey(field);
-            String getMethod = bundleGetMethod(field);
-
-            if (isPublic(field)) {
-                // Public fields can be set directly
-                // Ex: object.someField = (Type) bundle.getString("KEY")
-                if (requiresCast(getMethod)) {
-                    // Set with cast
-                    builder.addStatement("object.$L = ($T) bundle.$L($S)",
-                            field.getSimpleName(), field.asType(), getMethod, fieldKey);
-                } else {
-                    // Set without cast
-                    builder.addStatement("object.$L = bundle.$L($S)",
-                            field.getSimpleName(), getMethod, fieldKey);
-                }
-            } else {
-                // Non-public fields are set with the setter
-                // Ex: object.setSomeField((Type) bundle.getString("KEY"))
-                if (requiresCast(getMethod)) {
-                    // Set with cast
-                    builder.addStatement("object.$L(($T) bundle.$L($S))",
-                            setterName(field), field.asType(), getMethod, fieldKey);
-                } else {
-                    // Set without cast
-                    builder.addStatement("object.$L(bundle.$L($S))",
-                            setterName(field), getMethod, fieldKey);
-                }
-            }
+        // Lists of BundlerClass objects are converted to columns
+        ClassName nestedListBundler = getNestedListBundlerClass(field);
+        if (nestedListBundler != null) {
+            return CodeBlock.of("$T.toColumns($L)", nestedListBundler, value);
         }
 
-        // Return the object instance
-        builder.addStatement("return object");
+        // Collections of boxed primitives are converted to primitive arrays
+        PrimitiveType elementType = types.getPrimitiveCollectionElementType(field.type);
+        if (elementType != null) {
+            return getEncodePrimitivesValue(elementType, value);
+        }
 
-        return builder.build();
+        // Sparse arrays are converted to a Bundle of key and value columns
+        TypeMirror[] sparseArrayTypes = types.getSparseArrayTypes(field.type);
+        if (sparseArrayTypes != null) {
+            return CodeBlock.of("$T.$N($L)", getBundlerClass(),
+                    addSparseArrayHelpers(field.type, sparseArrayTypes), value);
+        }
+
+        // Maps are converted to a Bundle of key and value columns
+        TypeMirror[] mapTypes = types.getMapTypes(field.type);
+        if (mapTypes != null) {
+            return CodeBlock.of("$T.$N($L)", getBundlerClass(),
+                    addMapHelpers(field.type, mapTypes), value);
+        }
+
+        // Enums are converted to their name or ordinal, and arrays and lists of enums to an
+        // array of them
+        if (types.isEnum(field.type)) {
+            return getEnumToStoredValue(field.type, value);
+        }
+
+        TypeMirror enumType = types.getEnumCollectionElementType(field.type);
+        if (enumType != null) {
+            return CodeBlock.of("$T.encode$N($L)", getBundlerClass(),
+                    addEnumCollectionHelpers(field.type, enumType), value);
+        }
+
+        return null;
     }
 
     /**
-     * Create the "toBundle" method that serializes the wrapped class as a Bundle.
+     * Returns an expression converting a value stored in the Bundle back to the type of a
+     * field, the reverse of {@link #getToStoredValue(BundlerField, CodeBlock)}, or
+     * {@code null} if the field is stored as is.
      */
-    private MethodSpec createToBundleMethod() {
-        MethodSpec.Builder builder = MethodSpec.methodBuilder("toBundle")
-                .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
-                .addParameter(info.className, "object")
-                .returns(BUNDLE_CLASS);
+    private CodeBlock getFromStoredValue(BundlerField field, CodeBlock value) {
+        ClassName nestedBundler = getNestedBundlerClass(field);
+        if (nestedBundler != null) {
+            return CodeBlock.of("$T.fromBundle($L)", nestedBundler, value);
+        }
 
-        // Create new bundle
-        builder.addStatement("$T bundle = new $T()", BUNDLE_CLASS, BUNDLE_CLASS);
+        ClassName nestedListBundler = getNestedListBundlerClass(field);
+        if (nestedListBundler != null) {
+            return CodeBlock.of("$T.fromColumns($L)", nestedListBundler, value);
+        }
 
-        // Get each field from the object and set it on the bundle
-        for (VariableElement field : getApplicableFields()) {
-            // Decide on the key for the field and how to add it to the bundle
-            String fieldKey = getFieldKey(field);
-            String putMethod = bundlePutMethod(field);
+        PrimitiveType elementType = types.getPrimitiveCollectionElementType(field.type);
+        if (elementType != null) {
+            return getDecodePrimitivesValue(field, elementType, value);
+        }
+
+        TypeMirror[] sparseArrayTypes = types.getSparseArrayTypes(field.type);
+        if (sparseArrayTypes != null) {
+            return CodeBlock.of("$T.un$N($L)", getBundlerClass(),
+                    addSparseArrayHelpers(field.type, sparseArrayTypes), value);
+        }
+
+        TypeMirror[] mapTypes = types.getMapTypes(field.type);
+        if (mapTypes != null) {
+            return CodeBlock.of("$T.un$N($L)", getBundlerClass(),
+                    addMapHelpers(field.type, mapTypes), value);
+        }
+
+        if (types.isEnum(field.type)) {
+            return getEnumFromStoredValue(field.type, value);
+        }
+
+        TypeMirror enumType = types.getEnumCollectionElementType(field.type);
+        if (enumType != null) {
+            return CodeBlock.of("$T.decode$N($L)", getBundlerClass(),
+                    addEnumCollectionHelpers(field.type, enumType), value);
+        }
+
+        return null;
+    }
 
-            if (isPublic(field)) {
-                // Public fields can be accessed directly
-                // Ex: bundle.putString("KEY", object.someField)
-                builder.addStatement("bundle.$L($S, object.$L)",
-                        putMethod, fieldKey, field.getSimpleName());
+    /**
+     * Returns an expression converting an enum value to its name, or to its ordinal plus one
+     * so that 0, which is also the value of a missing key, stands for null.
+     * Ex: FooBundler.enumName(object.mode).
+     */
+    private CodeBlock getEnumToStoredValue(TypeMirror enumType, CodeBlock value) {
+        TypeVariableName typeVariable = TypeVariableName.get("E");
+        TypeName enumOfType = ParameterizedTypeName.get(ClassName.get(Enum.class), typeVariable);
+        String name = info.enumOrdinals ? "enumOrdinal" : "enumName";
+
+        if (!helpers.containsKey(name)) {
+            MethodSpec.Builder helper = MethodSpec.methodBuilder(name)
+                    .addModifiers(Modifier.STATIC)
+                    .addTypeVariable(TypeVariableName.get("E", enumOfType))
+                    .addParameter(typeVariable, "value");
+            if (info.enumOrdinals) {
+                helper.returns(int.class)
+                        .addStatement("return value == null ? 0 : value.ordinal() + 1");
             } else {
-                // Non-public fields are accessed via getter
-                // Ex: bundle.putString("KEY, object.getSomeField())
-                builder.addStatement("bundle.$L($S, object.$L())",
-                        putMethod, fieldKey, getterName(field));
+                helper.returns(String.class)
+                        .addStatement("return value == null ? null : value.name()");
             }
+            helpers.put(name, helper.build());
         }
 
-        // Return statement
-        builder.addStatement("return bundle");
+        return CodeBlock.of("$T.$N($L)", getBundlerClass(), name, value);
+    }
 
-        return builder.build();
+    /**
+     * Returns an expression converting a stored name or ordinal back to an enum value, the
+     * reverse of {@link #getEnumToStoredValue(TypeMirror, CodeBlock)}. Names and ordinals that
+     * no longer exist become null. Ordinals are looked up in a cached {@code values()} array,
+     * since each call to {@code values()} creates a new array.
+     * Ex: FooBundler.enumValue(FooBundler.VALUES_MODE, bundle.getInt(KEY_MODE)).
+     */
+    private CodeBlock getEnumFromStoredValue(TypeMirror enumType, CodeBlock value) {
+        TypeVariableName typeVariable = TypeVariableName.get("E");
+        TypeName enumOfType = ParameterizedTypeName.get(ClassName.get(Enum.class), typeVariable);
+        TypeName enumTypeName = TypeName.get(enumType);
+
+        if (info.enumOrdinals) {
+            if (!helpers.containsKey("enumValue")) {
+                helpers.put("enumValue", MethodSpec.methodBuilder("enumValue")
+                        .addModifiers(Modifier.STATIC)
+                        .addTypeVariable(TypeVariableName.get("E", enumOfType))
+                        .addParameter(ArrayTypeName.of(typeVariable), "values")
+                        .addParameter(int.class, "ordinal")
+                        .returns(typeVariable)
+                        .addStatement("return ordinal > 0 && ordinal <= values.length "
+                                + "? values[ordinal - 1] : null")
+                        .build());
+            }
+
+            // Ex: static final Mode[] VALUES_MODE = Mode.values()
+            String valuesName = "VALUES_" + getConstantName(getHelperTypeName(enumTypeName));
+            if (!enumValuesFields.containsKey(valuesName)) {
+                enumValuesFields.put(valuesName,
+                        FieldSpec.builder(ArrayTypeName.of(enumTypeName), valuesName)
+                                .addModifiers(Modifier.STATIC, Modifier.FINAL)
+                                .initializer("$T.values()", enumTypeName)
+                                .build());
+            }
+
+            return CodeBlock.of("$T.enumValue($T.$N, $L)", getBundlerClass(), getBundlerClass(),
+                    valuesName, value);
+        }
+
+        if (!helpers.containsKey("enumValueOf")) {
+            TypeName classOfType = ParameterizedTypeName.get(ClassName.get(Class.class),
+                    typeVariable);
+            helpers.put("enumValueOf", MethodSpec.methodBuilder("enumValueOf")
+                    .addModifiers(Modifier.STATIC)
+                    .addTypeVariable(TypeVariableName.get("E", enumOfType))
+                    .addParameter(classOfType, "type")
+                    .addParameter(String.class, "name")
+                    .returns(typeVariable)
+                    .beginControlFlow("if (name == null)")
+                    .addStatement("return null")
+                    .endControlFlow()
+                    .beginControlFlow("try")
+                    .addStatement("return $T.valueOf(type, name)", Enum.class)
+                    .nextControlFlow("catch ($T e)", IllegalArgumentException.class)
+                    .addStatement("return null")
+                    .endControlFlow()
+                    .build());
+        }
+
+        return CodeBlock.of("$T.enumValueOf($T.class, $L)", getBundlerClass(), enumTypeName,
+                value);
     }
 
     /**
-     * Returns a (probably) unique Bundle key for a field.
+     * Adds the helpers converting an array or list of enums to and from an array of their
+     * names or ordinals, and returns their name without the "encode" and "decode" prefixes.
+     * Ex: ListOfMode for encodeListOfMode and decodeListOfMode.
      */
-    private String getFieldKey(VariableElement field) {
-        return "KEY_" + info.className.reflectionName() + "_" + field.getSimpleName();
+    private String addEnumCollectionHelpers(TypeMirror type, TypeMirror enumType) {
+        TypeName typeName = TypeName.get(type);
+        boolean isArray = type.getKind() == TypeKind.ARRAY;
+
+        String name = getHelperTypeName(typeName);
+        if (helpers.containsKey("encode" + name)) {
+            return name;
+        }
+
+        // Ex: String[] column = new String[size]
+        MethodSpec.Builder encode = MethodSpec.methodBuilder("encode" + name)
+                .addModifiers(Modifier.STATIC)
+                .addParameter(typeName, "values")
+                .returns(getColumnArrayType(enumType))
+                .beginControlFlow("if (values == null)")
+                .addStatement("return null")
+                .endControlFlow()
+                .addStatement("int size = values.$L", isArray ? "length" : "size()");
+        addNewColumn(encode, enumType, "column", "size");
+        encode.addStatement("int i = 0")
+                .beginControlFlow("for ($T value : values)", TypeName.get(enumType))
+                .addStatement("$L", getSetColumnElement(enumType, "column", "value"))
+                .addStatement("i++")
+                .endControlFlow()
+                .addStatement("return column");
+
+        MethodSpec.Builder decode = MethodSpec.methodBuilder("decode" + name)
+                .addModifiers(Modifier.STATIC)
+                .addParameter(getColumnArrayType(enumType), "column")
+                .returns(typeName)
+                .beginControlFlow("if (column == null)")
+                .addStatement("return null")
+                .endControlFlow()
+                .addStatement("int size = column.length");
+        if (isArray) {
+            decode.addStatement("$T values = new $T[size]", typeName, TypeName.get(enumType))
+                    .beginControlFlow("for (int i = 0; i < size; i++)")
+                    .addStatement("values[i] = $L", getColumnElement(enumType, "column"));
+        } else {
+            decode.addStatement("$T values = new $T<>(size)", typeName, ArrayList.class)
+                    .beginControlFlow("for (int i = 0; i < size; i++)")
+                    .addStatement("values.add($L)", getColumnElement(enumType, "column"));
+        }
+        decode.endControlFlow()
+                .addStatement("return values");
+
+        helpers.put("encode" + name, encode.build());
+        helpers.put("decode" + name, decode.build());
+        return name;
     }
 
     /**
-     * Returns the name of "put" method from the Bundle class for a given field. Ex: putString
-     * or putCharSequenceArray.
+     * Returns an expression for the value of a field of the object, without conversion.
+     * Ex: object.someField or object.getSomeField().
      */
-    private String bundlePutMethod(VariableElement field) {
-        return "put" + bundleMethodSuffix(field);
+    private CodeBlock getFieldValue(BundlerField field) {
+        if (field.isPublic) {
+            // Public fields can be accessed directly
+            return CodeBlock.of("object.$L", field.name);
+        }
+
+        // Non-public fields are accessed via getter
+        return CodeBlock.of("object.$L()", field.getterName);
     }
 
     /**
-     * Returns the name of "get" method from the Bundle class for a given field. Ex: getString
-     * or getCharSequenceArray.
+     * Returns an expression for the value of a field read from the Bundle, converted or cast
+     * if necessary. Ex: (String) bundle.getString(KEY_SOME_FIELD).
      */
-    private String bundleGetMethod(VariableElement field) {
-        return "get" + bundleMethodSuffix(field);
+    private CodeBlock getBundleValue(BundlerField field) {
+        return getBundleValue(field, CodeBlock.of("bundle"), CodeBlock.of(getFieldKeyName(field)));
     }
 
     /**
-     * Returns {@code true} if a cast is needed when using a certain bundle method.
+     * Returns an expression for the value of a field read from any Bundle with any key. Used
+     * by {@link #getBundleValue(BundlerField)} and for columns stored by index.
      */
-    private boolean requiresCast(String bundleMethodName) {
-        // TL;DR - ParcelableArrayList is a pain in the ass!
-        return !(bundleMethodName.contains("ParcelableArrayList"));
+    private CodeBlock getBundleValue(BundlerField field, CodeBlock bundle, CodeBlock key) {
+        String getMethod = bundleGetMethod(field);
+        CodeBlock value = CodeBlock.of("$L.$L($L)", bundle, getMethod, key);
+
+        // Converted values are converted back, which also gives them the right type
+        CodeBlock fieldValue = getFromStoredValue(field, value);
+        if (fieldValue != null) {
+            return fieldValue;
+        }
+
+        // Ex: FooBundler.copyOf(bundle.getParcelableArray(KEY_SHAPES), Shape[].class)
+        if (isParcelableSubtypeArray(field)) {
+            if (!helpers.containsKey("copyOf")) {
+                helpers.put("copyOf", createCopyOfMethod(Modifier.STATIC));
+            }
+            TypeMirror arrayType = environment.getTypeUtils().erasure(field.type);
+            return CodeBlock.of("$T.copyOf($L, $T.class)", getBundlerClass(), value,
+                    TypeName.get(arrayType));
+        }
+
+        if (requiresCast(getMethod)) {
+            return CodeBlock.of("($T) $L", field.type, value);
+        }
+
+        return value;
     }
 
     /**
-     * Returns the suffix for a bundle method based on type.  For a String field this would be
-     * "String", for an Integer field this would be "Int". Used by
-     * {@link #bundlePutMethod(VariableElement)} and {@link #bundleGetMethod(VariableElement)}.
-     */
-    private String bundleMethodSuffix(VariableElement field) {
-        // Method lists consulted:
-        //   * https://developer.android.com/reference/android/os/BaseBundle.html
-        //   * https://developer.android.com/reference/android/os/Bundle.html
-        // Not supported:
-        //   * SparseParcelableArray<? extends Parcelable>
-
-        // Primitives and boxed primitives
-        if (matchesClass(field, Boolean.class, MatchPolicy.ASSIGNABLE)) {
-            return "Boolean";
-        } else if (matchesClass(field, Byte.class, MatchPolicy.ASSIGNABLE)) {
-            return "Byte";
-        } else if (matchesClass(field, Character.class, MatchPolicy.ASSIGNABLE)) {
-            return "Char";
-        } else if (matchesClass(field, Double.class, MatchPolicy.ASSIGNABLE)) {
-            return "Double";
-        } else if (matchesClass(field, Float.class, MatchPolicy.ASSIGNABLE)) {
-            return "Float";
-        } else if (matchesClass(field, Integer.class, MatchPolicy.ASSIGNABLE)) {
-            return "Int";
-        } else if (matchesClass(field, Long.class, MatchPolicy.ASSIGNABLE)) {
-            return "Long";
-        } else if (matchesClass(field, Short.class, MatchPolicy.ASSIGNABLE)) {
-            return "Short";
-        }
-
-        // Non-primitive classes
-        if (matchesClass(field, String.class, MatchPolicy.EXACT)) {
-            return "String";
-        } if (matchesClass(field, CharSequence.class, MatchPolicy.EXACT)) {
-            return "CharSequence";
-        } else if (matchesClass(field, BUNDLE_CLASS_NAME, MatchPolicy.EXACT)) {
-            return "Bundle";
-        } else if (matchesClass(field, I_BINDER_CLASS_NAME, MatchPolicy.EXACT)) {
-            return "Binder";
-        } else if (matchesClass(field, SIZE_CLASS_NAME, MatchPolicy.EXACT)) {
-            return "Size";
-        } else if (matchesClass(field, SIZE_F_CLASS_NAME, MatchPolicy.EXACT)) {
-            return "SizeF";
-        }
-
-        // Primitive array classes
-        if (matchesPrimitiveArrayClass(field, TypeKind.BYTE)) {
-            return "ByteArray";
-        } else if (matchesPrimitiveArrayClass(field, TypeKind.BOOLEAN)) {
-            return "BooleanArray";
-        } else if (matchesPrimitiveArrayClass(field, TypeKind.CHAR)) {
-            return "CharArray";
-        } else if (matchesPrimitiveArrayClass(field, TypeKind.DOUBLE)) {
-            return "DoubleArray";
-        } else if (matchesPrimitiveArrayClass(field, TypeKind.FLOAT)) {
-            return "FloatArray";
-        } else if (matchesPrimitiveArrayClass(field, TypeKind.INT)) {
-            return "IntArray";
-        } else if (matchesPrimitiveArrayClass(field, TypeKind.LONG)) {
-            return "LongArray";
-        } else if (matchesPrimitiveArrayClass(field, TypeKind.SHORT)) {
-            return "ShortArray";
-        }
-
-        // Non-primitive array classes
-        if (matchesArrayClass(field, String.class, MatchPolicy.EXACT)) {
-            return "StringArray";
-        } else if (matchesArrayClass(field, CharSequence.class, MatchPolicy.EXACT)) {
-            return "CharSequenceArray";
-        }
-
-        // ArrayList classes
-        if (matchesArrayListClass(field, CharSequence.class, MatchPolicy.EXACT)) {
-            return "CharSequenceArrayList";
-        } else if (matchesArrayListClass(field, Integer.class, MatchPolicy.EXACT)) {
-            return "IntegerArrayList";
-        } else if (matchesArrayListClass(field, String.class, MatchPolicy.EXACT)) {
-            return "StringArrayList";
-        }
-
-        // Parcelable[]
-        if (matchesArrayClass(field, PARCELABLE_CLASS_NAME, MatchPolicy.ASSIGNABLE)) {
-            return "ParcelableArray";
-        }
-
-        // ArrayList<Parcelable>
-        if (matchesArrayListClass(field, PARCELABLE_CLASS_NAME, MatchPolicy.ASSIGNABLE)) {
-            return "ParcelableArrayList";
-        }
-
-        // Serializable and Parcelable last to avoid masking something more specific
-        if (matchesClass(field, Serializable.class, MatchPolicy.ASSIGNABLE)) {
-            return "Serializable";
-        } else if (matchesClass(field, PARCELABLE_CLASS_NAME, MatchPolicy.ASSIGNABLE)) {
-            return "Parcelable";
+     * Returns an expression converting a collection of boxed primitives to a primitive array,
+     * or to an {@code ArrayList} of the boxed values if it has a null element, which the array
+     * can not hold. Ex: FooBundler.encodeIntegers(object.ids).
+     */
+    private CodeBlock getEncodePrimitivesValue(PrimitiveType elementType, CodeBlock value) {
+        TypeName primitive = TypeName.get(elementType);
+        TypeName array = ArrayTypeName.of(primitive);
+        ClassName boxed = (ClassName) primitive.box();
+
+        // Ex: encodeIntegers
+        String name = "encode" + boxed.simpleName() + "s";
+        if (!helpers.containsKey(name)) {
+            MethodSpec helper = MethodSpec.methodBuilder(name)
+                    .addModifiers(Modifier.STATIC)
+                    .addParameter(ParameterizedTypeName.get(ClassName.get(Collection.class), boxed),
+                            "values")
+                    .returns(Serializable.class)
+                    .beginControlFlow("if (values == null)")
+                    .addStatement("return null")
+                    .endControlFlow()
+                    .addStatement("$T result = new $T[values.size()]", array, primitive)
+                    .addStatement("int i = 0")
+                    .beginControlFlow("for ($T value : values)", boxed)
+                    .beginControlFlow("if (value == null)")
+                    .addStatement("return new $T<$T>(values)", ArrayList.class, boxed)
+                    .endControlFlow()
+                    .addStatement("result[i++] = value")
+                    .endControlFlow()
+                    .addStatement("return result")
+                    .build();
+            helpers.put(name, helper);
         }
 
-        // Could not find type, throw Exception
-        String message = "[EasyBundler] Field " + field.getSimpleName() + " in class "
-                + info.className + " cannot be included in bundle: unknown type " + field.asType();
-        environment.getMessager().printMessage(Diagnostic.Kind.ERROR, message);
+        return CodeBlock.of("$T.$N($L)", getBundlerClass(), name, value);
+    }
 
-        return null;
+    /**
+     * Returns an expression rebuilding a collection of boxed primitives from a primitive array
+     * or a collection of the boxed values: an {@code ArrayList} for lists, or a
+     * {@code LinkedHashSet} for sets, which keeps the order of the values. Collections are
+     * also what putIntegerArrayList and Java serialization stored before arrays were used.
+     * Ex: FooBundler.decodeIntegerList(bundle.getSerializable(KEY_IDS)).
+     */
+    private CodeBlock getDecodePrimitivesValue(BundlerField field, PrimitiveType elementType,
+                                               CodeBlock value) {
+        TypeName primitive = TypeName.get(elementType);
+        TypeName array = ArrayTypeName.of(primitive);
+        ClassName boxed = (ClassName) primitive.box();
+
+        String className = ((TypeElement) ((DeclaredType) field.type).asElement())
+                .getQualifiedName().toString();
+        boolean isSet = BundlerTypes.PRIMITIVE_SET_CLASS_NAMES.contains(className);
+        ClassName collectionClass = ClassName.get(isSet ? LinkedHashSet.class : ArrayList.class);
+        TypeName collectionType = ParameterizedTypeName.get(collectionClass, boxed);
+
+        // Ex: decodeIntegerList or decodeLongSet
+        String name = "decode" + boxed.simpleName() + (isSet ? "Set" : "List");
+        if (!helpers.containsKey(name)) {
+            // Sets are sized so that they are not rehashed while adding the values
+            String capacity = isSet ? "array.length * 4 / 3 + 1" : "array.length";
+            MethodSpec helper = MethodSpec.methodBuilder(name)
+                    .addAnnotation(AnnotationSpec.builder(SuppressWarnings.class)
+                            .addMember("value", "$S", "unchecked")
+                            .build())
+                    .addModifiers(Modifier.STATIC)
+                    .addParameter(Serializable.class, "values")
+                    .returns(collectionType)
+                    .beginControlFlow("if (values == null)")
+                    .addStatement("return null")
+                    .endControlFlow()
+                    .beginControlFlow("if (values instanceof $T)", Collection.class)
+                    .addStatement("return new $T<$T>(($T) values)", collectionClass, boxed,
+                            ParameterizedTypeName.get(ClassName.get(Collection.class), boxed))
+                    .endControlFlow()
+                    .addStatement("$T array = ($T) values", array, array)
+                    .addStatement("$T result = new $T<$T>($L)", collectionType, collectionClass,
+                            boxed, capacity)
+                    .beginControlFlow("for ($T value : array)", primitive)
+                    .addStatement("result.add(value)")
+                    .endControlFlow()
+                    .addStatement("return result")
+                    .build();
+            helpers.put(name, helper);
+        }
+
+        return CodeBlock.of("$T.$N($L)", getBundlerClass(), name, value);
+    }
+
+    /**
+     * Adds the helpers converting a sparse array to and from a Bundle holding a column of keys
+     * and a column of values, and returns the name of the first. The name of the second has
+     * an "un" prefix. Ex: bundleSparseIntArray and unbundleSparseIntArray.
+     */
+    private String addSparseArrayHelpers(TypeMirror type, TypeMirror[] sparseArrayTypes) {
+        TypeMirror keyType = sparseArrayTypes[0];
+        TypeMirror valueType = sparseArrayTypes[1];
+        TypeName typeName = TypeName.get(type);
+
+        String name = "bundle" + getHelperTypeName(typeName);
+        if (helpers.containsKey(name)) {
+            return name;
+        }
+
+        // Ex: int[] keys = new int[size]
+        MethodSpec.Builder toBundle = MethodSpec.methodBuilder(name)
+                .addModifiers(Modifier.STATIC)
+                .addParameter(typeName, "array")
+                .returns(bundleClass)
+                .beginControlFlow("if (array == null)")
+                .addStatement("return null")
+                .endControlFlow()
+                .addStatement("int size = array.size()");
+        addNewColumn(toBundle, keyType, "keys", "size");
+        addNewColumn(toBundle, valueType, "values", "size");
+        toBundle.beginControlFlow("for (int i = 0; i < size; i++)");
+        addSetColumnElement(toBundle, keyType, "keys", "array.keyAt(i)");
+        addSetColumnElement(toBundle, valueType, "values", "array.valueAt(i)");
+        toBundle.endControlFlow()
+                .addStatement("$T bundle = new $T()", bundleClass, bundleClass);
+        addPutColumn(toBundle, keyType, "keys", KEYS_KEY);
+        addPutColumn(toBundle, valueType, "values", VALUES_KEY);
+        toBundle.addStatement("return bundle");
+
+        // Keys are in ascending order, so append is faster than put
+        TypeName rawType = typeName instanceof ParameterizedTypeName
+                ? ((ParameterizedTypeName) typeName).rawType
+                : typeName;
+        String diamond = typeName instanceof ParameterizedTypeName ? "<>" : "";
+        MethodSpec.Builder fromBundle = MethodSpec.methodBuilder("un" + name)
+                .addModifiers(Modifier.STATIC)
+                .addParameter(bundleClass, "bundle")
+                .returns(typeName)
+                .beginControlFlow("if (bundle == null)")
+                .addStatement("return null")
+                .endControlFlow();
+        addGetColumn(fromBundle, keyType, "keys", KEYS_KEY);
+        addGetColumn(fromBundle, valueType, "values", VALUES_KEY);
+        fromBundle.addStatement("int size = $L", getColumnLength(keyType, "keys"))
+                .addStatement("$T array = new $T$L(size)", typeName, rawType, diamond)
+                .beginControlFlow("for (int i = 0; i < size; i++)")
+                .addStatement("array.append($L, $L)", getColumnElement(keyType, "keys"),
+                        getColumnElement(valueType, "values"))
+                .endControlFlow()
+                .addStatement("return array");
+
+        helpers.put(name, toBundle.build());
+        helpers.put("un" + name, fromBundle.build());
+        return name;
     }
 
     /**
-     * Returns {@code true} if the type of an {@link VariableElement} is the same as a
-     * particular {@link Class}. This cannot be used with array classes or generic types.
+     * Adds the helpers converting a map to and from a Bundle holding a column of keys and a
+     * column of values, and returns the name of the first. The name of the second has an "un"
+     * prefix. Ex: bundleMapOfStringAndInteger and unbundleMapOfStringAndInteger. The
+     * comparator of a sorted map, if any, is stored as Serializable next to the columns. A
+     * sorted map with a comparator that is not Serializable is stored whole instead.
      */
-    private boolean matchesClass(VariableElement field, Class<?> clazz, MatchPolicy policy) {
-        return matchesClass(field, clazz.getCanonicalName(), policy);
+    private String addMapHelpers(TypeMirror type, TypeMirror[] mapTypes) {
+        TypeMirror keyType = mapTypes[0];
+        TypeMirror valueType = mapTypes[1];
+        TypeName typeName = TypeName.get(type);
+
+        String name = "bundle" + getHelperTypeName(typeName);
+        if (helpers.containsKey(name)) {
+            return name;
+        }
+
+        TypeName entryType = ParameterizedTypeName.get(ClassName.get(Map.Entry.class),
+                TypeName.get(keyType), TypeName.get(valueType));
+        MethodSpec.Builder toBundle = MethodSpec.methodBuilder(name)
+                .addModifiers(Modifier.STATIC)
+                .addParameter(typeName, "map")
+                .returns(bundleClass)
+                .beginControlFlow("if (map == null)")
+                .addStatement("return null")
+                .endControlFlow()
+                .addStatement("$T bundle = new $T()", bundleClass, bundleClass);
+
+        // Ex: bundle.putSerializable("map", (Serializable) map)
+        ClassName mapClass = getMapClass(type);
+        boolean isSorted = mapClass.equals(ClassName.get(TreeMap.class));
+        if (isSorted) {
+            toBundle.beginControlFlow("if ($L)", getUnserializableComparatorCheck())
+                    .addStatement("bundle.putSerializable($S, ($T) map)", MAP_KEY,
+                            Serializable.class)
+                    .addStatement("return bundle")
+                    .endControlFlow();
+        }
+
+        toBundle.addStatement("int size = map.size()");
+        addNewColumn(toBundle, keyType, "keys", "size");
+        addNewColumn(toBundle, valueType, "values", "size");
+        toBundle.addStatement("int i = 0")
+                .beginControlFlow("for ($T entry : map.entrySet())", entryType);
+        addSetColumnElement(toBundle, keyType, "keys", "entry.getKey()");
+        addSetColumnElement(toBundle, valueType, "values", "entry.getValue()");
+        toBundle.addStatement("i++")
+                .endControlFlow();
+        addPutColumn(toBundle, keyType, "keys", KEYS_KEY);
+        addPutColumn(toBundle, valueType, "values", VALUES_KEY);
+
+        // Ex: bundle.putSerializable("comparator", (Serializable) map.comparator())
+        if (isSorted) {
+            toBundle.beginControlFlow("if (map.comparator() != null)")
+                    .addStatement("bundle.putSerializable($S, ($T) map.comparator())",
+                            COMPARATOR_KEY, Serializable.class)
+                    .endControlFlow();
+        }
+        toBundle.addStatement("return bundle");
+
+        MethodSpec.Builder fromBundle = MethodSpec.methodBuilder("un" + name)
+                .addModifiers(Modifier.STATIC)
+                .addParameter(bundleClass, "bundle")
+                .returns(typeName)
+                .beginControlFlow("if (bundle == null)")
+                .addStatement("return null")
+                .endControlFlow();
+        if (isSorted) {
+            // Ex: return (SortedMap<String, Integer>) bundle.getSerializable("map")
+            fromBundle.beginControlFlow("if (bundle.containsKey($S))", MAP_KEY)
+                    .addStatement("return ($T) bundle.getSerializable($S)", typeName, MAP_KEY)
+                    .endControlFlow();
+        }
+        addGetColumn(fromBundle, keyType, "keys", KEYS_KEY);
+        addGetColumn(fromBundle, valueType, "values", VALUES_KEY);
+        fromBundle.addStatement("int size = $L", getColumnLength(keyType, "keys"));
+        if (isSorted) {
+            // Ex: Comparator<? super String> comparator = (Comparator<? super String>) ...
+            TypeName comparatorType = ParameterizedTypeName.get(ClassName.get(Comparator.class),
+                    WildcardTypeName.supertypeOf(TypeName.get(keyType)));
+            fromBundle.addAnnotation(AnnotationSpec.builder(SuppressWarnings.class)
+                            .addMember("value", "$S", "unchecked")
+                            .build())
+                    .addStatement("$T comparator = ($T) bundle.getSerializable($S)",
+                            comparatorType, comparatorType, COMPARATOR_KEY)
+                    .addStatement("$T map = new $T<$T, $T>(comparator)", typeName, mapClass,
+                            TypeName.get(keyType), TypeName.get(valueType));
+        } else {
+            // Hash maps are sized so that they are not rehashed while adding the entries
+            fromBundle.addStatement("$T map = new $T<>(size * 4 / 3 + 1)", typeName, mapClass);
+        }
+        fromBundle.beginControlFlow("for (int i = 0; i < size; i++)")
+                .addStatement("map.put($L, $L)", getColumnElement(keyType, "keys"),
+                        getColumnElement(valueType, "values"))
+                .endControlFlow()
+                .addStatement("return map");
+
+        helpers.put(name, toBundle.build());
+        helpers.put("un" + name, fromBundle.build());
+        return name;
     }
 
     /**
-     * See {@link #matchesClass(VariableElement, Class, MatchPolicy)}.
+     * Returns the condition under which a sorted map named "map" is stored whole, since its
+     * comparator can not be stored on its own.
      */
-    private boolean matchesClass(VariableElement field, String className, MatchPolicy policy) {
-        TypeElement target = getTypeElementForClass(className);
-        return target != null && typesMatch(field.asType(), target.asType(), policy);
+    private static CodeBlock getUnserializableComparatorCheck() {
+        return CodeBlock.of("map.comparator() != null && !(map.comparator() instanceof $T)",
+                Serializable.class);
     }
 
     /**
-     * Returns {@code true} if the type of an {@link VariableElement} representing an array
-     * is an array where the members are a particular {@link Class}.
+     * Returns the class of map created when reading a map field: a {@code TreeMap} for sorted
+     * maps, a {@code HashMap} for fields declared as one, and otherwise a
+     * {@code LinkedHashMap}, which keeps the order in which the entries were written.
      */
-    private boolean matchesArrayClass(VariableElement field, Class<?> clazz, MatchPolicy policy) {
-        return matchesArrayClass(field, clazz.getCanonicalName(), policy);
+    private static ClassName getMapClass(TypeMirror type) {
+        String className = ((TypeElement) ((DeclaredType) type).asElement())
+                .getQualifiedName().toString();
+        if (className.equals(SortedMap.class.getCanonicalName())
+                || className.equals(TreeMap.class.getCanonicalName())) {
+            return ClassName.get(TreeMap.class);
+        } else if (className.equals(HashMap.class.getCanonicalName())) {
+            return ClassName.get(HashMap.class);
+        }
+
+        return ClassName.get(LinkedHashMap.class);
     }
 
     /**
-     * See {@link #matchesArrayClass(VariableElement, Class, MatchPolicy)}.
+     * Returns a name for a type that can be part of a helper method name.
+     * Ex: SparseArrayOfString for SparseArray&lt;String&gt;.
      */
-    private boolean matchesArrayClass(VariableElement field, String className, MatchPolicy policy) {
-        // Check if the field is an array
-        if (field.asType().getKind() != TypeKind.ARRAY) {
-            return false;
+    private static String getHelperTypeName(TypeName typeName) {
+        if (typeName instanceof ArrayTypeName) {
+            return getHelperTypeName(((ArrayTypeName) typeName).componentType) + "Array";
+        }
+
+        if (!(typeName instanceof ParameterizedTypeName)) {
+            return getSimpleNames((ClassName) typeName);
+        }
+
+        ParameterizedTypeName parameterizedType = (ParameterizedTypeName) typeName;
+        StringBuilder result = new StringBuilder(getSimpleNames(parameterizedType.rawType));
+        for (int i = 0; i < parameterizedType.typeArguments.size(); i++) {
+            result.append(i == 0 ? "Of" : "And");
+            result.append(getHelperTypeName(parameterizedType.typeArguments.get(i)));
         }
 
-        // Get the type of array it is
-        TypeMirror componentType = ((ArrayType) field.asType()).getComponentType();
+        return result.toString();
+    }
+
+    private static String getSimpleNames(ClassName className) {
+        StringBuilder result = new StringBuilder();
+        for (String simpleName : className.simpleNames()) {
+            result.append(simpleName);
+        }
 
-        // Perform check
-        TypeElement target = getTypeElementForClass(className);
-        return target != null && typesMatch(componentType, target.asType(), policy);
+        return result.toString();
     }
 
     /**
-     * Returns {@code true} if the type of an {@link VariableElement} representing an array
-     * is a primitive array where the members are a particular {@link TypeKind}.
+     * Add a statement declaring a new column for values of a type, to be filled with
+     * {@link #addSetColumnElement(MethodSpec.Builder, TypeMirror, String, String)}. Columns are
+     * arrays, except for classes annotated with {@code BundlerClass} which are collected in a
+     * list and stored as columns themselves. Boxed primitives also get a mask of their null
+     * elements, which is only created once one is found. Ex: int[] keys = new int[size].
      */
-    private boolean matchesPrimitiveArrayClass(VariableElement field, TypeKind kind) {
-        PrimitiveType primitiveType = environment.getTypeUtils().getPrimitiveType(kind);
-        ArrayType arrayType = environment.getTypeUtils().getArrayType(primitiveType);
+    private void addNewColumn(MethodSpec.Builder builder, TypeMirror type, String name,
+                              String size) {
+        if (isBundlerColumn(type)) {
+            TypeName listType = ParameterizedTypeName.get(ClassName.get(ArrayList.class),
+                    TypeName.get(type));
+            builder.addStatement("$T $N = new $T<>($L)", listType, name, ArrayList.class, size);
+        } else {
+            ArrayTypeName arrayType = getColumnArrayType(type);
+            builder.addStatement("$T $N = new $T[$L]", arrayType, name, arrayType.componentType,
+                    size);
+        }
+
+        if (isNullableColumn(type)) {
+            // Ex: boolean[] keysNulls = null
+            builder.addStatement("boolean[] $N = null", name + "Nulls");
+        }
+    }
 
-        return typesMatch(field.asType(), arrayType, MatchPolicy.EXACT);
+    /**
+     * Add the statements setting the element at index "i" of a column. Elements must be set
+     * in order. Null boxed primitives are marked in the mask of the column instead, since the
+     * array can not hold them. Ex: keys[i] = array.keyAt(i).
+     */
+    private void addSetColumnElement(MethodSpec.Builder builder, TypeMirror type, String name,
+                                     String value) {
+        if (!isNullableColumn(type)) {
+            builder.addStatement("$L", getSetColumnElement(type, name, value));
+            return;
+        }
 
+        String nulls = name + "Nulls";
+        builder.beginControlFlow("if ($L == null)", value)
+                .beginControlFlow("if ($N == null)", nulls)
+                .addStatement("$N = new boolean[$N.length]", nulls, name)
+                .endControlFlow()
+                .addStatement("$N[i] = true", nulls)
+                .nextControlFlow("else")
+                .addStatement("$L", getSetColumnElement(type, name, value))
+                .endControlFlow();
     }
 
     /**
-     * Returns {@code true} if the type of an {@link VariableElement} representing an ArrayList
-     * is an ArrayList where the members are a particular {@link Class}.
+     * Returns a statement setting the element at index "i" of a column that is not null.
+     * Ex: keys[i] = array.keyAt(i).
      */
-    private boolean matchesArrayListClass(VariableElement field, Class<?> clazz, MatchPolicy policy) {
-        return matchesArrayListClass(field, clazz.getCanonicalName(), policy);
+    private CodeBlock getSetColumnElement(TypeMirror type, String name, String value) {
+        if (isBundlerColumn(type)) {
+            return CodeBlock.of("$N.add($L)", name, value);
+        }
+
+        if (types.isEnum(type)) {
+            return CodeBlock.of("$N[i] = $L", name,
+                    getEnumToStoredValue(type, CodeBlock.of("$L", value)));
+        }
+
+        return CodeBlock.of("$N[i] = $L", name, value);
     }
 
     /**
-     * See {@link #matchesArrayListClass(VariableElement, Class, MatchPolicy)}.
+     * Add a statement putting a column in the Bundle named "bundle", and its mask of null
+     * elements if it has one. Ex: bundle.putIntArray("keys", keys).
      */
-    private boolean matchesArrayListClass(VariableElement field, String className, MatchPolicy policy) {
-        if (!(field.asType() instanceof DeclaredType)) {
-            return false;
+    private void addPutColumn(MethodSpec.Builder builder, TypeMirror type, String name,
+                              String key) {
+        if (isBundlerColumn(type)) {
+            builder.addStatement("bundle.putBundle($S, $T.toColumns($N))", key,
+                    getBundlerClassFor(type), name);
+        } else {
+            builder.addStatement("bundle.put$L($S, $N)", getColumnSuffix(type), key, name);
         }
 
-        // Get generic information
-        DeclaredType declaredType = (DeclaredType) field.asType();
+        if (isNullableColumn(type)) {
+            // Ex: bundle.putBooleanArray("keys#nulls", keysNulls)
+            builder.beginControlFlow("if ($N != null)", name + "Nulls")
+                    .addStatement("bundle.putBooleanArray($S, $N)", key + COLUMNS_NULLS_KEY,
+                            name + "Nulls")
+                    .endControlFlow();
+        }
+    }
 
-        // Check general form
-        if (declaredType.getTypeArguments().size() != 1) {
-            return false;
+    /**
+     * Add a statement declaring a column read from the Bundle named "bundle", and its mask of
+     * null elements if it can have one. Ex: int[] keys = bundle.getIntArray("keys").
+     */
+    private void addGetColumn(MethodSpec.Builder builder, TypeMirror type, String name,
+                              String key) {
+        if (isBundlerColumn(type)) {
+            TypeName listType = ParameterizedTypeName.get(ClassName.get(ArrayList.class),
+                    TypeName.get(type));
+            builder.addStatement("$T $N = $T.fromColumns(bundle.getBundle($S))", listType, name,
+                    getBundlerClassFor(type), key);
+        } else {
+            builder.addStatement("$T $N = bundle.get$L($S)", getColumnArrayType(type), name,
+                    getColumnSuffix(type), key);
+        }
+
+        if (isNullableColumn(type)) {
+            // Ex: boolean[] keysNulls = bundle.getBooleanArray("keys#nulls")
+            builder.addStatement("boolean[] $N = bundle.getBooleanArray($S)", name + "Nulls",
+                    key + COLUMNS_NULLS_KEY);
+        }
+    }
+
+    /**
+     * Returns an expression for the element at index "i" of a column read from the Bundle.
+     * Ex: keys[i] or keysNulls != null &amp;&amp; keysNulls[i] ? null : (Integer) keys[i].
+     */
+    private CodeBlock getColumnElement(TypeMirror type, String name) {
+        if (isBundlerColumn(type)) {
+            return CodeBlock.of("$N.get(i)", name);
+        }
+
+        if (isNullableColumn(type)) {
+            // The cast keeps the element boxed instead of unboxing the null
+            String nulls = name + "Nulls";
+            return CodeBlock.of("$N != null && $N[i] ? null : ($T) $N[i]", nulls, nulls,
+                    TypeName.get(type), name);
+        }
+
+        // Parcelable arrays are read back as Parcelable[], so each element needs a cast
+        if ("ParcelableArray".equals(getColumnSuffix(type))) {
+            return CodeBlock.of("($T) $N[i]", TypeName.get(type), name);
+        }
+
+        if (types.isEnum(type)) {
+            return getEnumFromStoredValue(type, CodeBlock.of("$N[i]", name));
+        }
+
+        return CodeBlock.of("$N[i]", name);
+    }
+
+    /**
+     * Returns an expression for the number of elements in a column read from the Bundle.
+     */
+    private CodeBlock getColumnLength(TypeMirror type, String name) {
+        if (isBundlerColumn(type)) {
+            return CodeBlock.of("$N.size()", name);
         }
 
-        // Ensure that outer type is ArrayList
-        TypeElement arrayList = getTypeElementForClass(ArrayList.class);
-        TypeMirror erased = environment.getTypeUtils().erasure(declaredType);
-        boolean isArrayList = typesMatch(erased, arrayList.asType(), MatchPolicy.ASSIGNABLE);
+        return CodeBlock.of("$N.length", name);
+    }
+
+    private boolean isBundlerColumn(TypeMirror type) {
+        return "Bundle".equals(getColumnSuffix(type));
+    }
 
-        // Make sure inner type matches
-        TypeMirror innerType = declaredType.getTypeArguments().get(0);
-        TypeElement target = getTypeElementForClass(className);
-        boolean innerTypeMatches = target != null && typesMatch(innerType, target.asType(), policy);
+    /**
+     * Returns {@code true} if a column holds boxed primitives in a primitive array, which needs
+     * a separate mask for null elements. Enums stored by ordinal already store null as 0.
+     */
+    private boolean isNullableColumn(TypeMirror type) {
+        return type.getKind() == TypeKind.DECLARED && !isBundlerColumn(type)
+                && !types.isEnum(type) && getColumnArrayType(type).componentType.isPrimitive();
+    }
 
-        return isArrayList && innerTypeMatches;
+    /**
+     * Returns the suffix of the Bundle method storing a column of a type, with enums stored
+     * by name or ordinal depending on the class. Ex: "IntArray" for Integer.
+     */
+    private String getColumnSuffix(TypeMirror type) {
+        return info.getEnumSuffix(types.getColumnSuffix(type));
     }
 
     /**
-     * Returns {@code true} if two type mirrors match. This can be either exact match or
-     * assignability depending on the {@link MatchPolicy}.
+     * Returns the array type of a column of values of a type that is not annotated with
+     * {@code BundlerClass}. Ex: int[] for Integer or Parcelable[] for a Parcelable class.
      */
-    private boolean typesMatch(TypeMirror a, TypeMirror b, MatchPolicy policy) {
-        switch (policy) {
-            case EXACT:
-                return environment.getTypeUtils().isSameType(a, b);
-            case ASSIGNABLE:
-                return environment.getTypeUtils().isAssignable(a, b);
+    private ArrayTypeName getColumnArrayType(TypeMirror type) {
+        String suffix = getColumnSuffix(type);
+        switch (suffix) {
+            case "StringArray":
+                return ArrayTypeName.of(String.class);
+            case "CharSequenceArray":
+                return ArrayTypeName.of(CharSequence.class);
+            case "ParcelableArray":
+                return ArrayTypeName.of(PARCELABLE_CLASS);
+            case "IntArray":
+                // Also enums stored by ordinal
+                return ArrayTypeName.of(int.class);
             default:
-                return false;
+                // Primitives and boxed primitives
+                return ArrayTypeName.of(TypeName.get(type).unbox());
         }
     }
 
     /**
-     * Returns an {@link TypeElement} representing a {@link Class} for comparison.
+     * Returns the generated Bundler class for a field whose type is also annotated with
+     * {@code BundlerClass}, or {@code null} if the field is of any other type.
      */
-    private TypeElement getTypeElementForClass(Class clazz) {
-        return getTypeElementForClass(clazz.getCanonicalName());
+    private ClassName getNestedBundlerClass(BundlerField field) {
+        if (!types.isBundlerClass(field.type)) {
+            return null;
+        }
+
+        return getBundlerClassFor(field.type);
     }
 
     /**
-     * Returns an {@link TypeElement} representing a {@link Class} for comparison, by name.
+     * Returns the generated Bundler class for the elements of a field that is a list of a type
+     * annotated with {@code BundlerClass}, or {@code null} if the field is of any other type.
      */
-    private TypeElement getTypeElementForClass(String className) {
-        return environment.getElementUtils().getTypeElement(className);
+    private ClassName getNestedListBundlerClass(BundlerField field) {
+        TypeMirror elementType = types.getBundlerListElementType(field.type);
+        if (elementType == null) {
+            return null;
+        }
+
+        return getBundlerClassFor(elementType);
+    }
+
+    private static ClassName getBundlerClassFor(TypeMirror type) {
+        Element element = ((DeclaredType) type).asElement();
+        ClassName className = ClassName.get((TypeElement) element);
+        return ClassName.get(className.packageName(), className.simpleName() + "Bundler");
     }
 
     /**
-     * Returns the list of {@link VariableElement} fields that can be properly bundled. This is
-     * a list of public fields or private/protected fields that have predictably-named getters
-     * and setters.
+     * Returns a (probably) unique Bundle key for a field. In compact mode the key is just the
+     * field name, which is unique within the Bundle for one object and much shorter.
      */
-    private List<VariableElement> getApplicableFields() {
-        List<VariableElement> result = new ArrayList<>();
+    private String getFieldKey(BundlerField field) {
+        if (info.compactKeys) {
+            return field.name;
+        }
 
-        for (VariableElement field : info.fields) {
-            // Skip static fields
-            if (isStatic(field)) {
-                continue;
-            }
+        return "KEY_" + info.className.reflectionName() + "_" + field.name;
+    }
 
-            if (isPublic(field)) {
-                // Public fields can always be considered
-                result.add(field);
-            } else {
-                // Non-public fields can be considered if there is a getter and setter
-                String getterName = getterName(field);
-                String setterName = setterName(field);
-
-                // Search for appropriate getters and setters
-                boolean hasGetter = false;
-                boolean hasSetter = false;
-                for (ExecutableElement ee : info.methods) {
-                    // Find methods that are named the getter
-                    if (getterName.equals(ee.getSimpleName().toString())) {
-                        // Ensure that they take no params and return the correct type
-                        boolean noParams = ee.getParameters().isEmpty();
-                        boolean correctReturn = ee.getReturnType().equals(field.asType());
-
-                        hasGetter = hasGetter || (noParams && correctReturn);
-                    }
-
-                    // Find methods that are named like the setter
-                    if (setterName.equals(ee.getSimpleName().toString())) {
-                        // Ensure that they take exactly one param of the right type
-                        List<? extends  VariableElement> params = ee.getParameters();
-                        boolean correctParams = params.size() == 1
-                                && params.get(0).asType().equals(field.asType());
-
-                        hasSetter = hasSetter || correctParams;
-                    }
-                }
+    /**
+     * Returns the name of the generated constant holding the Bundle key for a field.
+     * Ex: someField --> KEY_SOME_FIELD.
+     */
+    private String getFieldKeyName(BundlerField field) {
+        return keyNames.get(field);
+    }
 
-                // All conditions met, add the field
-                if (hasGetter && hasSetter) {
-                    result.add(field);
+    /**
+     * Returns a camel case name in upper case with underscores between words.
+     * Ex: someField --> SOME_FIELD.
+     */
+    private static String getConstantName(String name) {
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+
+            // Start a new word at each upper case letter that follows a lower case letter or
+            // digit, or that starts a new word after an acronym. Ex: myURLValue --> MY_URL_VALUE
+            if (i > 0 && Character.isUpperCase(c)) {
+                char prev = name.charAt(i - 1);
+                boolean nextIsLower = i + 1 < name.length()
+                        && Character.isLowerCase(name.charAt(i + 1));
+                if (Character.isLowerCase(prev) || Character.isDigit(prev)
+                        || (Character.isUpperCase(prev) && nextIsLower)) {
+                    result.append('_');
                 }
             }
+
+            result.append(Character.toUpperCase(c));
         }
 
-        return result;
+        return result.toString();
     }
 
     /**
-     * Returns {@link true} if a {@link VariableElement} is a {@code static} field
+     * Create the "KEY_" constant holding the Bundle key for a field.
      */
-    private static boolean isStatic(VariableElement element) {
-        return element.getModifiers().contains(Modifier.STATIC);
+    private FieldSpec createKeyField(BundlerField field) {
+        return FieldSpec.builder(String.class, getFieldKeyName(field))
+                .addModifiers(Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL)
+                .initializer("$S", getFieldKey(field))
+                .build();
     }
 
     /**
-     * Returns {@link true} if a {@link VariableElement} is a {@code public} field
+     * Returns the name of "put" method from the Bundle class for a given field. Ex: putString
+     * or putCharSequenceArray.
      */
-    private static boolean isPublic(VariableElement element) {
-        return element.getModifiers().contains(Modifier.PUBLIC);
+    private String bundlePutMethod(BundlerField field) {
+        return "put" + bundleMethodSuffix(field);
     }
 
     /**
-     * Returns the standard getter method name for a {@link VariableElement}.  Ex: foo --> getFoo.
+     * Returns the name of "get" method from the Bundle class for a given field. Ex: getString
+     * or getCharSequenceArray.
      */
-    private static String getterName(VariableElement element) {
-        return "get" + capitalizedName(element);
+    private String bundleGetMethod(BundlerField field) {
+        return "get" + bundleMethodSuffix(field);
     }
 
     /**
-     * Returns the standard setter method name for a {@link VariableElement}.  Ex: foo --> setFoo.
+     * Returns {@code true} if a cast is needed when using a certain bundle method.
      */
-    private static String setterName(VariableElement element) {
-        return "set" + capitalizedName(element);
+    private boolean requiresCast(String bundleMethodName) {
+        // TL;DR - ParcelableArrayList is a pain in the ass!
+        return !(bundleMethodName.contains("ParcelableArrayList")
+                || bundleMethodName.contains("SparseParcelableArray"));
     }
 
     /**
-     * Capitalizes the first letter of the name of a {@link VariableElement}. Used by
-     * {@link #getterName(VariableElement)} and {@link #setterName(VariableElement)}.
+     * Returns the suffix for a bundle method based on type.  For a String field this would be
+     * "String", for an Integer field this would be "Int". Used by
+     * {@link #bundlePutMethod(BundlerField)} and {@link #bundleGetMethod(BundlerField)}.
+     * Resolved once per field by {@link BundlerClassInfo}.
      */
-    private static String capitalizedName(VariableElement element) {
-        // TODO(samstern): this will almost certainly choke on unicode
-        String name = element.getSimpleName().toString();
-        return name.substring(0, 1).toUpperCase() + name.substring(1);
+    private String bundleMethodSuffix(BundlerField field) {
+        // Collections of boxed primitives are reported as primitive arrays, which is how they
+        // are stored unless they have null elements, but are put with putSerializable so that
+        // a list of the boxed values fits under the same key. The Bundle parcels either one
+        // by its own type, exactly as putIntArray or putIntegerArrayList would.
+        if (types.getPrimitiveCollectionElementType(field.type) != null) {
+            return "Serializable";
+        }
+
+        return field.suffix;
     }
+
 }
@@ -18,26 +18,71 @@ package pub.devrel.bundler;
 import com.squareup.javapoet.ClassName;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
 import javax.lang.model.element.Element;
 import javax.lang.model.element.ElementKind;
 import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
 import javax.lang.model.element.TypeElement;
 import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeMirror;
 
 /**
  * Metadata about a class annotated with {@code BundlerClass}.
  */
 public class BundlerClassInfo {
 
+    // This class is identified by its qualified string name to avoid a dependency
+    // between the bundler and bundler-api modules
+    private static final String ANNOTATION_CLASS = "pub.devrel.bundler.BundlerClass";
+    private static final String CONSTRUCTOR_ANNOTATION_CLASS =
+            "pub.devrel.bundler.BundlerConstructor";
+
     public ClassName className;
 
+    // Options from the BundlerClass annotation
+    public boolean compactKeys;
+    public boolean parcelable;
+    public boolean view;
+
+    // Name of the SerializablePolicy for fields stored as Serializable: "ALLOW", "WARN" or
+    // "ERROR", or null if the class uses the processor's default
+    public String serializablePolicy;
+
+    // Whether enums are stored by ordinal rather than by name
+    public boolean enumOrdinals;
+
+    // Class used as the Bundle in generated code, set by the processor for all classes
+    public ClassName bundleClass = ClassName.get("android.os", "Bundle");
+
     public TypeElement typeElement;
     public List<VariableElement> fields = new ArrayList<>();
     public List<ExecutableElement> methods = new ArrayList<>();
 
-    public BundlerClassInfo(TypeElement te) {
+    // Constructors and static factory methods annotated with BundlerConstructor. Instances are
+    // created with the default constructor if there are none, and there should be at most one.
+    public List<ExecutableElement> bundlerConstructors = new ArrayList<>();
+
+    // Fields that can be included in the Bundle, in declaration order, and the non-static
+    // fields that can not because they can not be both read and written
+    public List<BundlerField> applicableFields = new ArrayList<>();
+    public List<VariableElement> skippedFields = new ArrayList<>();
+
+    // Methods by name, used to find getters and setters without scanning every method
+    private Map<String, List<ExecutableElement>> methodsByName = new HashMap<>();
+
+    private BundlerTypes types;
+
+    public BundlerClassInfo(TypeElement te, BundlerTypes types) {
+        this.types = types;
+
         typeElement = te;
         className = ClassName.get(typeElement);
 
@@ -50,14 +95,192 @@ public class BundlerClassInfo {
             if (e.getKind() == ElementKind.METHOD) {
                 ExecutableElement ee = (ExecutableElement) e;
                 methods.add(ee);
+                addMethodByName(ee);
+            }
+
+            if ((e.getKind() == ElementKind.CONSTRUCTOR || e.getKind() == ElementKind.METHOD)
+                    && hasAnnotation(e, CONSTRUCTOR_ANNOTATION_CLASS)) {
+                bundlerConstructors.add((ExecutableElement) e);
+            }
+        }
+
+        Set<String> parameterNames = new HashSet<>();
+        for (ExecutableElement constructor : bundlerConstructors) {
+            for (VariableElement parameter : constructor.getParameters()) {
+                parameterNames.add(parameter.getSimpleName().toString());
+            }
+        }
+
+        compactKeys = Boolean.TRUE.equals(getAnnotationValue("compactKeys"));
+        parcelable = Boolean.TRUE.equals(getAnnotationValue("parcelable"));
+        view = Boolean.TRUE.equals(getAnnotationValue("view"));
+
+        // Enum values are the element of the constant
+        Object serializable = getAnnotationValue("serializable");
+        if (serializable instanceof VariableElement) {
+            String name = ((VariableElement) serializable).getSimpleName().toString();
+            serializablePolicy = "DEFAULT".equals(name) ? null : name;
+        }
+
+        Object enumEncoding = getAnnotationValue("enumEncoding");
+        enumOrdinals = enumEncoding instanceof VariableElement
+                && ((VariableElement) enumEncoding).getSimpleName().contentEquals("ORDINAL");
+
+        for (VariableElement field : fields) {
+            // Skip static fields
+            if (field.getModifiers().contains(Modifier.STATIC)) {
+                continue;
+            }
+
+            String suffix = getEnumSuffix(types.getBundleMethodSuffix(field.asType()));
+            BundlerField bundlerField = new BundlerField(field, suffix);
+
+            // Public fields can be read directly, non-public fields need a getter
+            boolean isReadable = bundlerField.isPublic
+                    || hasGetter(bundlerField.getterName, bundlerField.type);
+
+            // Fields can be written directly if they are public and not final, otherwise they
+            // need a setter or to be passed to the BundlerConstructor
+            bundlerField.isWritable = (bundlerField.isPublic && !bundlerField.isFinal)
+                    || hasSetter(bundlerField.setterName, bundlerField.type);
+            bundlerField.isConstructorParameter = parameterNames.contains(bundlerField.name);
+
+            if (isReadable && (bundlerField.isWritable || bundlerField.isConstructorParameter)) {
+                applicableFields.add(bundlerField);
+            } else {
+                skippedFields.add(field);
             }
         }
     }
 
+    /**
+     * Returns the Bundle method suffix storing enums with the encoding of this class, in place
+     * of the placeholder suffixes used for enums by {@link BundlerTypes}, or the suffix itself
+     * for any other type. Ex: "EnumArray" --&gt; "StringArray".
+     */
+    public String getEnumSuffix(String suffix) {
+        if ("Enum".equals(suffix)) {
+            return enumOrdinals ? "Int" : "String";
+        } else if ("EnumArray".equals(suffix) || "EnumList".equals(suffix)) {
+            return enumOrdinals ? "IntArray" : "StringArray";
+        }
+
+        return suffix;
+    }
+
+    /**
+     * Returns the applicable field with a given name, or {@code null} if there is none.
+     */
+    public BundlerField getApplicableField(String name) {
+        for (BundlerField field : applicableFields) {
+            if (field.name.equals(name)) {
+                return field;
+            }
+        }
+
+        return null;
+    }
+
+    private void addMethodByName(ExecutableElement method) {
+        String name = method.getSimpleName().toString();
+
+        List<ExecutableElement> methodsWithName = methodsByName.get(name);
+        if (methodsWithName == null) {
+            methodsWithName = new ArrayList<>(1);
+            methodsByName.put(name, methodsWithName);
+        }
+
+        methodsWithName.add(method);
+    }
+
+    private boolean hasGetter(String name, TypeMirror type) {
+        List<ExecutableElement> candidates = methodsByName.get(name);
+        if (candidates == null) {
+            return false;
+        }
+
+        // Ensure that it takes no params and returns the correct type
+        for (ExecutableElement ee : candidates) {
+            if (ee.getParameters().isEmpty() && types.isSameType(ee.getReturnType(), type)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private boolean hasSetter(String name, TypeMirror type) {
+        List<ExecutableElement> candidates = methodsByName.get(name);
+        if (candidates == null) {
+            return false;
+        }
+
+        // Ensure that it takes exactly one param of the right type
+        for (ExecutableElement ee : candidates) {
+            List<? extends VariableElement> params = ee.getParameters();
+            if (params.size() == 1 && types.isSameType(params.get(0).asType(), type)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns {@code true} if an element is annotated with {@code BundlerClass}.
+     */
+    public static boolean isBundlerClass(Element element) {
+        return hasAnnotation(element, ANNOTATION_CLASS);
+    }
+
+    private static boolean hasAnnotation(Element element, String annotationClass) {
+        return getAnnotation(element, annotationClass) != null;
+    }
+
+    /**
+     * Returns the annotation with a given class name on an element, or {@code null} if there is
+     * none.
+     */
+    private static AnnotationMirror getAnnotation(Element element, String annotationClass) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            if (mirror.getAnnotationType().toString().equals(annotationClass)) {
+                return mirror;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns the value of an attribute of the {@code BundlerClass} annotation on this class, or
+     * {@code null} if the attribute was not set explicitly.
+     */
+    private Object getAnnotationValue(String name) {
+        AnnotationMirror mirror = getAnnotation(typeElement, ANNOTATION_CLASS);
+        if (mirror == null) {
+            return null;
+        }
+
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry :
+                mirror.getElementValues().entrySet()) {
+            if (entry.getKey().getSimpleName().contentEquals(name)) {
+                return entry.getValue().getValue();
+            }
+        }
+
+        return null;
+    }
+
     @Override
     public String toString() {
         return "{ " +
                 "name: " + typeElement + ", " +
+                "compactKeys: " + compactKeys + ", " +
+                "parcelable: " + parcelable + ", " +
+                "view: " + view + ", " +
+                "serializablePolicy: " + serializablePolicy + ", " +
+                "enumOrdinals: " + enumOrdinals + ", " +
+                "bundleClass: " + bundleClass + ", " +
                 "fields: " + fields + ", " +
                 "methods: " + methods +
                 " }";
@@ -16,10 +16,16 @@
 package pub.devrel.bundler;
 
 import com.google.auto.service.AutoService;
+import com.squareup.javapoet.ClassName;
 
 import java.io.IOException;
 import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
 import java.util.Set;
 
 import javax.annotation.processing.AbstractProcessor;
@@ -32,6 +38,7 @@ import javax.lang.model.element.ElementKind;
 import javax.lang.model.element.TypeElement;
 import javax.tools.Diagnostic;
 import javax.tools.FileObject;
+import javax.tools.StandardLocation;
 
 @AutoService(Processor.class)
 public class BundlerClassProcessor extends AbstractProcessor {
@@ -40,13 +47,85 @@ public class BundlerClassProcessor extends AbstractProcessor {
     // between the bundler and bundler-api modules
     private static final String ANNOTATION_CLASS = "pub.devrel.bundler.BundlerClass";
 
+    // Processor option to generate a registry of all Bundlers in the compilation. This should
+    // only be enabled in one module (usually the application) to avoid duplicate classes.
+    private static final String OPTION_REGISTRY = "easybundler.registry";
+
+    // Processor option to write build statistics to "easybundler-stats.json" in the class
+    // output directory
+    private static final String OPTION_STATS = "easybundler.stats";
+    private static final String STATS_FILE_NAME = "easybundler-stats.json";
+
+    // Processor option setting the SerializablePolicy of classes that do not set their own:
+    // "allow" (the default), "warn" or "error"
+    private static final String OPTION_SERIALIZABLE = "easybundler.serializable";
+    private static final List<String> SERIALIZABLE_POLICIES =
+            Arrays.asList("ALLOW", "WARN", "ERROR");
+
+    // Processor option naming the class used in place of android.os.Bundle by generated code,
+    // such as "pub.devrel.bundler.jvm.ArrayBundle" to use the Bundlers on a plain JVM. It must
+    // have the same put and get methods as android.os.Bundle for the types that are stored.
+    private static final String OPTION_BUNDLE_CLASS = "easybundler.bundleClass";
+
+    // Options that tell Gradle which kind of incremental processor this is
+    private static final String GRADLE_ISOLATING = "org.gradle.annotation.processing.isolating";
+    private static final String GRADLE_AGGREGATING = "org.gradle.annotation.processing.aggregating";
+
     private ProcessingEnvironment processingEnvironment;
 
+    private Registry registry;
+    private List<Element> registryOrigins = new ArrayList<>();
+    private boolean registryWritten;
+
+    private BundlerStats stats;
+
+    private String serializablePolicy = "ALLOW";
+
+    private ClassName bundleClass = ClassName.bestGuess(BundlerTypes.BUNDLE_CLASS_NAME);
+
     @Override
     public synchronized void init(ProcessingEnvironment processingEnvironment) {
         super.init(processingEnvironment);
 
         this.processingEnvironment = processingEnvironment;
+
+        if (Boolean.parseBoolean(processingEnvironment.getOptions().get(OPTION_REGISTRY))) {
+            registry = new Registry();
+        }
+
+        if (Boolean.parseBoolean(processingEnvironment.getOptions().get(OPTION_STATS))) {
+            stats = new BundlerStats();
+        }
+
+        String policy = processingEnvironment.getOptions().get(OPTION_SERIALIZABLE);
+        if (policy != null) {
+            if (SERIALIZABLE_POLICIES.contains(policy.toUpperCase(Locale.US))) {
+                serializablePolicy = policy.toUpperCase(Locale.US);
+            } else {
+                processingEnvironment.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        "[EasyBundler] Invalid value for " + OPTION_SERIALIZABLE + ": " + policy
+                                + " (expected allow, warn or error)");
+            }
+        }
+
+        String bundleClassName = processingEnvironment.getOptions().get(OPTION_BUNDLE_CLASS);
+        if (bundleClassName != null) {
+            try {
+                bundleClass = ClassName.bestGuess(bundleClassName);
+            } catch (IllegalArgumentException e) {
+                processingEnvironment.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        "[EasyBundler] Invalid value for " + OPTION_BUNDLE_CLASS + ": "
+                                + bundleClassName + " (expected a qualified class name)");
+            }
+        }
+
+        // The registry returns the Bundler interface, which uses android.os.Bundle
+        if (registry != null && !BundlerTypes.BUNDLE_CLASS_NAME.equals(bundleClass.toString())) {
+            processingEnvironment.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "[EasyBundler] " + OPTION_REGISTRY + " can not be used with "
+                            + OPTION_BUNDLE_CLASS);
+            registry = null;
+        }
     }
 
     @Override
@@ -54,6 +133,27 @@ public class BundlerClassProcessor extends AbstractProcessor {
         return Collections.singleton(ANNOTATION_CLASS);
     }
 
+    @Override
+    public Set<String> getSupportedOptions() {
+        Set<String> options = new HashSet<>();
+        options.add(OPTION_REGISTRY);
+        options.add(OPTION_STATS);
+        options.add(OPTION_SERIALIZABLE);
+        options.add(OPTION_BUNDLE_CLASS);
+
+        // This processor is declared "dynamic" to Gradle in the incremental.annotation.processors
+        // resource, and reports its type here. Each Bundler is generated from exactly one
+        // annotated class, so by default it is isolating. The registry and the stats report are
+        // generated from all annotated classes, so enabling either makes it aggregating.
+        if (registry != null || stats != null) {
+            options.add(GRADLE_AGGREGATING);
+        } else {
+            options.add(GRADLE_ISOLATING);
+        }
+
+        return options;
+    }
+
     @Override
     public SourceVersion getSupportedSourceVersion() {
         return SourceVersion.latestSupported();
@@ -64,32 +164,121 @@ public class BundlerClassProcessor extends AbstractProcessor {
         TypeElement annotationElement = processingEnvironment.getElementUtils()
                 .getTypeElement(ANNOTATION_CLASS);
 
+        long roundStart = System.nanoTime();
+        int classCount = 0;
+
+        // Type lookups are shared by all classes in the round
+        BundlerTypes types = new BundlerTypes(processingEnvironment, bundleClass.toString());
+
         for (Element e : roundEnvironment.getElementsAnnotatedWith(annotationElement)) {
             if (e.getKind() == ElementKind.CLASS) {
                 TypeElement te = (TypeElement) e;
-                processClass(te);
+                processClass(te, types);
+                classCount++;
             }
         }
 
+        if (stats != null && classCount > 0) {
+            stats.recordRound(classCount, System.nanoTime() - roundStart);
+        }
+
+        // The registry covers all rounds, so it is written in the first round that finds no new
+        // annotated classes. Source files created in the last round are not compiled with the
+        // same guarantees, so javac warns about them.
+        if (registry != null && !registry.isEmpty()) {
+            if (registryWritten && classCount > 0) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                        "[EasyBundler] " + classCount + " classes were generated after the "
+                                + "registry was written and are not included in it");
+            } else if (!registryWritten && classCount == 0) {
+                writeRegistry();
+                registryWritten = true;
+            }
+        }
+
+        // The stats file is a resource, which can be written once processing is over
+        if (roundEnvironment.processingOver() && stats != null) {
+            writeStats();
+        }
+
         return true;
     }
 
-    private void processClass(TypeElement typeElement) {
+    private void processClass(TypeElement typeElement, BundlerTypes types) {
+        long start = System.nanoTime();
+
         // Get some metadata about the class to be processed
-        BundlerClassInfo info = new BundlerClassInfo(typeElement);
+        BundlerClassInfo info = new BundlerClassInfo(typeElement, types);
+        if (info.serializablePolicy == null) {
+            info.serializablePolicy = serializablePolicy;
+        }
+        info.bundleClass = bundleClass;
 
         // Log a message for each class we process
         processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE,
                 "[EasyBundler] processing class " + info);
 
         // Create a new Bundler and generate the source
-        Bundler bundler = new Bundler(processingEnvironment, info);
+        Bundler bundler = new Bundler(processingEnvironment, types, info);
         String javaSource = bundler.getBundlerClassSource();
 
+        if (registry != null) {
+            registry.add(bundler);
+            registryOrigins.add(typeElement);
+        }
+
+        writeSourceFile(bundler.getQualifiedBundlerClassName(), javaSource, typeElement);
+
+        // Create the Parcelable wrapper, if requested
+        if (bundler.hasParcelClass()) {
+            writeSourceFile(bundler.getQualifiedParcelClassName(),
+                    bundler.getParcelClassSource(), typeElement);
+        }
+
+        // Create the lazy Bundle view, if requested
+        if (bundler.hasViewClass()) {
+            writeSourceFile(bundler.getQualifiedViewClassName(),
+                    bundler.getViewClassSource(), typeElement);
+        }
+
+        if (stats != null) {
+            stats.recordClass(bundler, System.nanoTime() - start);
+        }
+    }
+
+    private void writeRegistry() {
+        // The registry originates from every annotated class
+        Element[] origins = registryOrigins.toArray(new Element[registryOrigins.size()]);
+        writeSourceFile(registry.getQualifiedRegistryClassName(),
+                registry.getRegistryClassSource(), origins);
+    }
+
+    private void writeStats() {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE, stats.getSummary());
+
+        try {
+            FileObject file = processingEnvironment.getFiler()
+                    .createResource(StandardLocation.CLASS_OUTPUT, "", STATS_FILE_NAME);
+
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE,
+                    "[EasyBundler] Writing stats file " + file.getName());
+
+            Writer writer = file.openWriter();
+            writer.write(stats.toJson());
+            writer.close();
+
+        } catch (IOException e) {
+            // The report is optional, so the build goes on without it
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                    "[EasyBundler] Could not write stats file " + STATS_FILE_NAME + ": " + e);
+        }
+    }
+
+    private void writeSourceFile(String className, String javaSource, Element... origins) {
         try {
             // Create a source file
             FileObject file = processingEnvironment.getFiler()
-                    .createSourceFile(bundler.getQualifiedBundlerClassName(), typeElement);
+                    .createSourceFile(className, origins);
 
             // Log a note for each class file created
             processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE,
@@ -101,7 +290,8 @@ public class BundlerClassProcessor extends AbstractProcessor {
             writer.close();
 
         } catch (IOException e) {
-            e.printStackTrace();
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "[EasyBundler] Could not write class file " + className + ": " + e);
         }
     }
 
@@ -0,0 +1,73 @@
+
+/*
+ * Copyright 2017 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pub.devrel.bundler;
+
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeMirror;
+
+/**
+ * A field of a class annotated with {@code BundlerClass} that can be included in the Bundle,
+ * along with how to access it and which Bundle methods store it. Resolved once per class by
+ * {@link BundlerClassInfo}.
+ */
+public class BundlerField {
+
+    public VariableElement element;
+    public TypeMirror type;
+    public String name;
+
+    // Public fields are accessed directly, others through the getter and setter
+    public boolean isPublic;
+    public boolean isFinal;
+    public String getterName;
+    public String setterName;
+
+    // Whether the field can be set after the object is created, and whether it is passed to
+    // the BundlerConstructor instead. Set by BundlerClassInfo.
+    public boolean isWritable;
+    public boolean isConstructorParameter;
+
+    // Suffix of the Bundle methods for the field type, or null if the type is not supported.
+    // Ex: "String" for putString/getString
+    public String suffix;
+
+    public BundlerField(VariableElement element, String suffix) {
+        this.element = element;
+        this.type = element.asType();
+        this.name = element.getSimpleName().toString();
+        this.isPublic = element.getModifiers().contains(Modifier.PUBLIC);
+        this.isFinal = element.getModifiers().contains(Modifier.FINAL);
+        this.getterName = "get" + capitalizedName(name);
+        this.setterName = "set" + capitalizedName(name);
+        this.suffix = suffix;
+    }
+
+    /**
+     * Capitalizes the first letter of a field name. Ex: foo --> Foo.
+     */
+    static String capitalizedName(String name) {
+        // TODO(samstern): this will almost certainly choke on unicode
+        return name.substring(0, 1).toUpperCase() + name.substring(1);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+}
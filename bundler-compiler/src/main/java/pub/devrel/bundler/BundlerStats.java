@@ -0,0 +1,232 @@
+
+/*
+ * Copyright 2017 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pub.devrel.bundler;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Build statistics collected by the processor when the "easybundler.stats" option is enabled,
+ * written out as a JSON report once processing is over.
+ */
+public class BundlerStats {
+
+    /** Statistics about one annotated class. **/
+    private static class ClassStats {
+        String name;
+        long nanos;
+        int bundledFields;
+        List<String> skippedFields;
+        Map<String, Integer> suffixCounts;
+        List<String> serializableFields;
+    }
+
+    /** Statistics about one processing round. **/
+    private static class RoundStats {
+        int classes;
+        long nanos;
+    }
+
+    private List<ClassStats> classes = new ArrayList<>();
+    private List<RoundStats> rounds = new ArrayList<>();
+
+    /**
+     * Record the result of generating the Bundler for one class.
+     * @param bundler the Bundler that generated the class.
+     * @param nanos time spent processing the class, in nanoseconds.
+     */
+    public void recordClass(Bundler bundler, long nanos) {
+        ClassStats stats = new ClassStats();
+        stats.name = bundler.getAnnotatedClass().toString();
+        stats.nanos = nanos;
+        stats.skippedFields = bundler.getSkippedFieldNames();
+        stats.suffixCounts = new TreeMap<>();
+        stats.serializableFields = new ArrayList<>();
+
+        for (Map.Entry<String, String> entry : bundler.getFieldSuffixes().entrySet()) {
+            String suffix = String.valueOf(entry.getValue());
+            increment(stats.suffixCounts, suffix, 1);
+            stats.bundledFields++;
+
+            if ("Serializable".equals(suffix)) {
+                stats.serializableFields.add(entry.getKey());
+            }
+        }
+
+        classes.add(stats);
+    }
+
+    /**
+     * Record the total time of one processing round.
+     * @param classCount number of classes processed in the round.
+     * @param nanos time spent in the round, in nanoseconds.
+     */
+    public void recordRound(int classCount, long nanos) {
+        RoundStats stats = new RoundStats();
+        stats.classes = classCount;
+        stats.nanos = nanos;
+
+        rounds.add(stats);
+    }
+
+    /**
+     * Returns a one-line summary of the statistics, suitable for a compiler note.
+     */
+    public String getSummary() {
+        long nanos = 0;
+        int fields = 0;
+        int serializableFields = 0;
+        for (ClassStats stats : classes) {
+            nanos += stats.nanos;
+            fields += stats.bundledFields;
+            serializableFields += stats.serializableFields.size();
+        }
+
+        return "[EasyBundler] processed " + classes.size() + " classes with " + fields
+                + " fields (" + serializableFields + " Serializable) in "
+                + formatMillis(nanos) + " ms";
+    }
+
+    /**
+     * Returns the statistics as a JSON document.
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder();
+        json.append("{\n");
+
+        // Totals across all classes
+        long totalNanos = 0;
+        int totalFields = 0;
+        int totalSkipped = 0;
+        Map<String, Integer> totalSuffixes = new TreeMap<>();
+        List<String> totalSerializable = new ArrayList<>();
+        for (ClassStats stats : classes) {
+            totalNanos += stats.nanos;
+            totalFields += stats.bundledFields;
+            totalSkipped += stats.skippedFields.size();
+            for (Map.Entry<String, Integer> entry : stats.suffixCounts.entrySet()) {
+                increment(totalSuffixes, entry.getKey(), entry.getValue());
+            }
+            for (String field : stats.serializableFields) {
+                totalSerializable.add(stats.name + "." + field);
+            }
+        }
+
+        json.append("  \"totals\": {\n");
+        json.append("    \"classes\": ").append(classes.size()).append(",\n");
+        json.append("    \"timeMs\": ").append(formatMillis(totalNanos)).append(",\n");
+        json.append("    \"bundledFields\": ").append(totalFields).append(",\n");
+        json.append("    \"skippedFields\": ").append(totalSkipped).append(",\n");
+        json.append("    \"suffixes\": ");
+        appendCounts(json, totalSuffixes);
+        json.append(",\n");
+        json.append("    \"serializableFields\": ");
+        appendStrings(json, totalSerializable);
+        json.append("\n  },\n");
+
+        // Each round
+        json.append("  \"rounds\": [");
+        for (int i = 0; i < rounds.size(); i++) {
+            RoundStats stats = rounds.get(i);
+            json.append(i == 0 ? "\n" : ",\n");
+            json.append("    { \"classes\": ").append(stats.classes)
+                    .append(", \"timeMs\": ").append(formatMillis(stats.nanos)).append(" }");
+        }
+        json.append("\n  ],\n");
+
+        // Each class
+        json.append("  \"classes\": [");
+        for (int i = 0; i < classes.size(); i++) {
+            ClassStats stats = classes.get(i);
+            json.append(i == 0 ? "\n" : ",\n");
+            json.append("    {\n");
+            json.append("      \"name\": ").append(quote(stats.name)).append(",\n");
+            json.append("      \"timeMs\": ").append(formatMillis(stats.nanos)).append(",\n");
+            json.append("      \"bundledFields\": ").append(stats.bundledFields).append(",\n");
+            json.append("      \"skippedFields\": ");
+            appendStrings(json, stats.skippedFields);
+            json.append(",\n");
+            json.append("      \"suffixes\": ");
+            appendCounts(json, stats.suffixCounts);
+            json.append(",\n");
+            json.append("      \"serializableFields\": ");
+            appendStrings(json, stats.serializableFields);
+            json.append("\n    }");
+        }
+        json.append("\n  ]\n");
+
+        json.append("}\n");
+        return json.toString();
+    }
+
+    private static void increment(Map<String, Integer> counts, String key, int amount) {
+        Integer count = counts.get(key);
+        counts.put(key, (count == null ? 0 : count) + amount);
+    }
+
+    private static void appendCounts(StringBuilder json, Map<String, Integer> counts) {
+        json.append("{");
+        Iterator<Map.Entry<String, Integer>> it = counts.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Integer> entry = it.next();
+            json.append(" ").append(quote(entry.getKey())).append(": ").append(entry.getValue());
+            json.append(it.hasNext() ? "," : " ");
+        }
+        json.append("}");
+    }
+
+    private static void appendStrings(StringBuilder json, List<String> strings) {
+        json.append("[");
+        for (int i = 0; i < strings.size(); i++) {
+            json.append(i == 0 ? " " : ", ").append(quote(strings.get(i)));
+        }
+        json.append(strings.isEmpty() ? "]" : " ]");
+    }
+
+    /**
+     * Returns a string as a JSON string literal. Quotes and backslashes are escaped, and so are
+     * control characters, which JSON does not allow in strings. Ex: a"b --&gt; "a\"b".
+     */
+    static String quote(String string) {
+        StringBuilder result = new StringBuilder("\"");
+        for (int i = 0; i < string.length(); i++) {
+            char c = string.charAt(i);
+            if (c == '"' || c == '\\') {
+                result.append('\\').append(c);
+            } else if (c < 0x20) {
+                result.append(String.format(Locale.US, "\\u%04x", (int) c));
+            } else {
+                result.append(c);
+            }
+        }
+        return result.append('"').toString();
+    }
+
+    private static String formatMillis(long nanos) {
+        // Microsecond precision, without depending on the default Locale
+        long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+        long fraction = micros % 1000;
+        return (micros / 1000) + "." + (fraction < 100 ? "0" : "") + (fraction < 10 ? "0" : "")
+                + fraction;
+    }
+
+}
@@ -0,0 +1,684 @@
+
+/*
+ * Copyright 2017 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pub.devrel.bundler;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.WildcardType;
+import javax.lang.model.util.Types;
+
+/**
+ * Resolves how field types are stored in an Android Bundle. Looked-up types and resolved
+ * results are cached, so a single instance should be shared by every class processed in a
+ * round. Type mirrors should not be reused across rounds, so create a new instance per round.
+ */
+public class BundlerTypes {
+
+    /** Policy for matching two types. **/
+    private enum MatchPolicy {
+        // Types must be the same
+        EXACT,
+
+        // Type a must be assignable to type b
+        ASSIGNABLE
+    }
+
+    // Android classes, accessed by name since we don't have the ability to get Android classes
+    // in this Java module
+    static final String BUNDLE_CLASS_NAME = "android.os.Bundle";
+    static final String I_BINDER_CLASS_NAME = "android.os.IBinder";
+    static final String PARCELABLE_CLASS_NAME = "android.os.Parcelable";
+    static final String SIZE_CLASS_NAME = "android.util.Size";
+    static final String SIZE_F_CLASS_NAME = "android.util.SizeF";
+    static final String SPARSE_ARRAY_CLASS_NAME = "android.util.SparseArray";
+    static final String SPARSE_BOOLEAN_ARRAY_CLASS_NAME = "android.util.SparseBooleanArray";
+    static final String SPARSE_INT_ARRAY_CLASS_NAME = "android.util.SparseIntArray";
+    static final String SPARSE_LONG_ARRAY_CLASS_NAME = "android.util.SparseLongArray";
+    static final String LONG_SPARSE_ARRAY_CLASS_NAME = "android.util.LongSparseArray";
+
+    // Collection types that can be rebuilt from a primitive array, as a list or a set
+    static final List<String> PRIMITIVE_LIST_CLASS_NAMES = Arrays.asList(
+            Collection.class.getCanonicalName(),
+            List.class.getCanonicalName(),
+            ArrayList.class.getCanonicalName());
+    static final List<String> PRIMITIVE_SET_CLASS_NAMES = Arrays.asList(
+            Set.class.getCanonicalName(),
+            HashSet.class.getCanonicalName(),
+            LinkedHashSet.class.getCanonicalName());
+
+    // Map types that can be rebuilt from columns of keys and values
+    static final List<String> MAP_CLASS_NAMES = Arrays.asList(
+            Map.class.getCanonicalName(),
+            HashMap.class.getCanonicalName(),
+            LinkedHashMap.class.getCanonicalName(),
+            SortedMap.class.getCanonicalName(),
+            TreeMap.class.getCanonicalName());
+
+    private ProcessingEnvironment environment;
+
+    // Qualified name of the Bundle class of the generated code, fields of which are stored as
+    // nested Bundles
+    private String bundleClassName;
+
+    // Types by qualified class name. Values may be null for classes that are not available.
+    private Map<String, TypeMirror> classTypes = new HashMap<>();
+
+    // Primitive array types by component kind
+    private Map<TypeKind, TypeMirror> primitiveArrayTypes = new EnumMap<>(TypeKind.class);
+
+    // Resolved Bundle method suffix by field type. Values may be null for unknown types.
+    private Map<String, String> suffixes = new HashMap<>();
+
+    public BundlerTypes(ProcessingEnvironment environment, String bundleClassName) {
+        this.environment = environment;
+        this.bundleClassName = bundleClassName;
+    }
+
+    /**
+     * Returns the suffix for a bundle method based on type.  For a String field this would be
+     * "String", for an Integer field this would be "Int". Returns {@code null} if the type can
+     * not be stored in a Bundle.
+     */
+    public String getBundleMethodSuffix(TypeMirror type) {
+        // Type variables print as their bare name, so the same string may stand for
+        // different types in different classes. Only cache types that are fully resolved.
+        if (!isCacheable(type)) {
+            return resolveBundleMethodSuffix(type);
+        }
+
+        // Types are keyed by their string representation, which is fully qualified and
+        // includes any type arguments
+        String key = type.toString();
+        if (suffixes.containsKey(key)) {
+            return suffixes.get(key);
+        }
+
+        String suffix = resolveBundleMethodSuffix(type);
+        suffixes.put(key, suffix);
+        return suffix;
+    }
+
+    /**
+     * Returns {@code true} if a type is a class annotated with {@code BundlerClass}.
+     */
+    public boolean isBundlerClass(TypeMirror type) {
+        return type.getKind() == TypeKind.DECLARED
+                && BundlerClassInfo.isBundlerClass(((DeclaredType) type).asElement());
+    }
+
+    /**
+     * Returns {@code true} if two types are the same. Type mirrors for generic types should
+     * not be compared with {@code equals}.
+     */
+    public boolean isSameType(TypeMirror a, TypeMirror b) {
+        return typesMatch(a, b, MatchPolicy.EXACT);
+    }
+
+    /**
+     * Returns the primitive type of the elements of a collection of boxed primitives, such as
+     * {@code List<Integer>} or {@code Set<Long>}, or {@code null} for any other type. These
+     * collections are stored as a primitive array, so that the elements are not boxed in the
+     * Bundle or when it is parceled.
+     */
+    public PrimitiveType getPrimitiveCollectionElementType(TypeMirror type) {
+        if (type.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+
+        DeclaredType declaredType = (DeclaredType) type;
+        if (declaredType.getTypeArguments().size() != 1) {
+            return null;
+        }
+
+        String className = ((TypeElement) declaredType.asElement()).getQualifiedName().toString();
+        if (!PRIMITIVE_LIST_CLASS_NAMES.contains(className)
+                && !PRIMITIVE_SET_CLASS_NAMES.contains(className)) {
+            return null;
+        }
+
+        TypeMirror elementType = declaredType.getTypeArguments().get(0);
+        if (elementType.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+
+        return getUnboxedType(elementType);
+    }
+
+    /**
+     * Returns {@code true} if a type is an enum.
+     */
+    public boolean isEnum(TypeMirror type) {
+        return type.getKind() == TypeKind.DECLARED
+                && ((DeclaredType) type).asElement().getKind() == ElementKind.ENUM;
+    }
+
+    /**
+     * Returns the enum type of an array, {@code List} or {@code ArrayList} of enums, or
+     * {@code null} for any other type.
+     */
+    public TypeMirror getEnumCollectionElementType(TypeMirror type) {
+        if (type.getKind() == TypeKind.ARRAY) {
+            TypeMirror componentType = ((ArrayType) type).getComponentType();
+            return isEnum(componentType) ? componentType : null;
+        }
+
+        if (type.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+
+        DeclaredType declaredType = (DeclaredType) type;
+        String className = ((TypeElement) declaredType.asElement()).getQualifiedName().toString();
+        if (declaredType.getTypeArguments().size() != 1
+                || (!className.equals(List.class.getCanonicalName())
+                        && !className.equals(ArrayList.class.getCanonicalName()))) {
+            return null;
+        }
+
+        TypeMirror elementType = declaredType.getTypeArguments().get(0);
+        return isEnum(elementType) ? elementType : null;
+    }
+
+    /**
+     * Returns {@code true} if a type is a subtype of a class or interface, ignoring type
+     * arguments. Ex: HashMap&lt;String, Object&gt; is a subtype of java.util.Map.
+     */
+    public boolean isSubtypeOf(TypeMirror type, String className) {
+        TypeMirror target = getTypeForClass(className);
+        if (target == null) {
+            return false;
+        }
+
+        Types typeUtils = environment.getTypeUtils();
+        return typeUtils.isAssignable(typeUtils.erasure(type), typeUtils.erasure(target));
+    }
+
+    /**
+     * Returns the suffix of the Bundle method storing an array ("column") of a type, or
+     * {@code null} if the type can not be stored in a column. Primitives and boxed primitives
+     * are stored as primitive arrays, classes annotated with {@code BundlerClass} as a Bundle
+     * created by their Bundler's toColumns method. Ex: "IntArray" for Integer.
+     */
+    public String getColumnSuffix(TypeMirror type) {
+        if (type.getKind().isPrimitive()) {
+            return getBundleMethodSuffix(type) + "Array";
+        }
+
+        if (type.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+
+        PrimitiveType unboxedType = getUnboxedType(type);
+        if (unboxedType != null) {
+            return getBundleMethodSuffix(unboxedType) + "Array";
+        }
+
+        if (matchesClass(type, String.class, MatchPolicy.EXACT)) {
+            return "StringArray";
+        } else if (matchesClass(type, CharSequence.class, MatchPolicy.EXACT)) {
+            return "CharSequenceArray";
+        } else if (isBundlerClass(type)) {
+            return "Bundle";
+        } else if (isEnum(type)) {
+            // Placeholder replaced by IntArray or StringArray, see BundlerClassInfo
+            return "EnumArray";
+        } else if (matchesClass(type, PARCELABLE_CLASS_NAME, MatchPolicy.ASSIGNABLE)) {
+            return "ParcelableArray";
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns the key and value types of one of Android's primitive-keyed sparse arrays, such as
+     * {@code SparseIntArray} or {@code LongSparseArray<String>}, or {@code null} if the type is
+     * not one or its values can not be stored in a column. Sparse arrays are stored as a Bundle
+     * holding a column of keys and a column of values, without boxing. A {@code SparseArray}
+     * of Parcelable values is not included, since the Bundle stores those directly.
+     */
+    public TypeMirror[] getSparseArrayTypes(TypeMirror type) {
+        if (type.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+
+        DeclaredType declaredType = (DeclaredType) type;
+        String className = ((TypeElement) declaredType.asElement()).getQualifiedName().toString();
+        Types typeUtils = environment.getTypeUtils();
+        TypeMirror intType = typeUtils.getPrimitiveType(TypeKind.INT);
+
+        switch (className) {
+            case SPARSE_BOOLEAN_ARRAY_CLASS_NAME:
+                return new TypeMirror[] {intType, typeUtils.getPrimitiveType(TypeKind.BOOLEAN)};
+            case SPARSE_INT_ARRAY_CLASS_NAME:
+                return new TypeMirror[] {intType, intType};
+            case SPARSE_LONG_ARRAY_CLASS_NAME:
+                return new TypeMirror[] {intType, typeUtils.getPrimitiveType(TypeKind.LONG)};
+            case SPARSE_ARRAY_CLASS_NAME:
+            case LONG_SPARSE_ARRAY_CLASS_NAME:
+                break;
+            default:
+                return null;
+        }
+
+        if (declaredType.getTypeArguments().size() != 1 || isSparseParcelableArray(type)) {
+            return null;
+        }
+
+        TypeMirror valueType = declaredType.getTypeArguments().get(0);
+        if (getColumnSuffix(valueType) == null) {
+            return null;
+        }
+
+        TypeMirror keyType = className.equals(SPARSE_ARRAY_CLASS_NAME)
+                ? intType
+                : typeUtils.getPrimitiveType(TypeKind.LONG);
+        return new TypeMirror[] {keyType, valueType};
+    }
+
+    /**
+     * Returns the key and value types of a map, such as {@code HashMap<String, Integer>}, or
+     * {@code null} if the type is not a supported map or its keys or values can not be stored
+     * in a column. Maps are stored as a Bundle holding a column of keys and a column of
+     * values, like sparse arrays, rather than with Java serialization.
+     */
+    public TypeMirror[] getMapTypes(TypeMirror type) {
+        if (type.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+
+        DeclaredType declaredType = (DeclaredType) type;
+        String className = ((TypeElement) declaredType.asElement()).getQualifiedName().toString();
+        if (!MAP_CLASS_NAMES.contains(className) || declaredType.getTypeArguments().size() != 2) {
+            return null;
+        }
+
+        TypeMirror keyType = declaredType.getTypeArguments().get(0);
+        TypeMirror valueType = declaredType.getTypeArguments().get(1);
+        if (getColumnSuffix(keyType) == null || getColumnSuffix(valueType) == null) {
+            return null;
+        }
+
+        return new TypeMirror[] {keyType, valueType};
+    }
+
+    /**
+     * Returns {@code true} if a type is a {@code SparseArray} of Parcelable values, which the
+     * Bundle stores with putSparseParcelableArray.
+     */
+    private boolean isSparseParcelableArray(TypeMirror type) {
+        DeclaredType declaredType = (DeclaredType) type;
+        if (declaredType.getTypeArguments().size() != 1) {
+            return false;
+        }
+
+        String className = ((TypeElement) declaredType.asElement()).getQualifiedName().toString();
+        TypeMirror valueType = declaredType.getTypeArguments().get(0);
+        return className.equals(SPARSE_ARRAY_CLASS_NAME)
+                && valueType.getKind() == TypeKind.DECLARED
+                && !isBundlerClass(valueType)
+                && matchesClass(valueType, PARCELABLE_CLASS_NAME, MatchPolicy.ASSIGNABLE);
+    }
+
+    /**
+     * Returns {@code true} if the string representation of a type identifies it across classes,
+     * which is the case for declared and array types that do not contain a type variable.
+     */
+    private boolean isCacheable(TypeMirror type) {
+        if (type.getKind() == TypeKind.ARRAY) {
+            return isCacheable(((ArrayType) type).getComponentType());
+        }
+
+        if (type.getKind() != TypeKind.DECLARED) {
+            return type.getKind().isPrimitive();
+        }
+
+        DeclaredType declaredType = (DeclaredType) type;
+        TypeMirror enclosingType = declaredType.getEnclosingType();
+        if (enclosingType.getKind() != TypeKind.NONE && !isCacheable(enclosingType)) {
+            return false;
+        }
+
+        for (TypeMirror argument : declaredType.getTypeArguments()) {
+            if (!isCacheableArgument(argument)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns {@code true} if a type argument does not contain a type variable. Wildcards are
+     * only allowed as type arguments, and are resolved by their bounds.
+     */
+    private boolean isCacheableArgument(TypeMirror argument) {
+        if (argument.getKind() != TypeKind.WILDCARD) {
+            return isCacheable(argument);
+        }
+
+        WildcardType wildcardType = (WildcardType) argument;
+        TypeMirror extendsBound = wildcardType.getExtendsBound();
+        TypeMirror superBound = wildcardType.getSuperBound();
+        return (extendsBound == null || isCacheable(extendsBound))
+                && (superBound == null || isCacheable(superBound));
+    }
+
+    /**
+     * Returns the primitive type of a boxed primitive type, or {@code null} for any other type.
+     */
+    private PrimitiveType getUnboxedType(TypeMirror type) {
+        try {
+            return environment.getTypeUtils().unboxedType(type);
+        } catch (IllegalArgumentException e) {
+            // Not a boxed primitive
+            return null;
+        }
+    }
+
+    /**
+     * Returns the element type of a {@code List} or {@code ArrayList} of a class annotated with
+     * {@code BundlerClass}, or {@code null} for any other type. These lists are stored as a
+     * Bundle with one column per field by the element's generated Bundler.
+     */
+    public TypeMirror getBundlerListElementType(TypeMirror type) {
+        if (type.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+
+        DeclaredType declaredType = (DeclaredType) type;
+        if (declaredType.getTypeArguments().size() != 1) {
+            return null;
+        }
+
+        // Only the exact types, since the Bundler creates an ArrayList when unbundling
+        String className = ((TypeElement) declaredType.asElement()).getQualifiedName().toString();
+        if (!className.equals(List.class.getCanonicalName())
+                && !className.equals(ArrayList.class.getCanonicalName())) {
+            return null;
+        }
+
+        TypeMirror elementType = declaredType.getTypeArguments().get(0);
+        return isBundlerClass(elementType) ? elementType : null;
+    }
+
+    /**
+     * Uncached implementation of {@link #getBundleMethodSuffix(TypeMirror)}.
+     */
+    private String resolveBundleMethodSuffix(TypeMirror type) {
+        // Method lists consulted:
+        //   * https://developer.android.com/reference/android/os/BaseBundle.html
+        //   * https://developer.android.com/reference/android/os/Bundle.html
+
+        // Primitives and boxed primitives
+        if (matchesClass(type, Boolean.class, MatchPolicy.ASSIGNABLE)) {
+            return "Boolean";
+        } else if (matchesClass(type, Byte.class, MatchPolicy.ASSIGNABLE)) {
+            return "Byte";
+        } else if (matchesClass(type, Character.class, MatchPolicy.ASSIGNABLE)) {
+            return "Char";
+        } else if (matchesClass(type, Double.class, MatchPolicy.ASSIGNABLE)) {
+            return "Double";
+        } else if (matchesClass(type, Float.class, MatchPolicy.ASSIGNABLE)) {
+            return "Float";
+        } else if (matchesClass(type, Integer.class, MatchPolicy.ASSIGNABLE)) {
+            return "Int";
+        } else if (matchesClass(type, Long.class, MatchPolicy.ASSIGNABLE)) {
+            return "Long";
+        } else if (matchesClass(type, Short.class, MatchPolicy.ASSIGNABLE)) {
+            return "Short";
+        }
+
+        // Non-primitive classes
+        if (matchesClass(type, String.class, MatchPolicy.EXACT)) {
+            return "String";
+        } if (matchesClass(type, CharSequence.class, MatchPolicy.EXACT)) {
+            return "CharSequence";
+        } else if (matchesClass(type, bundleClassName, MatchPolicy.EXACT)) {
+            return "Bundle";
+        } else if (matchesClass(type, I_BINDER_CLASS_NAME, MatchPolicy.EXACT)) {
+            return "Binder";
+        } else if (matchesClass(type, SIZE_CLASS_NAME, MatchPolicy.EXACT)) {
+            return "Size";
+        } else if (matchesClass(type, SIZE_F_CLASS_NAME, MatchPolicy.EXACT)) {
+            return "SizeF";
+        }
+
+        // Primitive array classes
+        if (matchesPrimitiveArrayClass(type, TypeKind.BYTE)) {
+            return "ByteArray";
+        } else if (matchesPrimitiveArrayClass(type, TypeKind.BOOLEAN)) {
+            return "BooleanArray";
+        } else if (matchesPrimitiveArrayClass(type, TypeKind.CHAR)) {
+            return "CharArray";
+        } else if (matchesPrimitiveArrayClass(type, TypeKind.DOUBLE)) {
+            return "DoubleArray";
+        } else if (matchesPrimitiveArrayClass(type, TypeKind.FLOAT)) {
+            return "FloatArray";
+        } else if (matchesPrimitiveArrayClass(type, TypeKind.INT)) {
+            return "IntArray";
+        } else if (matchesPrimitiveArrayClass(type, TypeKind.LONG)) {
+            return "LongArray";
+        } else if (matchesPrimitiveArrayClass(type, TypeKind.SHORT)) {
+            return "ShortArray";
+        }
+
+        // Collections of boxed primitives are stored as primitive arrays. Ex: List<Long> is
+        // stored with putLongArray
+        PrimitiveType collectionElementType = getPrimitiveCollectionElementType(type);
+        if (collectionElementType != null) {
+            return getBundleMethodSuffix(collectionElementType) + "Array";
+        }
+
+        // Non-primitive array classes
+        if (matchesArrayClass(type, String.class, MatchPolicy.EXACT)) {
+            return "StringArray";
+        } else if (matchesArrayClass(type, CharSequence.class, MatchPolicy.EXACT)) {
+            return "CharSequenceArray";
+        }
+
+        // ArrayList classes. ArrayList<Integer> is stored as an IntArray above
+        if (matchesArrayListClass(type, CharSequence.class, MatchPolicy.EXACT)) {
+            return "CharSequenceArrayList";
+        } else if (matchesArrayListClass(type, String.class, MatchPolicy.EXACT)) {
+            return "StringArrayList";
+        }
+
+        // Parcelable[]
+        if (matchesArrayClass(type, PARCELABLE_CLASS_NAME, MatchPolicy.ASSIGNABLE)) {
+            return "ParcelableArray";
+        }
+
+        // ArrayList<Parcelable>
+        if (matchesArrayListClass(type, PARCELABLE_CLASS_NAME, MatchPolicy.ASSIGNABLE)) {
+            return "ParcelableArrayList";
+        }
+
+        // SparseArray<Parcelable>
+        if (type.getKind() == TypeKind.DECLARED && isSparseParcelableArray(type)) {
+            return "SparseParcelableArray";
+        }
+
+        // Enums are stored by name or ordinal, depending on the class. These placeholders are
+        // replaced with the real suffix by BundlerClassInfo
+        if (isEnum(type)) {
+            return "Enum";
+        } else if (getEnumCollectionElementType(type) != null) {
+            return type.getKind() == TypeKind.ARRAY ? "EnumArray" : "EnumList";
+        }
+
+        // Nested BundlerClass objects are stored as a Bundle by their own generated Bundler,
+        // checked before Serializable so that they never fall back to Java serialization.
+        // Other sparse arrays and maps are stored as a Bundle of key and value columns
+        if (isBundlerClass(type) || getBundlerListElementType(type) != null
+                || getSparseArrayTypes(type) != null || getMapTypes(type) != null) {
+            return "Bundle";
+        }
+
+        // Serializable and Parcelable last to avoid masking something more specific
+        if (matchesClass(type, Serializable.class, MatchPolicy.ASSIGNABLE)) {
+            return "Serializable";
+        } else if (matchesClass(type, PARCELABLE_CLASS_NAME, MatchPolicy.ASSIGNABLE)) {
+            return "Parcelable";
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns {@code true} if a type is the same as a particular {@link Class}. This cannot be
+     * used with array classes or generic types.
+     */
+    private boolean matchesClass(TypeMirror type, Class<?> clazz, MatchPolicy policy) {
+        return matchesClass(type, clazz.getCanonicalName(), policy);
+    }
+
+    /**
+     * See {@link #matchesClass(TypeMirror, Class, MatchPolicy)}.
+     */
+    private boolean matchesClass(TypeMirror type, String className, MatchPolicy policy) {
+        TypeMirror target = getTypeForClass(className);
+        return target != null && typesMatch(type, target, policy);
+    }
+
+    /**
+     * Returns {@code true} if a type representing an array is an array where the members are
+     * a particular {@link Class}.
+     */
+    private boolean matchesArrayClass(TypeMirror type, Class<?> clazz, MatchPolicy policy) {
+        return matchesArrayClass(type, clazz.getCanonicalName(), policy);
+    }
+
+    /**
+     * See {@link #matchesArrayClass(TypeMirror, Class, MatchPolicy)}.
+     */
+    private boolean matchesArrayClass(TypeMirror type, String className, MatchPolicy policy) {
+        // Check if the type is an array
+        if (type.getKind() != TypeKind.ARRAY) {
+            return false;
+        }
+
+        // Get the type of array it is
+        TypeMirror componentType = ((ArrayType) type).getComponentType();
+
+        // Perform check
+        TypeMirror target = getTypeForClass(className);
+        return target != null && typesMatch(componentType, target, policy);
+    }
+
+    /**
+     * Returns {@code true} if a type representing an array is a primitive array where the
+     * members are a particular {@link TypeKind}.
+     */
+    private boolean matchesPrimitiveArrayClass(TypeMirror type, TypeKind kind) {
+        TypeMirror arrayType = primitiveArrayTypes.get(kind);
+        if (arrayType == null) {
+            PrimitiveType primitiveType = environment.getTypeUtils().getPrimitiveType(kind);
+            arrayType = environment.getTypeUtils().getArrayType(primitiveType);
+            primitiveArrayTypes.put(kind, arrayType);
+        }
+
+        return typesMatch(type, arrayType, MatchPolicy.EXACT);
+    }
+
+    /**
+     * Returns {@code true} if a type representing an ArrayList is an ArrayList where the
+     * members are a particular {@link Class}.
+     */
+    private boolean matchesArrayListClass(TypeMirror type, Class<?> clazz, MatchPolicy policy) {
+        return matchesArrayListClass(type, clazz.getCanonicalName(), policy);
+    }
+
+    /**
+     * See {@link #matchesArrayListClass(TypeMirror, Class, MatchPolicy)}.
+     */
+    private boolean matchesArrayListClass(TypeMirror type, String className, MatchPolicy policy) {
+        if (!(type instanceof DeclaredType)) {
+            return false;
+        }
+
+        // Get generic information
+        DeclaredType declaredType = (DeclaredType) type;
+
+        // Check general form
+        if (declaredType.getTypeArguments().size() != 1) {
+            return false;
+        }
+
+        // Ensure that outer type is ArrayList
+        TypeMirror arrayList = getTypeForClass(ArrayList.class.getCanonicalName());
+        TypeMirror erased = environment.getTypeUtils().erasure(declaredType);
+        boolean isArrayList = typesMatch(erased, arrayList, MatchPolicy.ASSIGNABLE);
+
+        // Make sure inner type matches
+        TypeMirror innerType = declaredType.getTypeArguments().get(0);
+        TypeMirror target = getTypeForClass(className);
+        boolean innerTypeMatches = target != null && typesMatch(innerType, target, policy);
+
+        return isArrayList && innerTypeMatches;
+    }
+
+    /**
+     * Returns {@code true} if two type mirrors match. This can be either exact match or
+     * assignability depending on the {@link MatchPolicy}.
+     */
+    private boolean typesMatch(TypeMirror a, TypeMirror b, MatchPolicy policy) {
+        switch (policy) {
+            case EXACT:
+                return environment.getTypeUtils().isSameType(a, b);
+            case ASSIGNABLE:
+                return environment.getTypeUtils().isAssignable(a, b);
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Returns the {@link TypeMirror} of a class for comparison, by name, or {@code null} if the
+     * class is not available.
+     */
+    private TypeMirror getTypeForClass(String className) {
+        if (classTypes.containsKey(className)) {
+            return classTypes.get(className);
+        }
+
+        TypeElement element = environment.getElementUtils().getTypeElement(className);
+        TypeMirror type = element != null ? element.asType() : null;
+        classTypes.put(className, type);
+        return type;
+    }
+
+}
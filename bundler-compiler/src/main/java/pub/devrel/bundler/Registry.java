@@ -0,0 +1,119 @@
+
+/*
+ * Copyright 2017 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pub.devrel.bundler;
+
+import com.squareup.javapoet.AnnotationSpec;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.JavaFile;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import com.squareup.javapoet.TypeVariableName;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.lang.model.element.Modifier;
+
+/**
+ * Generates a single registry class mapping every class annotated with {@code BundlerClass}
+ * in the compilation to its generated Bundler, so that lookups need no reflection.
+ */
+public class Registry {
+
+    private static final String PACKAGE_NAME = "pub.devrel.bundler";
+    private static final String CLASS_NAME = "EasyBundlerRegistry";
+
+    private static final ClassName REGISTRY_INTERFACE =
+            ClassName.get(PACKAGE_NAME, "BundlerRegistry");
+    private static final ClassName BUNDLER_INTERFACE = ClassName.get(PACKAGE_NAME, "Bundler");
+
+    private List<Bundler> bundlers = new ArrayList<>();
+
+    /**
+     * Add a Bundler to the registry. Bundlers for classes that are not public are skipped, as
+     * they can not be referenced from the registry's package.
+     */
+    public void add(Bundler bundler) {
+        if (bundler.isAnnotatedClassPublic()) {
+            bundlers.add(bundler);
+        }
+    }
+
+    /**
+     * Returns {@code true} if no Bundlers have been added.
+     */
+    public boolean isEmpty() {
+        return bundlers.isEmpty();
+    }
+
+    /**
+     * Returns the fully qualified name of the generated class.
+     */
+    public String getQualifiedRegistryClassName() {
+        return PACKAGE_NAME + "." + CLASS_NAME;
+    }
+
+    /**
+     * Return the source of the generated registry class, as a String.
+     */
+    public String getRegistryClassSource() {
+        TypeSpec registryType = TypeSpec.classBuilder(CLASS_NAME)
+                .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
+                .addSuperinterface(REGISTRY_INTERFACE)
+                .addMethod(createGetBundlerMethod())
+                .build();
+
+        JavaFile javaFile = JavaFile.builder(PACKAGE_NAME, registryType)
+                .build();
+
+        return javaFile.toString();
+    }
+
+    /**
+     * Create the "getBundler" method, which compares the requested class against each known
+     * class and returns the matching Bundler instance.
+     */
+    private MethodSpec createGetBundlerMethod() {
+        TypeVariableName typeVariable = TypeVariableName.get("T");
+        TypeName classType = ParameterizedTypeName.get(ClassName.get(Class.class), typeVariable);
+        TypeName bundlerType = ParameterizedTypeName.get(BUNDLER_INTERFACE, typeVariable);
+
+        MethodSpec.Builder builder = MethodSpec.methodBuilder("getBundler")
+                .addAnnotation(Override.class)
+                .addAnnotation(AnnotationSpec.builder(SuppressWarnings.class)
+                        .addMember("value", "$S", "unchecked")
+                        .build())
+                .addModifiers(Modifier.PUBLIC)
+                .addTypeVariable(typeVariable)
+                .addParameter(classType, "clazz")
+                .returns(bundlerType);
+
+        // Ex: if (clazz == Foo.class) return (Bundler<T>) FooBundler.INSTANCE;
+        for (Bundler bundler : bundlers) {
+            builder.beginControlFlow("if (clazz == $T.class)", bundler.getAnnotatedClass())
+                    .addStatement("return ($T) $T.INSTANCE", bundlerType, bundler.getBundlerClass())
+                    .endControlFlow();
+        }
+
+        builder.addStatement("return null");
+
+        return builder.build();
+    }
+
+}
@@ -0,0 +1,539 @@
+/*
+ * Copyright 2017 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pub.devrel.bundler.jvm;
+
+import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Pure-JVM replacement for {@code android.os.Bundle}, to use Bundlers generated with the
+ * {@code easybundler.bundleClass=pub.devrel.bundler.jvm.ArrayBundle} processor option in
+ * server code, desktop tools and plain JVM tests. It has the same put and get methods as a
+ * Bundle for every type that exists outside of Android.
+ *
+ * Entries are kept in insertion order in parallel arrays of keys, key hashes and values, so
+ * small bundles are looked up with a scan of an int array and no allocation per entry. Larger
+ * bundles also keep an open-addressing table of positions. Like a Bundle, typed getters return
+ * the default value if the key is missing or holds a value of another type. This class is not
+ * thread-safe.
+ */
+public final class ArrayBundle {
+
+    private static final int DEFAULT_CAPACITY = 8;
+
+    // Largest size looked up by scanning the hashes rather than through the table
+    private static final int MAX_SCAN_SIZE = 8;
+
+    private String[] keys;
+    private int[] hashes;
+    private Object[] values;
+    private int size;
+
+    // Positions plus one of the entries, by hash, or null while the bundle is small. The
+    // length is a power of two at least twice the size, so there is always an empty slot.
+    private int[] table;
+
+    public ArrayBundle() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public ArrayBundle(int capacity) {
+        capacity = Math.max(capacity, 1);
+        keys = new String[capacity];
+        hashes = new int[capacity];
+        values = new Object[capacity];
+    }
+
+    /**
+     * Creates a shallow copy of another bundle.
+     */
+    public ArrayBundle(ArrayBundle bundle) {
+        keys = Arrays.copyOf(bundle.keys, bundle.keys.length);
+        hashes = Arrays.copyOf(bundle.hashes, bundle.hashes.length);
+        values = Arrays.copyOf(bundle.values, bundle.values.length);
+        size = bundle.size;
+        table = bundle.table != null ? Arrays.copyOf(bundle.table, bundle.table.length) : null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0, size, null);
+        Arrays.fill(values, 0, size, null);
+        size = 0;
+        table = null;
+    }
+
+    public boolean containsKey(String key) {
+        return indexOf(key) >= 0;
+    }
+
+    public Object get(String key) {
+        int index = indexOf(key);
+        return index >= 0 ? values[index] : null;
+    }
+
+    public void remove(String key) {
+        int index = indexOf(key);
+        if (index < 0) {
+            return;
+        }
+
+        // Keep the insertion order, then reindex the entries that moved
+        int moved = size - index - 1;
+        System.arraycopy(keys, index + 1, keys, index, moved);
+        System.arraycopy(hashes, index + 1, hashes, index, moved);
+        System.arraycopy(values, index + 1, values, index, moved);
+        size--;
+        keys[size] = null;
+        values[size] = null;
+
+        table = null;
+        if (size > MAX_SCAN_SIZE) {
+            rebuildTable();
+        }
+    }
+
+    public void putAll(ArrayBundle bundle) {
+        for (int i = 0; i < bundle.size; i++) {
+            put(bundle.keys[i], bundle.values[i]);
+        }
+    }
+
+    /**
+     * Returns the keys in insertion order. The set is backed by the bundle and can not be
+     * modified.
+     */
+    public Set<String> keySet() {
+        return new AbstractSet<String>() {
+            @Override
+            public Iterator<String> iterator() {
+                return new Iterator<String>() {
+                    private int next = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < size;
+                    }
+
+                    @Override
+                    public String next() {
+                        if (next >= size) {
+                            throw new NoSuchElementException();
+                        }
+                        return keys[next++];
+                    }
+
+                    @Override
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return (o == null || o instanceof String) && containsKey((String) o);
+            }
+        };
+    }
+
+    public void putBoolean(String key, boolean value) {
+        put(key, value);
+    }
+
+    public boolean getBoolean(String key) {
+        return getBoolean(key, false);
+    }
+
+    public boolean getBoolean(String key, boolean defaultValue) {
+        Object value = get(key);
+        return value instanceof Boolean ? (Boolean) value : defaultValue;
+    }
+
+    public void putByte(String key, byte value) {
+        put(key, value);
+    }
+
+    public byte getByte(String key) {
+        return getByte(key, (byte) 0);
+    }
+
+    public byte getByte(String key, byte defaultValue) {
+        Object value = get(key);
+        return value instanceof Byte ? (Byte) value : defaultValue;
+    }
+
+    public void putChar(String key, char value) {
+        put(key, value);
+    }
+
+    public char getChar(String key) {
+        return getChar(key, (char) 0);
+    }
+
+    public char getChar(String key, char defaultValue) {
+        Object value = get(key);
+        return value instanceof Character ? (Character) value : defaultValue;
+    }
+
+    public void putShort(String key, short value) {
+        put(key, value);
+    }
+
+    public short getShort(String key) {
+        return getShort(key, (short) 0);
+    }
+
+    public short getShort(String key, short defaultValue) {
+        Object value = get(key);
+        return value instanceof Short ? (Short) value : defaultValue;
+    }
+
+    public void putInt(String key, int value) {
+        put(key, value);
+    }
+
+    public int getInt(String key) {
+        return getInt(key, 0);
+    }
+
+    public int getInt(String key, int defaultValue) {
+        Object value = get(key);
+        return value instanceof Integer ? (Integer) value : defaultValue;
+    }
+
+    public void putLong(String key, long value) {
+        put(key, value);
+    }
+
+    public long getLong(String key) {
+        return getLong(key, 0L);
+    }
+
+    public long getLong(String key, long defaultValue) {
+        Object value = get(key);
+        return value instanceof Long ? (Long) value : defaultValue;
+    }
+
+    public void putFloat(String key, float value) {
+        put(key, value);
+    }
+
+    public float getFloat(String key) {
+        return getFloat(key, 0f);
+    }
+
+    public float getFloat(String key, float defaultValue) {
+        Object value = get(key);
+        return value instanceof Float ? (Float) value : defaultValue;
+    }
+
+    public void putDouble(String key, double value) {
+        put(key, value);
+    }
+
+    public double getDouble(String key) {
+        return getDouble(key, 0d);
+    }
+
+    public double getDouble(String key, double defaultValue) {
+        Object value = get(key);
+        return value instanceof Double ? (Double) value : defaultValue;
+    }
+
+    public void putString(String key, String value) {
+        put(key, value);
+    }
+
+    public String getString(String key) {
+        return get(key, String.class);
+    }
+
+    public String getString(String key, String defaultValue) {
+        String value = getString(key);
+        return value != null ? value : defaultValue;
+    }
+
+    public void putCharSequence(String key, CharSequence value) {
+        put(key, value);
+    }
+
+    public CharSequence getCharSequence(String key) {
+        return get(key, CharSequence.class);
+    }
+
+    public CharSequence getCharSequence(String key, CharSequence defaultValue) {
+        CharSequence value = getCharSequence(key);
+        return value != null ? value : defaultValue;
+    }
+
+    public void putBundle(String key, ArrayBundle value) {
+        put(key, value);
+    }
+
+    public ArrayBundle getBundle(String key) {
+        return get(key, ArrayBundle.class);
+    }
+
+    public void putSerializable(String key, Serializable value) {
+        put(key, value);
+    }
+
+    public Serializable getSerializable(String key) {
+        return get(key, Serializable.class);
+    }
+
+    public void putBooleanArray(String key, boolean[] value) {
+        put(key, value);
+    }
+
+    public boolean[] getBooleanArray(String key) {
+        return get(key, boolean[].class);
+    }
+
+    public void putByteArray(String key, byte[] value) {
+        put(key, value);
+    }
+
+    public byte[] getByteArray(String key) {
+        return get(key, byte[].class);
+    }
+
+    public void putCharArray(String key, char[] value) {
+        put(key, value);
+    }
+
+    public char[] getCharArray(String key) {
+        return get(key, char[].class);
+    }
+
+    public void putShortArray(String key, short[] value) {
+        put(key, value);
+    }
+
+    public short[] getShortArray(String key) {
+        return get(key, short[].class);
+    }
+
+    public void putIntArray(String key, int[] value) {
+        put(key, value);
+    }
+
+    public int[] getIntArray(String key) {
+        return get(key, int[].class);
+    }
+
+    public void putLongArray(String key, long[] value) {
+        put(key, value);
+    }
+
+    public long[] getLongArray(String key) {
+        return get(key, long[].class);
+    }
+
+    public void putFloatArray(String key, float[] value) {
+        put(key, value);
+    }
+
+    public float[] getFloatArray(String key) {
+        return get(key, float[].class);
+    }
+
+    public void putDoubleArray(String key, double[] value) {
+        put(key, value);
+    }
+
+    public double[] getDoubleArray(String key) {
+        return get(key, double[].class);
+    }
+
+    public void putStringArray(String key, String[] value) {
+        put(key, value);
+    }
+
+    public String[] getStringArray(String key) {
+        return get(key, String[].class);
+    }
+
+    public void putCharSequenceArray(String key, CharSequence[] value) {
+        put(key, value);
+    }
+
+    public CharSequence[] getCharSequenceArray(String key) {
+        return get(key, CharSequence[].class);
+    }
+
+    public void putIntegerArrayList(String key, ArrayList<Integer> value) {
+        put(key, value);
+    }
+
+    @SuppressWarnings("unchecked")
+    public ArrayList<Integer> getIntegerArrayList(String key) {
+        return get(key, ArrayList.class);
+    }
+
+    public void putStringArrayList(String key, ArrayList<String> value) {
+        put(key, value);
+    }
+
+    @SuppressWarnings("unchecked")
+    public ArrayList<String> getStringArrayList(String key) {
+        return get(key, ArrayList.class);
+    }
+
+    public void putCharSequenceArrayList(String key, ArrayList<CharSequence> value) {
+        put(key, value);
+    }
+
+    @SuppressWarnings("unchecked")
+    public ArrayList<CharSequence> getCharSequenceArrayList(String key) {
+        return get(key, ArrayList.class);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder("ArrayBundle[{");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                result.append(", ");
+            }
+            result.append(keys[i]).append('=').append(values[i]);
+        }
+
+        return result.append("}]").toString();
+    }
+
+    /**
+     * Returns the value of a key if it is an instance of a type, otherwise {@code null}.
+     */
+    private <T> T get(String key, Class<T> type) {
+        Object value = get(key);
+        return type.isInstance(value) ? type.cast(value) : null;
+    }
+
+    private void put(String key, Object value) {
+        int index = indexOf(key);
+        if (index >= 0) {
+            values[index] = value;
+            return;
+        }
+
+        if (size == keys.length) {
+            int capacity = size * 2;
+            keys = Arrays.copyOf(keys, capacity);
+            hashes = Arrays.copyOf(hashes, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        keys[size] = key;
+        hashes[size] = hash(key);
+        values[size] = value;
+        size++;
+
+        if (size > MAX_SCAN_SIZE) {
+            if (table == null || size * 2 > table.length) {
+                rebuildTable();
+            } else {
+                addToTable(size - 1);
+            }
+        }
+    }
+
+    /**
+     * Returns the position of a key in the arrays, or -1 if it is missing.
+     */
+    private int indexOf(String key) {
+        int hash = hash(key);
+
+        if (table == null) {
+            for (int i = 0; i < size; i++) {
+                if (matches(i, key, hash)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        int mask = table.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int entry = table[slot];
+            if (entry == 0) {
+                return -1;
+            }
+
+            if (matches(entry - 1, key, hash)) {
+                return entry - 1;
+            }
+        }
+    }
+
+    /**
+     * Returns {@code true} if the entry at a position has a key. Generated Bundlers always
+     * pass the same key constants, so keys are compared by reference first.
+     */
+    private boolean matches(int index, String key, int hash) {
+        String other = keys[index];
+        return other == key || (hashes[index] == hash && key != null && key.equals(other));
+    }
+
+    private void rebuildTable() {
+        table = new int[Integer.highestOneBit(size * 2) << 1];
+        for (int i = 0; i < size; i++) {
+            addToTable(i);
+        }
+    }
+
+    private void addToTable(int index) {
+        int mask = table.length - 1;
+        int slot = hashes[index] & mask;
+        while (table[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+
+        table[slot] = index + 1;
+    }
+
+    /**
+     * Returns the hash of a key, spread so that keys that only differ in their high bits do
+     * not collide in the table.
+     */
+    private static int hash(String key) {
+        if (key == null) {
+            return 0;
+        }
+
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2017 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pub.devrel.bundler.jvm;
+
+import org.junit.Test;
+import org.unitils.reflectionassert.ReflectionAssert;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.concurrent.TimeUnit;
+
+import pub.devrel.bundler.jvm.objects.ChildObject;
+import pub.devrel.bundler.jvm.objects.StateObject;
+import pub.devrel.bundler.jvm.objects.StateObjectBundleView;
+import pub.devrel.bundler.jvm.objects.StateObjectBundler;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+
+/**
+ * Tests for {@link ArrayBundle}, and for Bundlers generated to use it, on a plain JVM.
+ */
+public class ArrayBundleTest {
+
+    @Test
+    public void testPutAndGet() {
+        ArrayBundle bundle = new ArrayBundle();
+        bundle.putInt("int", 123);
+        bundle.putString("string", "Hello");
+        bundle.putLongArray("longs", new long[]{1L, 2L});
+        bundle.putString(null, "Null key");
+
+        assertEquals(4, bundle.size());
+        assertEquals(123, bundle.getInt("int"));
+        assertEquals("Hello", bundle.getString("string"));
+        assertEquals(2, bundle.getLongArray("longs").length);
+        assertEquals("Null key", bundle.getString(null));
+
+        // Missing keys and values of another type give the default, like a Bundle
+        assertEquals(0, bundle.getInt("missing"));
+        assertEquals(7, bundle.getInt("string", 7));
+        assertNull(bundle.getString("int"));
+
+        // Putting an existing key replaces its value in place
+        bundle.putInt("int", 456);
+        assertEquals(456, bundle.getInt("int"));
+        assertEquals(Arrays.asList("int", "string", "longs", null),
+                new ArrayList<>(bundle.keySet()));
+
+        bundle.remove("int");
+        assertFalse(bundle.containsKey("int"));
+        assertEquals(Arrays.asList("string", "longs", null), new ArrayList<>(bundle.keySet()));
+    }
+
+    @Test
+    public void testManyKeys() {
+        // Past a few entries, keys are looked up through a hash table
+        ArrayBundle bundle = new ArrayBundle(1);
+        for (int i = 0; i < 1000; i++) {
+            bundle.putInt(Integer.toString(i), i);
+        }
+        for (int i = 0; i < 1000; i += 2) {
+            bundle.remove(Integer.toString(i));
+        }
+
+        assertEquals(500, bundle.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i % 2 == 1, bundle.containsKey(Integer.toString(i)));
+            assertEquals(i % 2 == 1 ? i : 0, bundle.getInt(Integer.toString(i)));
+        }
+
+        ArrayBundle copy = new ArrayBundle(bundle);
+        copy.putAll(bundle);
+        assertEquals(500, copy.size());
+        assertEquals(999, copy.getInt("999"));
+    }
+
+    @Test
+    public void testGeneratedBundler() {
+        StateObject obj1 = new StateObject();
+        obj1.publicBoolean = true;
+        obj1.publicInt = 123;
+        obj1.publicLong = 456L;
+        obj1.publicDouble = 4.2;
+        obj1.publicString = "Hello";
+        obj1.publicIntArray = new int[]{1, 2, 3};
+        obj1.publicStringArray = new String[]{"a", null};
+        obj1.publicStringList = new ArrayList<>(Arrays.asList("Hello", "World"));
+        obj1.publicIntegerList = new ArrayList<>(Arrays.asList(1, 2, 3));
+        obj1.publicMap = new LinkedHashMap<>();
+        obj1.publicMap.put("one", 1L);
+        obj1.publicUnit = TimeUnit.SECONDS;
+        obj1.publicDate = new Date(1234L);
+        obj1.publicChild = new ChildObject("child", 1f);
+        obj1.publicChildren = new ArrayList<>(Arrays.asList(
+                new ChildObject("first", 2f), null, new ChildObject("third", 3f)));
+        obj1.setPrivateString("Private");
+
+        ArrayBundle bundle = StateObjectBundler.toBundle(obj1);
+        assertEquals("Hello", bundle.getString(StateObjectBundler.KEY_PUBLIC_STRING));
+        assertTrue(bundle.getBundle(StateObjectBundler.KEY_PUBLIC_CHILD) != null);
+
+        StateObject obj2 = StateObjectBundler.fromBundle(bundle);
+        ReflectionAssert.assertReflectionEquals(obj1, obj2);
+
+        // The view reads from the ArrayBundle too
+        StateObjectBundleView view = new StateObjectBundleView(bundle);
+        assertEquals(TimeUnit.SECONDS, view.getPublicUnit());
+        assertEquals("third", view.getPublicChildren().get(2).name);
+    }
+
+}
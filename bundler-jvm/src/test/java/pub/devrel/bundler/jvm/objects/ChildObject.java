@@ -0,0 +1,36 @@
+/*
+ * Copyright 2017 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pub.devrel.bundler.jvm.objects;
+
+import pub.devrel.bundler.BundlerClass;
+
+/**
+ * Class nested in {@link StateObject}, alone and in a list.
+ */
+@BundlerClass
+public class ChildObject {
+
+    public String name;
+    public float value;
+
+    public ChildObject() {}
+
+    public ChildObject(String name, float value) {
+        this.name = name;
+        this.value = value;
+    }
+
+}
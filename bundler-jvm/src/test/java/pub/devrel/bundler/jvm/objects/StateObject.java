@@ -0,0 +1,60 @@
+/*
+ * Copyright 2017 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pub.devrel.bundler.jvm.objects;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import pub.devrel.bundler.BundlerClass;
+
+/**
+ * Class with fields of most types that exist outside of Android, bundled into an
+ * {@link pub.devrel.bundler.jvm.ArrayBundle}.
+ */
+@BundlerClass(view = true)
+public class StateObject {
+
+    public boolean publicBoolean;
+    public int publicInt;
+    public long publicLong;
+    public double publicDouble;
+    public String publicString;
+    public int[] publicIntArray;
+    public String[] publicStringArray;
+    public ArrayList<String> publicStringList;
+    public List<Integer> publicIntegerList;
+    public Map<String, Long> publicMap;
+    public TimeUnit publicUnit;
+    public Date publicDate;
+    public ChildObject publicChild;
+    public List<ChildObject> publicChildren;
+
+    private String privateString;
+
+    public StateObject() {}
+
+    public String getPrivateString() {
+        return privateString;
+    }
+
+    public void setPrivateString(String privateString) {
+        this.privateString = privateString;
+    }
+
+}